@@ -0,0 +1,422 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Locale;
+
+import javax.management.JMException;
+
+/**
+ * BatchRunner: a headless command line entry point. Loads an RLE file or a
+ * snapshot, runs it for a number of generations as fast as possible with no
+ * rendering, and reports the throughput, as plain text or as one JSON object.
+ * A board that settles into a still life or oscillator is not run any
+ * further: the remaining generations are skipped a whole period at a time.
+ * While it runs, the per-generation metrics are registered over JMX as
+ * SimulationMetrics.DEFAULT_NAME.
+ *
+ * Usage:
+ *   java BatchRunner [options] pattern.rle|state.gols
+ *
+ * Options:
+ *   -g, --generations N  generations to run (default 1000)
+ *   -s, --size RxC       grid size for RLE files (default 1024x1024)
+ *   -b, --backend NAME   HASH_MAP, BIT_PACKED or SPARSE (default BIT_PACKED)
+ *   -t, --threads N      evolve with N threads (default 1)
+ *   --boundary NAME      BOUNDED, TORUS or KLEIN_BOTTLE (default BOUNDED)
+ *   -r, --rule RULE      a rule such as B36/S23, overriding the file's
+ *   --vector             use the Vector API kernel if available (needs
+ *                        --add-modules jdk.incubator.vector)
+ *   -o, --output FILE    save the final state as a snapshot
+ *   --map FILE           keep the grid off the heap, mapped onto FILE (needs
+ *                        the offheap/ build); the input is only loaded while
+ *                        FILE holds no live cells, so a later run with the
+ *                        same FILE carries on where this one stopped
+ *   --stop-on-cycle      stop once the board settles into a still life or
+ *                        oscillator, instead of skipping to the last
+ *                        generation
+ *   --json               print a JSON object instead of text
+ */
+public class BatchRunner {
+    /**
+     * Exit status for bad arguments.
+     */
+    private static final int EXIT_USAGE = 2;
+
+    /**
+     * Exit status for a file that cannot be read or written.
+     */
+    private static final int EXIT_IO = 1;
+
+    /**
+     * The file to load.
+     */
+    private File input;
+
+    /**
+     * Where to save the final state, or null.
+     */
+    private File output;
+
+    /**
+     * The file to map an off-heap grid onto, or null for the chosen backend.
+     */
+    private File map;
+
+    /**
+     * The number of generations to run.
+     */
+    private long generations = 1000;
+
+    /**
+     * The grid rows, for RLE files.
+     */
+    private int rows = 1024;
+
+    /**
+     * The grid cols, for RLE files.
+     */
+    private int cols = 1024;
+
+    /**
+     * The storage backend.
+     */
+    private Simulation.Backend backend = Simulation.Backend.BIT_PACKED;
+
+    /**
+     * The number of evolve threads.
+     */
+    private int threads = 1;
+
+    /**
+     * What lies past the grid edges.
+     */
+    private Boundary boundary = Boundary.BOUNDED;
+
+    /**
+     * The rule to run instead of the file's, or null.
+     */
+    private Rule rule;
+
+    /**
+     * Whether to ask for the Vector API kernel.
+     */
+    private boolean vector;
+
+    /**
+     * Whether to stop at a detected cycle rather than skip past it.
+     */
+    private boolean stopOnCycle;
+
+    /**
+     * Whether to print JSON.
+     */
+    private boolean json;
+
+    /**
+     * Runs a batch job.
+     *
+     * @param args the command line; see the class comment.
+     */
+    public static void main(String[] args) {
+        BatchRunner runner = new BatchRunner();
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("BatchRunner: " + e.getMessage());
+            System.err.println("usage: java BatchRunner [-g generations] [-s RxC] [-b backend]"
+                    + " [-t threads] [--boundary mode] [-r rule] [-o snapshot] [--map file] [--vector] [--stop-on-cycle] [--json] pattern.rle|state.gols");
+            System.exit(EXIT_USAGE);
+        }
+        try {
+            runner.run();
+        } catch (IOException e) {
+            System.err.println("BatchRunner: " + e.getMessage());
+            System.exit(EXIT_IO);
+        }
+    }
+
+    /**
+     * Helper method: reads the options into the fields.
+     *
+     * @param args the command line.
+     * @throws IllegalArgumentException if an option is unknown or malformed.
+     */
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-g":
+                case "--generations":
+                    generations = parsePositive(value(args, ++i, arg), arg);
+                    break;
+                case "-s":
+                case "--size":
+                    String[] size = value(args, ++i, arg).toLowerCase(Locale.ROOT).split("x");
+                    if (size.length != 2) {
+                        throw new IllegalArgumentException(arg + " expects RxC, such as 1024x1024");
+                    }
+                    rows = (int) parsePositive(size[0], arg);
+                    cols = (int) parsePositive(size[1], arg);
+                    break;
+                case "-b":
+                case "--backend":
+                    try {
+                        backend = Simulation.Backend.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("unknown backend " + args[i]);
+                    }
+                    break;
+                case "-t":
+                case "--threads":
+                    threads = (int) parsePositive(value(args, ++i, arg), arg);
+                    break;
+                case "-o":
+                case "--output":
+                    output = new File(value(args, ++i, arg));
+                    break;
+                case "--boundary":
+                    try {
+                        boundary = Boundary.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("unknown boundary " + args[i]);
+                    }
+                    break;
+                case "-r":
+                case "--rule":
+                    rule = Rule.parse(value(args, ++i, arg));
+                    break;
+                case "--map":
+                    map = new File(value(args, ++i, arg));
+                    break;
+                case "--vector":
+                    vector = true;
+                    break;
+                case "--stop-on-cycle":
+                    stopOnCycle = true;
+                    break;
+                case "--json":
+                    json = true;
+                    break;
+                default:
+                    if (arg.startsWith("-") || input != null) {
+                        throw new IllegalArgumentException("unexpected argument " + arg);
+                    }
+                    input = new File(arg);
+                    break;
+            }
+        }
+        if (input == null) {
+            throw new IllegalArgumentException("no input file");
+        }
+        if (map != null && input.getName().endsWith(".gols")) {
+            throw new IllegalArgumentException("--map loads RLE files, not snapshots");
+        }
+        if (map == null && backend == Simulation.Backend.SPARSE && boundary.wraps()) {
+            throw new IllegalArgumentException("the SPARSE backend cannot use boundary " + boundary);
+        }
+        if (map == null && backend == Simulation.Backend.SPARSE && rule != null && rule.bornFromNothing()) {
+            throw new IllegalArgumentException("the SPARSE backend cannot run B0 rule " + rule);
+        }
+    }
+
+    /**
+     * Helper method: the value following an option. Shared with
+     * ShardCoordinator, which takes the same kind of options.
+     *
+     * @param args the command line.
+     * @param i the index of the value.
+     * @param option the option, for the error message.
+     * @return the value.
+     */
+    static String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[i];
+    }
+
+    /**
+     * Helper method: parses a number that must be at least 1.
+     *
+     * @param text the number.
+     * @param option the option, for the error message.
+     * @return the number.
+     */
+    static long parsePositive(String text, String option) {
+        try {
+            long value = Long.parseLong(text.trim());
+            if (value >= 1) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the error below
+        }
+        throw new IllegalArgumentException(option + " expects a positive number, not " + text);
+    }
+
+    /**
+     * Helper method: loads the input, runs it and prints the report.
+     *
+     * @throws IOException if a file cannot be read or written.
+     */
+    private void run() throws IOException {
+        if (!input.isFile()) {
+            throw new IOException("cannot read " + input);
+        }
+        Simulation simulation;
+        if (map != null) {
+            try {
+                simulation = Simulation.openOffHeap(rows, cols, boundary, map);
+            } catch (IllegalArgumentException | UnsupportedOperationException e) {
+                throw new IOException("cannot map " + map + ": " + e.getMessage(), e);
+            }
+            if (simulation.getPopulation() == 0) {
+                simulation.loadRleFile(input);
+            }
+        } else if (input.getName().endsWith(".gols")) {
+            simulation = Simulation.loadSnapshot(input, backend, boundary);
+        } else {
+            simulation = new Simulation(rows, cols, backend, boundary);
+            simulation.loadRleFile(input);
+        }
+        if (rule != null) {
+            simulation.setRule(rule);
+        }
+        simulation.setParallelism(threads);
+        boolean vectorized = vector && simulation.setVectorized(true);
+        if (vector && !vectorized) {
+            System.err.println("BatchRunner: vector kernel not available, running scalar");
+        }
+        SimulationMetrics metrics = simulation.getMetrics();
+        try {
+            metrics.register(SimulationMetrics.DEFAULT_NAME);
+        } catch (JMException e) {
+            System.err.println("BatchRunner: metrics not registered: " + e.getMessage());
+        }
+        resetPeakHeap();
+
+        long startGeneration = simulation.getGenerationCount();
+        long start = System.nanoTime();
+        long evolved = 0;
+        int period = 0;
+        long cycleAt = -1;
+        while (evolved < generations) {
+            simulation.evolve();
+            evolved++;
+            period = simulation.getPeriod();
+            if (period > 0) {
+                // nothing new will happen; skip the rest unless asked to stop
+                cycleAt = simulation.getGenerationCount();
+                if (!stopOnCycle) {
+                    simulation.advance(generations - evolved);
+                }
+                break;
+            }
+        }
+        long nanos = Math.max(1, System.nanoTime() - start);
+        simulation.setParallelism(1);
+
+        SimulationMetrics.Snapshot taken = metrics.snapshot();
+        double seconds = nanos / 1e9;
+        long cells = (long) simulation.getRows() * simulation.getCols();
+        double generationsPerSecond = evolved / seconds;
+        if (output != null) {
+            simulation.saveSnapshot(output, true);
+        }
+
+        if (json) {
+            System.out.println(String.format(Locale.ROOT, "{\"input\": \"%s\", \"backend\": \"%s\", "
+                    + "\"boundary\": \"%s\", \"rule\": \"%s\", \"rows\": %d, \"cols\": %d, \"threads\": %d, \"vectorized\": %b, \"startGeneration\": %d, "
+                    + "\"generations\": %d, \"evolvedGenerations\": %d, \"endGeneration\": %d, \"period\": %d, "
+                    + "\"cycleAt\": %d, \"seconds\": %.6f, \"generationsPerSecond\": %.3f, "
+                    + "\"cellsPerSecond\": %.1f, \"peakHeapBytes\": %d, \"alive\": %d, "
+                    + "\"averageAge\": %.3f, \"maxAge\": %d, \"evolveNanosP50\": %d, \"evolveNanosP99\": %d, "
+                    + "\"evolveNanosMax\": %d, \"births\": %d, \"deaths\": %d}",
+                    escape(input.getPath()), getBackendName(), boundary, simulation.getRule(), simulation.getRows(), simulation.getCols(),
+                    threads, vectorized, startGeneration, generations, evolved, simulation.getGenerationCount(), period,
+                    cycleAt, seconds, generationsPerSecond,
+                    generationsPerSecond * cells, getPeakHeap(), simulation.getPopulation(),
+                    simulation.getAverageAge(), simulation.getMaxAge(), taken.getEvolveNanosP50(),
+                    taken.getEvolveNanosP99(), taken.getEvolveNanosMax(), taken.getTotalBirths(), taken.getTotalDeaths()));
+        } else {
+            System.out.println(String.format(Locale.ROOT, "%s: %dx%d %s, %s, %s, %d thread(s)%s",
+                    input.getPath(), simulation.getRows(), simulation.getCols(), getBackendName(), boundary,
+                    simulation.getRule(), threads,
+                    vectorized ? ", vector kernel" : ""));
+            System.out.println(String.format(Locale.ROOT, "%d generations in %.3f s", evolved, seconds));
+            if (period > 0) {
+                System.out.println(String.format(Locale.ROOT, "period %d cycle from generation %d, %s at generation %d",
+                        period, cycleAt, stopOnCycle ? "stopped" : "skipped", simulation.getGenerationCount()));
+            }
+            System.out.println(String.format(Locale.ROOT, "%.1f generations/s, %.3g cells/s",
+                    generationsPerSecond, generationsPerSecond * cells));
+            System.out.println(String.format(Locale.ROOT, "evolve p50 %.1f us, p99 %.1f us, max %.1f us",
+                    taken.getEvolveNanosP50() / 1e3, taken.getEvolveNanosP99() / 1e3, taken.getEvolveNanosMax() / 1e3));
+            System.out.println(String.format(Locale.ROOT, "%d births, %d deaths",
+                    taken.getTotalBirths(), taken.getTotalDeaths()));
+            System.out.println(String.format(Locale.ROOT, "peak heap %.1f MB",
+                    getPeakHeap() / (1024.0 * 1024.0)));
+            System.out.println(String.format(Locale.ROOT, "alive %d, average age %.2f, max age %d",
+                    simulation.getPopulation(), simulation.getAverageAge(), simulation.getMaxAge()));
+        }
+    }
+
+    /**
+     * Helper method: the name of the storage the run used, for the report.
+     *
+     * @return the backend name, or OFF_HEAP for a mapped grid.
+     */
+    private String getBackendName() {
+        return map != null ? "OFF_HEAP" : backend.toString();
+    }
+
+    /**
+     * Helper method: starts peak heap tracking from the current usage.
+     */
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Helper method: the sum of the peak usage of every heap pool since the
+     * last reset. The pools peak at different times, so this is an upper bound.
+     *
+     * @return the peak heap in bytes.
+     */
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Helper method: escapes a string for a JSON string literal.
+     *
+     * @param text the string.
+     * @return the escaped string, without quotes.
+     */
+    private static String escape(String text) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                out.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                out.append(String.format("\\u%04x", (int) ch));
+            } else {
+                out.append(ch);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,997 @@
+import java.awt.Color;
+import java.awt.Point;
+import java.lang.ref.Cleaner;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BitGridBackend: packs the grid one bit per cell into 64-bit words and
+ * evolves a whole word (64 cells) at a time with bitwise neighbor adders.
+ *
+ * Each row is stored as {@code stride} words with column c at bit c + 1, and
+ * there is one extra row above and below the grid. That border (the halo)
+ * lets every interior row read its neighbors without bounds checks. It is
+ * dead on a bounded grid; on a torus or Klein bottle the cells across each
+ * edge are copied into it once per generation, before evolving.
+ *
+ * Evolving writes into a second preallocated buffer and swaps the two, and
+ * ages are kept as birth generations so survivors need no update. Those are
+ * stored as shorts relative to an epoch that moves forward every
+ * REBASE_INTERVAL generations; cells too old to fit are pinned to the
+ * oldest stamp, so ages saturate at CellPlane.MAX_AGE. With a byte palette
+ * index per cell for colors, the grid costs a little over 3 bytes per cell.
+ * Once the grid exists, evolve() allocates nothing.
+ *
+ * The grid is also divided into tiles of TILE_ROWS rows by one word. A tile
+ * is only evolved when it or one of its eight neighbor tiles changed in the
+ * previous generation (or was edited). Every other tile is left alone: its
+ * cells are the same in both buffers, so evolve cost follows activity
+ * rather than area.
+ */
+public class BitGridBackend implements GridBackend {
+    /**
+     * The number of rows the grid has.
+     */
+    private final int rows;
+
+    /**
+     * The number of cols the grid has.
+     */
+    private final int cols;
+
+    /**
+     * The number of words per stored row, halo columns included.
+     */
+    private final int stride;
+
+    /**
+     * Cell bits for rows + 2 stored rows; stored row r + 1 holds grid row r.
+     */
+    private long[] cells;
+
+    /**
+     * The buffer the next generation is written into; swapped with cells.
+     */
+    private long[] next;
+
+    /**
+     * Generation each cell was born in, minus epoch, row-major. Only
+     * meaningful while the cell is alive; its age is then
+     * clock - (epoch + born) + 1, capped at CellPlane.MAX_AGE.
+     */
+    private final short[] born;
+
+    /**
+     * The generation the born stamps are relative to.
+     */
+    private int epoch;
+
+    /**
+     * How many generations pass between moves of the epoch. Stamps of new
+     * births stay below this, so they always fit in a short.
+     */
+    private static final int REBASE_INTERVAL = 1 << 14;
+
+    /**
+     * The Palette index of each cell, row-major; reset to the default on birth.
+     */
+    private final byte[] colors;
+
+    /**
+     * The colors the indexes refer to.
+     */
+    private final Palette palette = new Palette();
+
+    /**
+     * The number of generations this backend has evolved since the last clear.
+     */
+    private int clock;
+
+    /**
+     * Running population and age statistics.
+     */
+    private final CellStats stats = new CellStats();
+
+    /**
+     * The Zobrist hash of the live cells, by row * cols + col.
+     */
+    private long hash;
+
+    /**
+     * The number of grid rows in a tile; a tile is one word (64 columns) wide.
+     */
+    public static final int TILE_ROWS = 8;
+
+    /**
+     * The number of tile rows, each stride tiles wide.
+     */
+    private final int tileRowCount;
+
+    /**
+     * Tiles whose cells changed in the last generation or were edited since.
+     */
+    private boolean[] changed;
+
+    /**
+     * Tiles whose cells change in the generation being computed; swapped with changed.
+     */
+    private boolean[] changedNext;
+
+    /**
+     * Tile rows with a tile whose cells changed in the last generation.
+     */
+    private final boolean[] changedTileRows;
+
+    /**
+     * Tiles evolved in the generation being computed.
+     */
+    private final boolean[] active;
+
+    /**
+     * The number of tiles evolved in the last generation.
+     */
+    private int activeTiles;
+
+    /**
+     * The number of cells born in the last generation.
+     */
+    private int lastBirths;
+
+    /**
+     * The number of cells that died in the last generation.
+     */
+    private int lastDeaths;
+
+    /**
+     * Grids with fewer cells than this always evolve serially, since forking
+     * costs more than it saves there.
+     */
+    public static final long PARALLEL_THRESHOLD = 1L << 16;
+
+    /**
+     * Shuts down the pools of backends that were discarded.
+     */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * The pool that evolves row bands, or null to evolve serially.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Shuts the pool down once this backend is unreachable, so its threads
+     * don't outlive the simulation; null while there is no pool.
+     */
+    private Cleaner.Cleanable poolShutdown;
+
+    /**
+     * The tile row bands handed to the pool, reused every generation.
+     */
+    private Band[] bands;
+
+    /**
+     * The task that runs every band in the pool, reused every generation.
+     */
+    private final RecursiveAction root = new RecursiveAction() {
+        @Override
+        protected void compute() {
+            invokeAll(bands);
+        }
+    };
+
+    /**
+     * The vector kernel for long row stretches, or null to use only the
+     * scalar loop. Starts on when the gol.vector system property is true.
+     */
+    private WordKernel kernel = Boolean.getBoolean("gol.vector") ? WordKernel.loadVector() : null;
+
+    /**
+     * Per-word mask of the bits that hold real columns, used to keep the halo dead.
+     */
+    private final long[] interiorMask;
+
+    /**
+     * What lies past the edges.
+     */
+    private final Boundary boundary;
+
+    /**
+     * The rule evolve() applies.
+     */
+    private Rule rule = Rule.CONWAY;
+
+    /**
+     * Main constructor. Cells past the edges are dead.
+     *
+     * @param rows the number of rows in the grid
+     * @param cols the number of columns in the grid
+     */
+    public BitGridBackend(int rows, int cols) {
+        this(rows, cols, Boundary.BOUNDED);
+    }
+
+    /**
+     * Constructor with a choice of boundary.
+     *
+     * @param rows the number of rows in the grid
+     * @param cols the number of columns in the grid
+     * @param boundary what lies past the edges
+     */
+    public BitGridBackend(int rows, int cols, Boundary boundary) {
+        this.rows = rows;
+        this.cols = cols;
+        this.boundary = boundary;
+        this.stride = (cols + 2 + 63) >>> 6;
+        this.cells = new long[(rows + 2) * stride];
+        this.next = new long[cells.length];
+        this.born = new short[rows * cols];
+        this.colors = new byte[rows * cols];
+        this.tileRowCount = (rows + TILE_ROWS - 1) / TILE_ROWS;
+        this.changed = new boolean[tileRowCount * stride];
+        this.changedNext = new boolean[changed.length];
+        this.active = new boolean[changed.length];
+        this.changedTileRows = new boolean[tileRowCount];
+        this.interiorMask = new long[stride];
+        for (int c = 0; c < cols; c++) {
+            interiorMask[(c + 1) >>> 6] |= 1L << (c + 1);
+        }
+    }
+
+    /**
+     * Helper method: index of the word holding row/col.
+     *
+     * @param row the row of the cell (-1 and rows address the halo).
+     * @param col the column of the cell (-1 and cols address the halo).
+     * @return the index into cells.
+     */
+    private int wordIndex(int row, int col) {
+        return (row + 1) * stride + ((col + 1) >>> 6);
+    }
+
+    /**
+     * Helper method: the birth generation of a live cell.
+     *
+     * @param index the row-major index of the cell.
+     * @return the generation it was born in (or pinned to).
+     */
+    private int bornAt(int index) {
+        return epoch + born[index];
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public boolean isAlive(int row, int col) {
+        return (cells[wordIndex(row, col)] & (1L << (col + 1))) != 0;
+    }
+
+    @Override
+    public int getAge(int row, int col) {
+        return isAlive(row, col) ? Math.min(clock - bornAt(row * cols + col) + 1, CellPlane.MAX_AGE) : 0;
+    }
+
+    @Override
+    public void setAlive(int row, int col) {
+        int w = wordIndex(row, col);
+        long bit = 1L << (col + 1);
+        if ((cells[w] & bit) == 0) {
+            cells[w] |= bit;
+            hash ^= Zobrist.key(row * cols + col);
+            born[row * cols + col] = (short) (clock - epoch);
+            colors[row * cols + col] = Palette.DEFAULT;
+            stats.add(clock);
+            changed[(row / TILE_ROWS) * stride + ((col + 1) >>> 6)] = true;
+        }
+    }
+
+    @Override
+    public void setAlive(int row, int col, int age) {
+        int w = wordIndex(row, col);
+        long bit = 1L << (col + 1);
+        int index = row * cols + col;
+        if ((cells[w] & bit) != 0) {
+            stats.remove(bornAt(index));
+        } else {
+            cells[w] |= bit;
+            hash ^= Zobrist.key(index);
+            colors[index] = Palette.DEFAULT;
+            changed[(row / TILE_ROWS) * stride + ((col + 1) >>> 6)] = true;
+        }
+        born[index] = (short) Math.max(clock - age + 1 - epoch, Short.MIN_VALUE);
+        stats.add(bornAt(index));
+    }
+
+    @Override
+    public void setDead(int row, int col) {
+        int w = wordIndex(row, col);
+        long bit = 1L << (col + 1);
+        if ((cells[w] & bit) != 0) {
+            int index = row * cols + col;
+            cells[w] &= ~bit;
+            hash ^= Zobrist.key(index);
+            stats.remove(bornAt(index));
+            changed[(row / TILE_ROWS) * stride + ((col + 1) >>> 6)] = true;
+        }
+    }
+
+    /**
+     * Reads the 64 cells straddling two stored words, undoing the one-bit
+     * halo offset.
+     * O(1)
+     */
+    @Override
+    public long getWord(int row, int word) {
+        int base = (row + 1) * stride;
+        long high = word + 1 < stride ? cells[base + word + 1] << 63 : 0;
+        return (cells[base + word] >>> 1) | high;
+    }
+
+    /**
+     * Sets the 64 cells with two word writes, stamping only the new births.
+     * O(births)
+     */
+    @Override
+    public void setWord(int row, int word, long bits) {
+        int remaining = cols - (word << 6);
+        if (remaining < 64) {
+            bits &= (1L << remaining) - 1;
+        }
+        long births = bits & ~getWord(row, word);
+        if (births == 0) {
+            return;
+        }
+        int base = (row + 1) * stride;
+        cells[base + word] |= births << 1;
+        if (word + 1 < stride) {
+            cells[base + word + 1] |= births >>> 63;
+        }
+        int tileBase = (row / TILE_ROWS) * stride;
+        changed[tileBase + word] = true;
+        if (word + 1 < stride) {
+            changed[tileBase + word + 1] = true;
+        }
+        stats.add(clock, Long.bitCount(births));
+        int first = row * cols + (word << 6);
+        while (births != 0) {
+            int index = first + Long.numberOfTrailingZeros(births);
+            hash ^= Zobrist.key(index);
+            born[index] = (short) (clock - epoch);
+            colors[index] = Palette.DEFAULT;
+            births &= births - 1;
+        }
+    }
+
+    /**
+     * Clears the 64 cells with two word writes, unstamping only the deaths.
+     * O(deaths)
+     */
+    @Override
+    public void clearWord(int row, int word, long bits) {
+        int remaining = cols - (word << 6);
+        if (remaining < 64) {
+            bits &= (1L << remaining) - 1;
+        }
+        long deaths = bits & getWord(row, word);
+        if (deaths == 0) {
+            return;
+        }
+        int base = (row + 1) * stride;
+        cells[base + word] &= ~(deaths << 1);
+        if (word + 1 < stride) {
+            cells[base + word + 1] &= ~(deaths >>> 63);
+        }
+        int tileBase = (row / TILE_ROWS) * stride;
+        changed[tileBase + word] = true;
+        if (word + 1 < stride) {
+            changed[tileBase + word + 1] = true;
+        }
+        int first = row * cols + (word << 6);
+        while (deaths != 0) {
+            int index = first + Long.numberOfTrailingZeros(deaths);
+            hash ^= Zobrist.key(index);
+            stats.remove(bornAt(index));
+            deaths &= deaths - 1;
+        }
+    }
+
+    /**
+     * Counts the live neighbors by reading the eight surrounding bits; the
+     * dead halo makes edge cells need no bounds checks. Between generations
+     * the halo is not kept filled, so wrapping boundaries look across the
+     * edges instead.
+     * O(1)
+     */
+    @Override
+    public int countLiveNeighbors(int row, int col) {
+        if (boundary.wraps()) {
+            return boundary.countLiveNeighbors(this, row, col);
+        }
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if ((dr != 0 || dc != 0) && isAlive(row + dr, col + dc)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Evolves words from (inclusive) to to (exclusive) of one stored row,
+     * handing the middle of long stretches to the vector kernel if there is
+     * one. The first and last words of a row always take the scalar path,
+     * since their outer neighbors lie in other rows.
+     *
+     * @param src the current cell words.
+     * @param dst the words to write the next generation into.
+     * @param row the stored row index, 1 to rows.
+     * @param from the first word of the row to evolve.
+     * @param to one past the last word of the row to evolve.
+     */
+    private void evolveRow(long[] src, long[] dst, int row, int from, int to) {
+        WordKernel vector = kernel;
+        if (vector == null || to - from < 2 * vector.getWidth()) {
+            scalarRow(src, dst, row, from, to);
+            return;
+        }
+        int start = Math.max(from, 1);
+        scalarRow(src, dst, row, from, start);
+        int end = vector.evolveWords(src, dst, (row - 1) * stride, row * stride, (row + 1) * stride,
+                start, Math.min(to, stride - 1), interiorMask, rule);
+        scalarRow(src, dst, row, end, to);
+    }
+
+    /**
+     * Evolves words from (inclusive) to to (exclusive) of one stored row. For
+     * each word the eight neighbor planes are summed with full adders into a
+     * 4-bit count per cell, and the rule is applied to all 64 cells at once.
+     *
+     * @param src the current cell words.
+     * @param dst the words to write the next generation into.
+     * @param row the stored row index, 1 to rows.
+     * @param from the first word of the row to evolve.
+     * @param to one past the last word of the row to evolve.
+     */
+    private void scalarRow(long[] src, long[] dst, int row, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int up = (row - 1) * stride;
+        int mid = row * stride;
+        int down = (row + 1) * stride;
+        long upPrev = from == 0 ? 0 : src[up + from - 1];
+        long midPrev = from == 0 ? 0 : src[mid + from - 1];
+        long downPrev = from == 0 ? 0 : src[down + from - 1];
+        long upCur = src[up + from], midCur = src[mid + from], downCur = src[down + from];
+        Rule rule = this.rule;
+        for (int j = from; j < to; j++) {
+            boolean last = j == stride - 1;
+            long upNext = last ? 0 : src[up + j + 1];
+            long midNext = last ? 0 : src[mid + j + 1];
+            long downNext = last ? 0 : src[down + j + 1];
+
+            // west neighbor of bit i is bit i - 1, east neighbor is bit i + 1
+            long aW = (upCur << 1) | (upPrev >>> 63);
+            long aE = (upCur >>> 1) | (upNext << 63);
+            long mW = (midCur << 1) | (midPrev >>> 63);
+            long mE = (midCur >>> 1) | (midNext << 63);
+            long bW = (downCur << 1) | (downPrev >>> 63);
+            long bE = (downCur >>> 1) | (downNext << 63);
+
+            // per-row 2-bit sums: above and below have three inputs, middle two
+            long t0 = aW ^ upCur ^ aE;
+            long t1 = (aW & upCur) | (aE & (aW ^ upCur));
+            long m0 = mW ^ mE;
+            long m1 = mW & mE;
+            long b0 = bW ^ downCur ^ bE;
+            long b1 = (bW & downCur) | (bE & (bW ^ downCur));
+
+            // add the three 2-bit sums: count = s0 + 2*s1 + 4*s2 + 8*s3
+            long s0 = t0 ^ m0 ^ b0;
+            long c0 = (t0 & m0) | (b0 & (t0 ^ m0));
+            long p = t1 ^ m1;
+            long q = b1 ^ c0;
+            long s1 = p ^ q;
+            long pairA = t1 & m1;
+            long pairB = b1 & c0;
+            long s2 = pairA ^ pairB ^ (p & q);
+            long s3 = pairA & pairB;
+
+            dst[mid + j] = rule.next(midCur, s0, s1, s2, s3) & interiorMask[j];
+
+            upPrev = upCur;
+            midPrev = midCur;
+            downPrev = downCur;
+            upCur = upNext;
+            midCur = midNext;
+            downCur = downNext;
+        }
+    }
+
+    /**
+     * Helper method: copies the cells across each edge into the halo of the
+     * current buffer. The halo columns of every row are set first, so the
+     * halo rows copied after them carry the corner cells too. On a Klein
+     * bottle the halo rows are bit-reversed copies.
+     * O(rows + stride)
+     */
+    private void fillHalo() {
+        int eastWord = (cols + 1) >>> 6;
+        long eastBit = 1L << (cols + 1);
+        for (int r = 1; r <= rows; r++) {
+            int base = r * stride;
+            // west halo (bit 0) takes column cols - 1 (bit cols), east halo takes column 0 (bit 1)
+            cells[base] = (cells[base] & ~1L) | ((cells[base + (cols >>> 6)] >>> cols) & 1L);
+            cells[base + eastWord] = (cells[base + eastWord] & ~eastBit) | (((cells[base] >>> 1) & 1L) << (cols + 1));
+        }
+        if (boundary.mirrorsRows()) {
+            mirrorRow(rows * stride, 0);
+            mirrorRow(stride, (rows + 1) * stride);
+        } else {
+            System.arraycopy(cells, rows * stride, cells, 0, stride);
+            System.arraycopy(cells, stride, cells, (rows + 1) * stride, stride);
+        }
+    }
+
+    /**
+     * Helper method: writes a stored row with its cols + 2 bits (halo columns
+     * included) in reverse order into another stored row of cells.
+     * O(stride)
+     *
+     * @param from the index of the first word of the row to reverse.
+     * @param to the index of the first word of the row to write.
+     */
+    private void mirrorRow(int from, int to) {
+        // reversing all stride * 64 bits puts bit b at stride * 64 - 1 - b; shifting
+        // down by the unused top bits then puts it at cols + 1 - b
+        int shift = (stride << 6) - (cols + 2);
+        for (int i = 0; i < stride; i++) {
+            long low = Long.reverse(cells[from + stride - 1 - i]);
+            long high = i + 1 < stride ? Long.reverse(cells[from + stride - 2 - i]) : 0;
+            cells[to + i] = shift == 0 ? low : (low >>> shift) | (high << (64 - shift));
+        }
+    }
+
+    /**
+     * Helper method: flags the tiles to evolve this generation, the ones with
+     * a changed tile among their eight neighbors or themselves. With a
+     * wrapping boundary the tiles along the edges are always evolved, since
+     * their neighbors across the edge are not adjacent in the tile grid.
+     * O(tiles)
+     *
+     * @return the number of active tiles.
+     */
+    private int markActiveTiles() {
+        int count = 0;
+        boolean wraps = boundary.wraps();
+        // the word holding the last column; any word past it holds only the halo
+        int lastWord = cols >>> 6;
+        for (int tr = 0; tr < tileRowCount; tr++) {
+            int rowFrom = Math.max(tr - 1, 0);
+            int rowTo = Math.min(tr + 1, tileRowCount - 1);
+            boolean edgeRow = wraps && (tr == 0 || tr == tileRowCount - 1);
+            for (int j = 0; j < stride; j++) {
+                int colFrom = Math.max(j - 1, 0);
+                int colTo = Math.min(j + 1, stride - 1);
+                boolean any = edgeRow || (wraps && (j == 0 || j >= lastWord));
+                for (int r = rowFrom; r <= rowTo && !any; r++) {
+                    for (int c = colFrom; c <= colTo; c++) {
+                        if (changed[r * stride + c]) {
+                            any = true;
+                            break;
+                        }
+                    }
+                }
+                active[tr * stride + j] = any;
+                if (any) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Helper method: evolves the active tiles of tile rows from (inclusive) to
+     * to (exclusive) into the spare buffer, stamps their births with the
+     * current clock and flags the tiles that changed. Runs of neighboring
+     * active tiles are evolved together. Touches nothing outside those tile
+     * rows, so disjoint ranges can run at once.
+     *
+     * @param from the first tile row.
+     * @param to one past the last tile row.
+     * @return the xor of the Zobrist keys of the births, for the caller to
+     *         fold into the hash.
+     */
+    private long evolveTileRows(int from, int to) {
+        long birthKeys = 0;
+        for (int tr = from; tr < to; tr++) {
+            int tileBase = tr * stride;
+            int firstRow = tr * TILE_ROWS;
+            int lastRow = Math.min(rows, firstRow + TILE_ROWS);
+            int j = 0;
+            while (j < stride) {
+                if (!active[tileBase + j]) {
+                    j++;
+                    continue;
+                }
+                int runEnd = j + 1;
+                while (runEnd < stride && active[tileBase + runEnd]) {
+                    runEnd++;
+                }
+                for (int r = firstRow; r < lastRow; r++) {
+                    evolveRow(cells, next, r + 1, j, runEnd);
+                    int base = (r + 1) * stride;
+                    for (int w = j; w < runEnd; w++) {
+                        // the mask drops halo bits a wrapping boundary filled in
+                        long before = cells[base + w] & interiorMask[w];
+                        long after = next[base + w];
+                        if (before != after) {
+                            changedNext[tileBase + w] = true;
+                            changedTileRows[tr] = true;
+                            long births = after & ~before;
+                            while (births != 0) {
+                                int index = r * cols + (w << 6) + Long.numberOfTrailingZeros(births) - 1;
+                                birthKeys ^= Zobrist.key(index);
+                                born[index] = (short) (clock - epoch);
+                                colors[index] = Palette.DEFAULT;
+                                births &= births - 1;
+                            }
+                        }
+                    }
+                }
+                j = runEnd;
+            }
+        }
+        return birthKeys;
+    }
+
+    /**
+     * Evolves the active tiles into the spare buffer, stamps the births, then
+     * swaps buffers. The kernel never writes the halo, so on a bounded grid
+     * both buffers keep it dead; a wrapping boundary refills it first. A
+     * skipped tile saw no change nearby last generation, so the spare
+     * buffer already holds its cells. Large grids are split into tile row
+     * bands on the fork/join pool when one is configured.
+     * O(tiles + active tiles * 64 * TILE_ROWS + births), no allocation.
+     */
+    @Override
+    public void evolve() {
+        clock++;
+        if (clock - epoch >= REBASE_INTERVAL) {
+            rebase();
+        }
+        Arrays.fill(changedNext, false);
+        Arrays.fill(changedTileRows, false);
+        activeTiles = markActiveTiles();
+        if (boundary.wraps() && activeTiles > 0) {
+            fillHalo();
+        }
+        if (activeTiles == 0) {
+            // nothing can change
+        } else if (pool == null || (long) rows * cols < PARALLEL_THRESHOLD) {
+            hash ^= evolveTileRows(0, tileRowCount);
+        } else {
+            for (Band band : bands) {
+                band.reinitialize();
+            }
+            root.reinitialize();
+            pool.invoke(root);
+            for (Band band : bands) {
+                hash ^= band.birthKeys;
+            }
+        }
+        if (activeTiles > 0) {
+            updateStats();
+        } else {
+            lastBirths = 0;
+            lastDeaths = 0;
+        }
+        long[] swap = cells;
+        cells = next;
+        next = swap;
+        boolean[] swapChanged = changed;
+        changed = changedNext;
+        changedNext = swapChanged;
+    }
+
+    /**
+     * Helper method: moves the epoch forward by REBASE_INTERVAL, shifting
+     * every live cell's stamp to match. Cells whose stamp would no longer fit
+     * are pinned to the oldest one, and the statistics follow them there.
+     * O(rows * stride + population), once every REBASE_INTERVAL generations.
+     */
+    private void rebase() {
+        epoch += REBASE_INTERVAL;
+        for (int r = 0; r < rows; r++) {
+            for (int w = 0; w < stride; w++) {
+                long bits = cells[(r + 1) * stride + w];
+                while (bits != 0) {
+                    int index = r * cols + (w << 6) + Long.numberOfTrailingZeros(bits) - 1;
+                    int shifted = born[index] - REBASE_INTERVAL;
+                    if (shifted < Short.MIN_VALUE) {
+                        stats.remove(epoch - REBASE_INTERVAL + born[index]);
+                        shifted = Short.MIN_VALUE;
+                        stats.add(epoch + shifted);
+                    }
+                    born[index] = (short) shifted;
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method: records this generation's births and deaths in the
+     * statistics and counts, and the deaths in the hash, visiting only the
+     * tiles that changed. Runs after the tiles are evolved, so it needs no
+     * locking when they ran in parallel.
+     */
+    private void updateStats() {
+        int births = 0;
+        int died = 0;
+        for (int t = 0; t < changedNext.length; t++) {
+            if (!changedNext[t]) {
+                continue;
+            }
+            int w = t % stride;
+            int firstRow = (t / stride) * TILE_ROWS;
+            int lastRow = Math.min(rows, firstRow + TILE_ROWS);
+            for (int r = firstRow; r < lastRow; r++) {
+                long before = cells[(r + 1) * stride + w] & interiorMask[w];
+                long after = next[(r + 1) * stride + w];
+                births += Long.bitCount(after & ~before);
+                long deaths = before & ~after;
+                died += Long.bitCount(deaths);
+                while (deaths != 0) {
+                    int index = r * cols + (w << 6) + Long.numberOfTrailingZeros(deaths) - 1;
+                    hash ^= Zobrist.key(index);
+                    stats.remove(bornAt(index));
+                    deaths &= deaths - 1;
+                }
+            }
+        }
+        stats.add(clock, births);
+        lastBirths = births;
+        lastDeaths = died;
+    }
+
+    /**
+     * Returns the number of tiles evolved in the last generation.
+     *
+     * @return the active tile count.
+     */
+    @Override
+    public int getActiveTiles() {
+        return activeTiles;
+    }
+
+    /**
+     * True if the row's tile row had a tile change.
+     * O(1)
+     */
+    @Override
+    public boolean isRowChanged(int row) {
+        return changedTileRows[row / TILE_ROWS];
+    }
+
+    /**
+     * True if either tile the word straddles changed or was edited.
+     * O(1)
+     */
+    @Override
+    public boolean isWordChanged(int row, int word) {
+        int tileBase = (row / TILE_ROWS) * stride;
+        return changed[tileBase + word] || (word + 1 < stride && changed[tileBase + word + 1]);
+    }
+
+    @Override
+    public int getLastBirths() {
+        return lastBirths;
+    }
+
+    @Override
+    public int getLastDeaths() {
+        return lastDeaths;
+    }
+
+    /**
+     * Sets how many threads evolve() may use. 1 or less evolves serially and
+     * shuts the old pool down; a pool still running when the backend is
+     * discarded is shut down by the cleaner.
+     *
+     * @param parallelism the number of worker threads.
+     */
+    @Override
+    public void setParallelism(int parallelism) {
+        if (pool != null) {
+            poolShutdown.clean();
+            poolShutdown = null;
+            pool = null;
+            bands = null;
+        }
+        if (parallelism <= 1) {
+            return;
+        }
+        pool = new ForkJoinPool(parallelism);
+        // the action holds the pool only, so the backend can still be collected
+        poolShutdown = CLEANER.register(this, pool::shutdown);
+        // a few bands per thread so uneven activity still balances
+        int count = Math.min(tileRowCount, parallelism * 4);
+        bands = new Band[count];
+        for (int i = 0; i < count; i++) {
+            bands[i] = new Band(tileRowCount * i / count, tileRowCount * (i + 1) / count);
+        }
+    }
+
+    /**
+     * Switches the vector kernel on or off. Stays scalar if the Vector API
+     * kernel is not available.
+     *
+     * @param vectorized true to use the vector kernel.
+     * @return true if the vector kernel is now in use.
+     */
+    @Override
+    public boolean setVectorized(boolean vectorized) {
+        kernel = vectorized ? WordKernel.loadVector() : null;
+        return kernel != null;
+    }
+
+    /**
+     * Band: a fork/join task that evolves one fixed range of tile rows.
+     */
+    private class Band extends RecursiveAction {
+        /**
+         * Serialization version; bands are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The first tile row of the band.
+         */
+        private final int from;
+
+        /**
+         * One past the last tile row of the band.
+         */
+        private final int to;
+
+        /**
+         * The xor of the Zobrist keys of the band's births in the last run.
+         */
+        private long birthKeys;
+
+        /**
+         * Constructor for Band.
+         *
+         * @param from the first tile row.
+         * @param to one past the last tile row.
+         */
+        Band(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            birthKeys = evolveTileRows(from, to);
+        }
+    }
+
+    /**
+     * Sets the rule. A tile that settled under the old rule need not be
+     * settled under the new one (and under a B0 rule even empty space does
+     * not stay dead), so every tile is flagged as changed to get each one
+     * evolved at least once.
+     *
+     * @param rule the rule.
+     */
+    @Override
+    public void setRule(Rule rule) {
+        this.rule = rule;
+        Arrays.fill(changed, true);
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public long getStateHash() {
+        return hash;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(cells, 0L);
+        Arrays.fill(next, 0L);
+        // a cleared grid is only settled if empty space stays empty
+        Arrays.fill(changed, rule.bornFromNothing());
+        Arrays.fill(changedTileRows, true);
+        stats.clear();
+        hash = 0;
+        activeTiles = 0;
+        clock = 0;
+        epoch = 0;
+    }
+
+    /**
+     * Returns the palette color of a live cell and white otherwise.
+     */
+    @Override
+    public Color getColor(int row, int col) {
+        return isAlive(row, col) ? palette.colorAt(getColorIndex(row, col), true) : Color.WHITE;
+    }
+
+    @Override
+    public void setColor(int row, int col, Color color) {
+        if (isAlive(row, col)) {
+            colors[row * cols + col] = (byte) palette.indexOf(color);
+        }
+    }
+
+    @Override
+    public int getColorIndex(int row, int col) {
+        return isAlive(row, col) ? colors[row * cols + col] & 0xff : Palette.DEFAULT;
+    }
+
+    @Override
+    public Palette getPalette() {
+        return palette;
+    }
+
+    @Override
+    public HashMap<Point, Cell> toMap() {
+        HashMap<Point, Cell> map = new HashMap<>();
+        // one plane for the whole copy; its Cells are views of it
+        CellPlane copy = new CellPlane(rows * cols, palette.copy());
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int index = i * cols + j;
+                if (isAlive(i, j)) {
+                    copy.setAlive(index);
+                    copy.setAge(index, getAge(i, j));
+                    copy.setColorIndex(index, getColorIndex(i, j));
+                }
+                map.put(new Point(i, j), new Cell(copy, index));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * O(1), kept up to date on every birth and death.
+     */
+    @Override
+    public long getPopulation() {
+        return stats.getAlive();
+    }
+
+    /**
+     * O(1), kept up to date on every birth and death.
+     */
+    @Override
+    public double getAverageAge() {
+        return stats.getAverageAge(clock, CellPlane.MAX_AGE);
+    }
+
+    /**
+     * O(1), kept up to date on every birth and death.
+     */
+    @Override
+    public int getMaxAge() {
+        return Math.min(stats.getMaxAge(clock), CellPlane.MAX_AGE);
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Boundary: what lies past the edges of a bounded grid.
+ *
+ * Backends implement the wrapping modes with halo rows and columns: before
+ * each generation the cells that lie across an edge are copied into a
+ * border around the grid, so the evolve loop reads every neighbor the same
+ * way and never checks bounds. The methods here are for single lookups
+ * such as countLiveNeighbors.
+ */
+public enum Boundary {
+    /**
+     * Cells past the edges are dead.
+     */
+    BOUNDED,
+    /**
+     * The top edge meets the bottom and the left edge meets the right, so
+     * the grid is a closed surface with no edges at all.
+     */
+    TORUS,
+    /**
+     * The left edge meets the right as on a torus, but the top edge meets
+     * the bottom mirrored: leaving the top at column c comes back in at the
+     * bottom at column cols - 1 - c.
+     */
+    KLEIN_BOTTLE;
+
+    /**
+     * Returns whether cells across an edge are live grid cells.
+     *
+     * @return true for TORUS and KLEIN_BOTTLE.
+     */
+    public boolean wraps() {
+        return this != BOUNDED;
+    }
+
+    /**
+     * Returns whether rows crossing the top or bottom edge are mirrored.
+     *
+     * @return true for KLEIN_BOTTLE.
+     */
+    public boolean mirrorsRows() {
+        return this == KLEIN_BOTTLE;
+    }
+
+    /**
+     * Counts the live neighbors of the cell at row/col, following this
+     * boundary across the edges.
+     * O(1)
+     *
+     * @param grid the grid holding the cell.
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the number of live neighbors.
+     */
+    public int countLiveNeighbors(GridBackend grid, int row, int col) {
+        int rows = grid.getRows();
+        int cols = grid.getCols();
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if (dr == 0 && dc == 0) {
+                    continue; // skip self
+                }
+                int r = row + dr;
+                int c = col + dc;
+                if (r < 0 || r >= rows) {
+                    if (!wraps()) {
+                        continue;
+                    }
+                    r = Math.floorMod(r, rows);
+                    if (mirrorsRows()) {
+                        c = cols - 1 - c;
+                    }
+                }
+                if (c < 0 || c >= cols) {
+                    if (!wraps()) {
+                        continue;
+                    }
+                    c = Math.floorMod(c, cols);
+                }
+                if (grid.isAlive(r, c)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
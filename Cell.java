@@ -1,5 +1,9 @@
 /**
  * Cell: represents a single cell in the Game of Life.
+ * A Cell is a view of one entry in a CellPlane, which stores the state of
+ * many cells as arrays; a Cell made with the public constructor gets a
+ * one-cell plane and a palette of its own, so its color is exactly the one
+ * it was given.
  *
  * @author Tyler Youk
  */
@@ -9,25 +13,24 @@ public class Cell {
 
     // Private instance variables:
     /**
-     * Indicates whether the cell is alive or dead.
+     * The plane holding this cell's alive bit, age and color index.
      */
-    private boolean alive;
+    private final CellPlane plane;
+
     /**
-     * The age of the cell.
+     * The index of this cell in the plane.
      */
-    private int age;
-
-    // New color field to store the cell's display color.
-    private Color color;
+    private final int index;
 
     /**
      * The default color for alive cells. This field can be updated at runtime.
+     * Cells still using the default show the current value when drawn.
      */
     public static Color defaultAliveColor = new Color(128, 0, 128);
 
     /**
      * Constructor for Cell.
-     * Initializes the cell state.
+     * Initializes the cell state in a plane of its own.
      * [EXTRA CREDIT] Added color field to store the cell's display color.
      * If alive is true, age is 1 and color purple.
      * Otherwise, age is 0 and color white.
@@ -35,16 +38,24 @@ public class Cell {
      * @param alive a boolean value on whether the cell should be alive upon creation.
      */
     public Cell(boolean alive) {
-        this.alive = alive;
+        this(new CellPlane(1, new Palette()), 0);
         if (alive) {
-            this.age = 1;
-            this.color = Cell.defaultAliveColor; // Use the configurable default alive color.
-        } else {
-            this.age = 0;
-            this.color = Color.WHITE; // Default color for dead cell.
+            plane.setAlive(0);
         }
     }
 
+    /**
+     * Constructor for a view of one cell of a plane; changes through the
+     * view go straight to the plane.
+     *
+     * @param plane the plane holding the cell.
+     * @param index the index of the cell in the plane.
+     */
+    Cell(CellPlane plane, int index) {
+        this.plane = plane;
+        this.index = index;
+    }
+
     /**
      * Returns the current color of the cell.
      * [EXTRA CREDIT]
@@ -52,7 +63,7 @@ public class Cell {
      * @return the color of the cell.
      */
     public Color getColor() {
-        return color;
+        return plane.getColor(index);
     }
 
     /**
@@ -62,7 +73,7 @@ public class Cell {
      * @param color the new color for the cell.
      */
     public void setColor(Color color) {
-        this.color = color;
+        plane.setColor(index, color);
     }
 
     /**
@@ -72,21 +83,17 @@ public class Cell {
      * @return true if the cell is alive, false otherwise.
      */
     public boolean isAlive() {
-        return alive;
+        return plane.isAlive(index);
     }
 
     /**
      * Sets the cell state to alive.
      * Resets the age to 1 if the cell was not previously alive.
-     * Also sets the cell color to purple.
+     * Also sets the cell color to the default.
      * O(1)
      */
     public void setAlive() {
-        if (!alive) {
-            alive = true;
-            age = 1;
-            this.color = Cell.defaultAliveColor; // Use the current default alive color.
-        }
+        plane.setAlive(index);
     }
 
     /**
@@ -96,11 +103,11 @@ public class Cell {
      * @return the age of the cell.
      */
     public int getAge() {
-        return age;
+        return plane.getAge(index);
     }
 
     /**
-     * Sets age of the cell.
+     * Sets age of the cell, saturating at CellPlane.MAX_AGE.
      * If the provided age is negative, no change is made.
      * O(1)
      *  
@@ -108,7 +115,7 @@ public class Cell {
      */
     public void setAge(int age) {
         if (age >= 0) {
-            this.age = age;
+            plane.setAge(index, age);
         }
     }
 
@@ -118,8 +125,6 @@ public class Cell {
      * O(1)
      */
     public void reset() {
-        alive = false;
-        age = 0;
-        this.color = Color.WHITE; // reset color to white on dead.
+        plane.kill(index);
     }
 }
@@ -0,0 +1,302 @@
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * CellPlane: cell state stored as parallel arrays instead of one object per
+ * cell: a bit per cell for alive, a short per cell for age and a byte per
+ * cell for a Palette index. That is a little over 3 bytes per cell.
+ *
+ * Ages saturate at MAX_AGE. Cells are addressed by index; the owner decides
+ * the layout (row * cols + col for a grid). The plane also keeps the Zobrist
+ * hash of its live cells and their population and age statistics, updated
+ * on every birth, death and age change. Every change goes through the
+ * plane, Cell views included, so the statistics stay right whoever makes it.
+ */
+public class CellPlane {
+    /**
+     * The largest age a cell can have; older cells stay at this age.
+     */
+    public static final int MAX_AGE = Short.MAX_VALUE;
+
+    /**
+     * The age table of a plane with no live cell yet.
+     */
+    private static final int[] NO_AGES = new int[0];
+
+    /**
+     * The number of cells.
+     */
+    private final int size;
+
+    /**
+     * Alive bits; cell i is bit i % 64 of word i / 64.
+     */
+    private final long[] alive;
+
+    /**
+     * The age of each cell, 0 while dead.
+     */
+    private final short[] ages;
+
+    /**
+     * The Palette index of each cell.
+     */
+    private final byte[] colors;
+
+    /**
+     * The colors the indexes refer to.
+     */
+    private final Palette palette;
+
+    /**
+     * The xor of Zobrist.key(i) over every live cell i.
+     */
+    private long hash;
+
+    /**
+     * The number of live cells.
+     */
+    private int aliveCount;
+
+    /**
+     * The sum of the ages of the live cells.
+     */
+    private long ageSum;
+
+    /**
+     * Live cells per age, grown as older cells appear; empty until a cell lives.
+     */
+    private int[] ageCounts = NO_AGES;
+
+    /**
+     * The age of the oldest live cell, 0 if none.
+     */
+    private int maxAge;
+
+    /**
+     * Main constructor. Every cell starts dead.
+     *
+     * @param size the number of cells.
+     * @param palette the colors the cells' indexes refer to.
+     */
+    public CellPlane(int size, Palette palette) {
+        this.size = size;
+        this.alive = new long[(size + 63) >>> 6];
+        this.ages = new short[size];
+        this.colors = new byte[size];
+        this.palette = palette;
+    }
+
+    /**
+     * Returns the number of cells.
+     *
+     * @return the cell count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether a cell is alive.
+     * O(1)
+     *
+     * @param i the index of the cell.
+     * @return true if it is alive.
+     */
+    public boolean isAlive(int i) {
+        return (alive[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Brings a dead cell to life with age 1 and the default color; a live
+     * cell is left alone.
+     * O(1)
+     *
+     * @param i the index of the cell.
+     */
+    public void setAlive(int i) {
+        if (!isAlive(i)) {
+            alive[i >>> 6] |= 1L << i;
+            hash ^= Zobrist.key(i);
+            ages[i] = 1;
+            colors[i] = Palette.DEFAULT;
+            aliveCount++;
+            count(1, 1);
+        }
+    }
+
+    /**
+     * Marks a cell dead with age 0 and the default color.
+     * O(1)
+     *
+     * @param i the index of the cell.
+     */
+    public void kill(int i) {
+        if (isAlive(i)) {
+            hash ^= Zobrist.key(i);
+            aliveCount--;
+            count(ages[i], -1);
+        }
+        alive[i >>> 6] &= ~(1L << i);
+        ages[i] = 0;
+        colors[i] = Palette.DEFAULT;
+    }
+
+    /**
+     * Returns the age of a cell.
+     * O(1)
+     *
+     * @param i the index of the cell.
+     * @return the age, 0 to MAX_AGE.
+     */
+    public int getAge(int i) {
+        return ages[i];
+    }
+
+    /**
+     * Sets the age of a cell, saturating at MAX_AGE.
+     * O(1)
+     *
+     * @param i the index of the cell.
+     * @param age the new age, 0 or more.
+     */
+    public void setAge(int i, int age) {
+        short saturated = (short) Math.min(age, MAX_AGE);
+        if (isAlive(i) && saturated != ages[i]) {
+            count(ages[i], -1);
+            count(saturated, 1);
+        }
+        ages[i] = saturated;
+    }
+
+    /**
+     * Helper method: adds to the live cells counted at an age, keeping the
+     * age sum and the maximum in step. When the oldest cells go, the
+     * maximum moves down to the next age that has cells.
+     * O(1) amortized
+     *
+     * @param age the age, 0 to MAX_AGE.
+     * @param delta +1 for a cell arriving at the age, -1 for one leaving it.
+     */
+    private void count(int age, int delta) {
+        if (age >= ageCounts.length) {
+            ageCounts = Arrays.copyOf(ageCounts, Math.min(Math.max(age + 1, ageCounts.length * 2), MAX_AGE + 1));
+        }
+        ageCounts[age] += delta;
+        ageSum += (long) age * delta;
+        if (delta > 0 && age > maxAge) {
+            maxAge = age;
+        }
+        while (maxAge > 0 && ageCounts[maxAge] == 0) {
+            maxAge--;
+        }
+    }
+
+    /**
+     * Returns the number of live cells.
+     * O(1)
+     *
+     * @return the live cell count.
+     */
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    /**
+     * Returns the average age of the live cells.
+     * O(1)
+     *
+     * @return the average age, 0 if no cell is alive.
+     */
+    public double getAverageAge() {
+        return aliveCount == 0 ? 0.0 : (double) ageSum / aliveCount;
+    }
+
+    /**
+     * Returns the age of the oldest live cell.
+     * O(1)
+     *
+     * @return the age, 0 if no cell is alive.
+     */
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Returns the Palette index of a cell.
+     * O(1)
+     *
+     * @param i the index of the cell.
+     * @return the color index, 0 to 255.
+     */
+    public int getColorIndex(int i) {
+        return colors[i] & 0xff;
+    }
+
+    /**
+     * Sets the Palette index of a cell.
+     * O(1)
+     *
+     * @param i the index of the cell.
+     * @param index the color index, 0 to 255.
+     */
+    public void setColorIndex(int i, int index) {
+        colors[i] = (byte) index;
+    }
+
+    /**
+     * Returns the color of a cell, resolving the default now.
+     * O(1)
+     *
+     * @param i the index of the cell.
+     * @return the color.
+     */
+    public Color getColor(int i) {
+        return palette.colorAt(getColorIndex(i), isAlive(i));
+    }
+
+    /**
+     * Sets the color of a cell.
+     * O(palette size)
+     *
+     * @param i the index of the cell.
+     * @param color the new color.
+     */
+    public void setColor(int i, Color color) {
+        colors[i] = (byte) palette.indexOf(color);
+    }
+
+    /**
+     * Returns the colors the indexes refer to.
+     *
+     * @return the palette.
+     */
+    public Palette getPalette() {
+        return palette;
+    }
+
+    /**
+     * Returns the Zobrist hash of the live cells.
+     * O(1)
+     *
+     * @return the hash, 0 if every cell is dead.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Marks every cell dead.
+     * O(size)
+     */
+    public void clear() {
+        hash = 0;
+        aliveCount = 0;
+        ageSum = 0;
+        Arrays.fill(ageCounts, 0);
+        maxAge = 0;
+        Arrays.fill(alive, 0L);
+        Arrays.fill(ages, (short) 0);
+        Arrays.fill(colors, (byte) Palette.DEFAULT);
+    }
+}
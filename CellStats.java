@@ -0,0 +1,213 @@
+import java.util.Arrays;
+
+/**
+ * CellStats: running population and age statistics for a backend, updated
+ * on every birth and death so the getters are O(1).
+ *
+ * Ages are tracked through birth generations: a cell born in generation b
+ * has age clock - b + 1. The histogram counts live cells per birth
+ * generation. The oldest live cell is the first nonzero bucket, so max age
+ * stays correct when the oldest cell dies.
+ */
+public class CellStats {
+    /**
+     * The number of live cells.
+     */
+    private long alive;
+
+    /**
+     * The sum of the birth generations of all live cells.
+     */
+    private long bornSum;
+
+    /**
+     * Live cells per birth generation; born b is at index b & (length - 1).
+     */
+    private long[] counts = new long[64];
+
+    /**
+     * The oldest birth generation that may still have live cells.
+     */
+    private int oldest;
+
+    /**
+     * The newest birth generation recorded since the stats were last empty.
+     */
+    private int newest;
+
+    /**
+     * The newest birth generation whose cells are counted as saturated by
+     * getAverageAge(clock, maxAge); it only moves forward.
+     */
+    private int saturatedUpTo = Integer.MIN_VALUE;
+
+    /**
+     * The number of live cells born at or before saturatedUpTo.
+     */
+    private long saturatedAlive;
+
+    /**
+     * The sum of the birth generations of those cells.
+     */
+    private long saturatedBornSum;
+
+    /**
+     * Main constructor. Starts with no live cells.
+     */
+    public CellStats() {
+    }
+
+    /**
+     * Records a cell born in the given generation.
+     * O(1) amortized
+     *
+     * @param born the birth generation of the cell.
+     */
+    public void add(int born) {
+        add(born, 1);
+    }
+
+    /**
+     * Records several cells born in the same generation.
+     * O(1) amortized
+     *
+     * @param born the birth generation of the cells.
+     * @param n the number of cells.
+     */
+    public void add(int born, long n) {
+        if (n == 0) {
+            return;
+        }
+        if (alive == 0) {
+            oldest = born;
+            newest = born;
+        }
+        // cells restored with an age can be born before the current oldest
+        int low = Math.min(oldest, born);
+        int high = Math.max(newest, born);
+        while (high - low >= counts.length) {
+            grow();
+        }
+        oldest = low;
+        newest = high;
+        counts[born & (counts.length - 1)] += n;
+        alive += n;
+        bornSum += (long) born * n;
+        if (born <= saturatedUpTo) {
+            saturatedAlive += n;
+            saturatedBornSum += (long) born * n;
+        }
+    }
+
+    /**
+     * Records the death of a cell born in the given generation.
+     * O(1) amortized
+     *
+     * @param born the birth generation of the cell.
+     */
+    public void remove(int born) {
+        counts[born & (counts.length - 1)]--;
+        alive--;
+        bornSum -= born;
+        if (born <= saturatedUpTo) {
+            saturatedAlive--;
+            saturatedBornSum -= born;
+        }
+        if (alive == 0) {
+            oldest = 0;
+            newest = 0;
+            return;
+        }
+        while (counts[oldest & (counts.length - 1)] == 0) {
+            oldest++;
+        }
+    }
+
+    /**
+     * Helper method: doubles the histogram, keeping each bucket's birth generation.
+     */
+    private void grow() {
+        long[] grown = new long[counts.length << 1];
+        for (int b = oldest; b < oldest + counts.length; b++) {
+            grown[b & (grown.length - 1)] = counts[b & (counts.length - 1)];
+        }
+        counts = grown;
+    }
+
+    /**
+     * Forgets every cell.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        alive = 0;
+        bornSum = 0;
+        oldest = 0;
+        newest = 0;
+        saturatedUpTo = Integer.MIN_VALUE;
+        saturatedAlive = 0;
+        saturatedBornSum = 0;
+    }
+
+    /**
+     * Returns the number of live cells.
+     * O(1)
+     *
+     * @return the live cell count.
+     */
+    public long getAlive() {
+        return alive;
+    }
+
+    /**
+     * Returns the average age of the live cells.
+     * O(1)
+     *
+     * @param clock the current generation.
+     * @return the average age, or 0.0 if there are no live cells.
+     */
+    public double getAverageAge(int clock) {
+        return alive == 0 ? 0.0 : (double) (alive * (clock + 1L) - bornSum) / alive;
+    }
+
+    /**
+     * Returns the average age of the live cells, with every age capped at
+     * maxAge. The cells old enough to be capped are tallied as the clock
+     * passes them, so this is O(1) amortized as long as the clock only
+     * moves forward between clears.
+     *
+     * @param clock the current generation.
+     * @param maxAge the largest age a cell can have.
+     * @return the average capped age, or 0.0 if there are no live cells.
+     */
+    public double getAverageAge(int clock, int maxAge) {
+        int cutoff = clock - maxAge + 1;
+        if (cutoff > saturatedUpTo) {
+            if (alive > 0) {
+                int from = saturatedUpTo == Integer.MIN_VALUE ? oldest : Math.max(saturatedUpTo + 1, oldest);
+                int to = Math.min(cutoff, newest);
+                for (int b = from; b <= to; b++) {
+                    long n = counts[b & (counts.length - 1)];
+                    saturatedAlive += n;
+                    saturatedBornSum += (long) b * n;
+                }
+            }
+            saturatedUpTo = cutoff;
+        }
+        if (alive == 0) {
+            return 0.0;
+        }
+        long young = alive - saturatedAlive;
+        return (double) (young * (clock + 1L) - (bornSum - saturatedBornSum) + saturatedAlive * maxAge) / alive;
+    }
+
+    /**
+     * Returns the age of the oldest live cell.
+     * O(1)
+     *
+     * @param clock the current generation.
+     * @return the maximum age, or 0 if there are no live cells.
+     */
+    public int getMaxAge(int clock) {
+        return alive == 0 ? 0 : clock - oldest + 1;
+    }
+}
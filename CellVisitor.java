@@ -0,0 +1,13 @@
+/**
+ * CellVisitor: receives the position of each live cell during a walk over
+ * a grid or universe.
+ */
+public interface CellVisitor {
+    /**
+     * Called once per live cell.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    void visit(long row, long col);
+}
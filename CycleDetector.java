@@ -0,0 +1,131 @@
+/**
+ * CycleDetector: spots a board that has settled into a still life or an
+ * oscillator, from the Zobrist hash of the live set after each generation.
+ *
+ * The last maxPeriod hashes are kept in a ring. When a new hash equals the
+ * one p generations back, p becomes the candidate period (the smallest such
+ * p is taken), and it is confirmed once a whole period of generations has
+ * matched the period before it. Evolution is deterministic, so from then on
+ * the board repeats with that period. The caller resets the detector
+ * whenever the board is changed by anything other than evolving.
+ */
+public class CycleDetector {
+    /**
+     * The longest period detected by default.
+     */
+    public static final int DEFAULT_MAX_PERIOD = 64;
+
+    /**
+     * The most recent hashes, as a ring.
+     */
+    private final long[] history;
+
+    /**
+     * The slot of the most recent hash.
+     */
+    private int head = -1;
+
+    /**
+     * The number of hashes in the ring.
+     */
+    private int count;
+
+    /**
+     * The period being checked, 0 if none.
+     */
+    private int candidate;
+
+    /**
+     * How many generations in a row have matched the candidate period.
+     */
+    private int matched;
+
+    /**
+     * Main constructor.
+     *
+     * @param maxPeriod the longest period to detect.
+     */
+    public CycleDetector(int maxPeriod) {
+        history = new long[maxPeriod];
+    }
+
+    /**
+     * Forgets every hash.
+     */
+    public void reset() {
+        head = -1;
+        count = 0;
+        candidate = 0;
+        matched = 0;
+    }
+
+    /**
+     * Records the hash of the board before a generation, starting over if
+     * it is not the last hash recorded (the board was edited since).
+     * O(1)
+     *
+     * @param hash the board's hash.
+     */
+    public void sync(long hash) {
+        if (count == 0 || history[head] != hash) {
+            reset();
+            record(hash);
+        }
+    }
+
+    /**
+     * Records the hash of the board after a generation and checks it against
+     * the candidate period, or looks for a new candidate.
+     * O(1) while a candidate holds, O(maxPeriod) otherwise
+     *
+     * @param hash the board's hash.
+     */
+    public void record(long hash) {
+        if (candidate > 0 && back(candidate) == hash) {
+            matched++;
+        } else {
+            candidate = 0;
+            matched = 0;
+            for (int p = 1; p <= count; p++) {
+                if (back(p) == hash) {
+                    candidate = p;
+                    matched = 1;
+                    break;
+                }
+            }
+        }
+        head = head + 1 == history.length ? 0 : head + 1;
+        history[head] = hash;
+        count = Math.min(count + 1, history.length);
+    }
+
+    /**
+     * Helper method: the hash recorded p generations before the one being recorded.
+     *
+     * @param p how far back, 1 to count.
+     * @return the hash.
+     */
+    private long back(int p) {
+        int slot = head - p + 1;
+        return history[slot < 0 ? slot + history.length : slot];
+    }
+
+    /**
+     * Returns the confirmed period.
+     *
+     * @return the period, 1 for a still life, or 0 if no cycle is confirmed.
+     */
+    public int getPeriod() {
+        return candidate > 0 && matched >= candidate ? candidate : 0;
+    }
+
+    /**
+     * Returns the most recently recorded hash.
+     *
+     * @param fallback the value to return when nothing is recorded.
+     * @return the hash, or fallback.
+     */
+    public long latest(long fallback) {
+        return count == 0 ? fallback : history[head];
+    }
+}
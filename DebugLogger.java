@@ -1,34 +1,507 @@
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 /**
  * DebugLogger provides file-based logging for debug messages.
+ *
+ * Logging never writes on the caller's thread. A message goes into a
+ * bounded lock-free ring, and a background thread drains the ring, formats
+ * the messages and appends them to debug_output.txt in batched FileChannel
+ * writes. A message below the current level costs one comparison: a
+ * Supplier is not called, and a format string is not formatted. Messages
+ * are formatted on the background thread, so suppliers and arguments should
+ * capture values rather than read state that may change afterwards.
+ *
+ * When the ring is full, the message is dropped and counted (DROP, the
+ * default) so callers such as evolve() never stall, or the caller waits for
+ * room (BLOCK). The level and policy start from the gol.log.level and
+ * gol.log.overflow system properties.
  */
 public class DebugLogger {
     /**
-     * The PrintStream used for writing debug messages to a file.
+     * Level: how important a message is.
      */
-    private static PrintStream debugOut;
-    
+    public enum Level {
+        /**
+         * Detail for following what the program does.
+         */
+        DEBUG,
+
+        /**
+         * Normal events worth recording.
+         */
+        INFO,
+
+        /**
+         * Something went wrong but the program carries on.
+         */
+        WARN,
+
+        /**
+         * Not a message level: as the current level, nothing is logged.
+         */
+        OFF
+    }
+
+    /**
+     * Overflow: what logging does when the ring is full.
+     */
+    public enum Overflow {
+        /**
+         * Drop the message and count it.
+         */
+        DROP,
+
+        /**
+         * Wait until the background thread makes room.
+         */
+        BLOCK
+    }
+
+    /**
+     * The number of messages the ring holds; a power of two.
+     */
+    private static final int CAPACITY = 8192;
+
+    /**
+     * The size of the write buffer in bytes.
+     */
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * How long the background thread sleeps when the ring is empty, in
+     * nanoseconds, unless woken by a new message.
+     */
+    private static final long IDLE_NANOS = 100_000_000L;
+
+    /**
+     * How long a blocked caller waits before checking for room again, in nanoseconds.
+     */
+    private static final long BLOCK_NANOS = 50_000L;
+
+    /**
+     * Entry: one slot of the ring. Its fields are written by the caller that
+     * claimed the slot and read by the background thread, each side waiting
+     * for the slot's sequence number before touching them.
+     */
+    private static final class Entry {
+        /**
+         * The message level.
+         */
+        private Level level;
+
+        /**
+         * The message, or its format string if args has elements.
+         */
+        private String message;
+
+        /**
+         * The arguments for the format string.
+         */
+        private Object[] args;
+
+        /**
+         * Builds the message instead, or null.
+         */
+        private Supplier<String> supplier;
+    }
+
+    /**
+     * The slots of the ring.
+     */
+    private static final Entry[] ring = new Entry[CAPACITY];
+
+    /**
+     * The sequence number of each slot: its position when free to fill,
+     * one more than its position when filled, and its position plus
+     * CAPACITY once drained.
+     */
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+
+    /**
+     * The position of the next slot to fill.
+     */
+    private static final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The position of the next slot to drain; only used on the background thread.
+     */
+    private static long head;
+
+    /**
+     * Every message before this position has been written.
+     */
+    private static volatile long written;
+
+    /**
+     * The number of messages dropped because the ring was full.
+     */
+    private static final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * The least important level that is logged.
+     */
+    private static volatile Level level = Level.valueOf(
+            System.getProperty("gol.log.level", "DEBUG").toUpperCase(Locale.ROOT));
+
+    /**
+     * What logging does when the ring is full.
+     */
+    private static volatile Overflow overflow = Overflow.valueOf(
+            System.getProperty("gol.log.overflow", "DROP").toUpperCase(Locale.ROOT));
+
+    /**
+     * Whether the background thread is asleep, or about to be, and needs waking.
+     */
+    private static volatile boolean sleeping;
+
+    /**
+     * The file channel messages are appended to.
+     */
+    private static final FileChannel debugOut;
+
+    /**
+     * The background thread.
+     */
+    private static final Thread writer;
+
     static {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Entry();
+            sequences.set(i, i);
+        }
         try {
             // Open the file "debug_output.txt" in append mode.
             // Since the working directory is already "yourCodeHere",
             // this will create or open p1/yourCodeHere/debug_output.txt.
-            debugOut = new PrintStream(new FileOutputStream("debug_output.txt", true));
+            debugOut = FileChannel.open(Paths.get("debug_output.txt"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
         } catch (IOException e) {
             // Throw an unchecked exception instead of falling back to System.out.
             throw new RuntimeException("Unable to create debug log file", e);
         }
+        writer = new Thread(DebugLogger::drain, "debug-logger");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(DebugLogger::flush, "debug-logger-flush"));
     }
-    
+
     /**
-     * Writes a message to the debug output.
+     * Writes a message to the debug output at INFO level, as is.
      *
      * @param message the message to be logged.
      */
     public static void println(String message) {
-        debugOut.println(message);
+        log(Level.INFO, message);
+    }
+
+    /**
+     * Logs a DEBUG message built only if DEBUG is enabled.
+     *
+     * @param message builds the message, on the background thread.
+     */
+    public static void debug(Supplier<String> message) {
+        log(Level.DEBUG, message);
+    }
+
+    /**
+     * Logs a DEBUG message formatted only if DEBUG is enabled.
+     *
+     * @param format the format string, or the message itself if there are no args.
+     * @param args the arguments for the format string.
+     */
+    public static void debug(String format, Object... args) {
+        log(Level.DEBUG, format, args);
+    }
+
+    /**
+     * Logs an INFO message built only if INFO is enabled.
+     *
+     * @param message builds the message, on the background thread.
+     */
+    public static void info(Supplier<String> message) {
+        log(Level.INFO, message);
+    }
+
+    /**
+     * Logs an INFO message formatted only if INFO is enabled.
+     *
+     * @param format the format string, or the message itself if there are no args.
+     * @param args the arguments for the format string.
+     */
+    public static void info(String format, Object... args) {
+        log(Level.INFO, format, args);
+    }
+
+    /**
+     * Logs a WARN message built only if WARN is enabled.
+     *
+     * @param message builds the message, on the background thread.
+     */
+    public static void warn(Supplier<String> message) {
+        log(Level.WARN, message);
+    }
+
+    /**
+     * Logs a WARN message formatted only if WARN is enabled.
+     *
+     * @param format the format string, or the message itself if there are no args.
+     * @param args the arguments for the format string.
+     */
+    public static void warn(String format, Object... args) {
+        log(Level.WARN, format, args);
+    }
+
+    /**
+     * Logs a message built only if its level is enabled.
+     * O(1)
+     *
+     * @param messageLevel the level of the message.
+     * @param message builds the message, on the background thread.
+     */
+    public static void log(Level messageLevel, Supplier<String> message) {
+        if (isEnabled(messageLevel)) {
+            enqueue(messageLevel, null, null, message);
+        }
+    }
+
+    /**
+     * Logs a message formatted only if its level is enabled.
+     * O(1)
+     *
+     * @param messageLevel the level of the message.
+     * @param format the format string, or the message itself if there are no args.
+     * @param args the arguments for the format string.
+     */
+    public static void log(Level messageLevel, String format, Object... args) {
+        if (isEnabled(messageLevel)) {
+            enqueue(messageLevel, format, args, null);
+        }
+    }
+
+    /**
+     * Returns whether messages of a level are logged.
+     *
+     * @param messageLevel the level.
+     * @return true if they are.
+     */
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel != Level.OFF && messageLevel.compareTo(level) >= 0;
+    }
+
+    /**
+     * Helper method: puts a message into the ring, claiming a slot with a
+     * compare-and-set on the tail, then wakes the background thread if it
+     * sleeps. If the ring is full the message is dropped or waits, as the
+     * overflow policy says.
+     *
+     * @param messageLevel the level.
+     * @param message the message or format string, or null.
+     * @param args the format arguments, or null.
+     * @param supplier builds the message, or null.
+     */
+    private static void enqueue(Level messageLevel, String message, Object[] args, Supplier<String> supplier) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & (CAPACITY - 1);
+            long lag = sequences.get(slot) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    Entry entry = ring[slot];
+                    entry.level = messageLevel;
+                    entry.message = message;
+                    entry.args = args;
+                    entry.supplier = supplier;
+                    sequences.set(slot, position + 1);
+                    if (sleeping) {
+                        LockSupport.unpark(writer);
+                    }
+                    return;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                // the slot still holds a message from one lap ago: full
+                if (overflow == Overflow.DROP || Thread.currentThread() == writer) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(BLOCK_NANOS);
+                position = tail.get();
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Helper method: the body of the background thread. Drains the ring in
+     * order, formats each message into a line, and writes the lines in
+     * batches of up to BUFFER_BYTES; sleeps when the ring is empty.
+     */
+    private static void drain() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        long reportedDrops = 0;
+        while (true) {
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                buffer = append(buffer, Level.WARN + " DebugLogger: dropped " + (drops - reportedDrops)
+                        + " messages, the queue was full");
+                reportedDrops = drops;
+            }
+            boolean drained = false;
+            while (true) {
+                int slot = (int) head & (CAPACITY - 1);
+                if (sequences.get(slot) != head + 1) {
+                    break;
+                }
+                Entry entry = ring[slot];
+                String line = entry.level + " " + format(entry);
+                entry.message = null;
+                entry.args = null;
+                entry.supplier = null;
+                sequences.set(slot, head + CAPACITY);
+                head++;
+                buffer = append(buffer, line);
+                drained = true;
+            }
+            write(buffer);
+            written = head;
+            if (!drained) {
+                sleeping = true;
+                if (sequences.get((int) head & (CAPACITY - 1)) != head + 1) {
+                    LockSupport.parkNanos(IDLE_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+    }
+
+    /**
+     * Helper method: builds the text of a message. A supplier or format that
+     * throws is reported in place of the message rather than ending the
+     * background thread.
+     *
+     * @param entry the message.
+     * @return the text.
+     */
+    private static String format(Entry entry) {
+        try {
+            if (entry.supplier != null) {
+                return entry.supplier.get();
+            }
+            if (entry.args == null || entry.args.length == 0) {
+                return entry.message;
+            }
+            return String.format(Locale.ROOT, entry.message, entry.args);
+        } catch (RuntimeException e) {
+            return "DebugLogger: could not build message: " + e;
+        }
+    }
+
+    /**
+     * Helper method: adds a line to the write buffer, writing the buffer out
+     * first if the line does not fit. A line longer than the buffer is
+     * written on its own.
+     *
+     * @param buffer the write buffer.
+     * @param line the line, without its line separator.
+     * @return the write buffer.
+     */
+    private static ByteBuffer append(ByteBuffer buffer, String line) {
+        byte[] bytes = (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buffer.remaining()) {
+            write(buffer);
+        }
+        if (bytes.length > buffer.remaining()) {
+            write(ByteBuffer.wrap(bytes).position(bytes.length));
+        } else {
+            buffer.put(bytes);
+        }
+        return buffer;
+    }
+
+    /**
+     * Helper method: writes out and empties a filled buffer. A failed write
+     * is reported on standard error and its lines are lost, so logging
+     * carries on.
+     *
+     * @param buffer the buffer, filled up to its position.
+     */
+    private static void write(ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                debugOut.write(buffer);
+            }
+        } catch (IOException e) {
+            System.err.println("DebugLogger: write failed: " + e.getMessage());
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Waits until every message logged before the call is written to the file.
+     */
+    public static void flush() {
+        long target = tail.get();
+        while (written < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(BLOCK_NANOS);
+        }
+    }
+
+    /**
+     * Sets the least important level that is logged.
+     *
+     * @param threshold the level, or OFF to log nothing.
+     */
+    public static void setLevel(Level threshold) {
+        level = threshold;
+    }
+
+    /**
+     * Returns the least important level that is logged.
+     *
+     * @return the level.
+     */
+    public static Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets what logging does when the queue is full.
+     *
+     * @param policy drop the message or wait for room.
+     */
+    public static void setOverflow(Overflow policy) {
+        overflow = policy;
+    }
+
+    /**
+     * Returns what logging does when the queue is full.
+     *
+     * @return the policy.
+     */
+    public static Overflow getOverflow() {
+        return overflow;
+    }
+
+    /**
+     * Returns the number of messages dropped because the queue was full.
+     *
+     * @return the count since the program started.
+     */
+    public static long getDropped() {
+        return dropped.get();
     }
-} 
\ No newline at end of file
+}
@@ -3,13 +3,13 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.HashMap;
-import java.util.ArrayList;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.JMException;
 
 /**
  * The GameOfLife class is the main GUI application for Conway's Game of Life.
@@ -18,14 +18,65 @@ import java.io.IOException;
  */
 public class GameOfLife extends JFrame {
     /**
-     * The Simulation instance that handles the grid logic and evolution rules.
+     * The memory each simulation may spend on generations to step back to.
+     */
+    private static final long HISTORY_BUDGET = 16L << 20;
+
+    /**
+     * Evolve and render timings of every simulation the GUI runs, exposed
+     * over JMX as SimulationMetrics.DEFAULT_NAME.
+     */
+    private final SimulationMetrics metrics = new SimulationMetrics();
+
+    /**
+     * Runs the Simulation on its own thread and hands back finished frames,
+     * so evolving never blocks the event dispatch thread.
      */
-    private Simulation simulation;
+    private SimulationWorker worker;
 
     /**
-     * A Timer object to control the periodic evolution of the simulation.
+     * Whether a repaint for a new frame is already queued on the event
+     * dispatch thread; frames arriving before it runs share that repaint.
      */
-    private Timer timer;
+    private final AtomicBoolean repaintPending = new AtomicBoolean();
+
+    /**
+     * Guards repaintRegion and repaintWhole, shared by the worker thread and
+     * the event dispatch thread.
+     */
+    private final Object repaintLock = new Object();
+
+    /**
+     * The cells changed by frames since the last repaint, or null if none.
+     */
+    private Rectangle repaintRegion;
+
+    /**
+     * Whether a frame since the last repaint may have changed any cell.
+     */
+    private boolean repaintWhole;
+
+    /**
+     * Guards the drag stroke buffers, shared by the event dispatch thread
+     * and the worker thread.
+     */
+    private final Object strokeLock = new Object();
+
+    /**
+     * Cells dragged over and not yet applied, as row, col pairs.
+     */
+    private int[] stroke = new int[64];
+
+    /**
+     * The number of ints of stroke in use.
+     */
+    private int strokeLength;
+
+    /**
+     * The buffer the worker applied last; swapped with stroke so dragging
+     * allocates nothing once both are big enough.
+     */
+    private int[] strokeSpare = new int[64];
 
     /**
      * The main JPanel that serves as the container for all UI components.
@@ -52,6 +103,11 @@ public class GameOfLife extends JFrame {
      */
     private JButton stepButton;
 
+    /**
+     * The button to go back one generation.
+     */
+    private JButton stepBackButton;
+
     /**
      * The button to load a pattern from an RLE file into the simulation.
      */
@@ -82,6 +138,16 @@ public class GameOfLife extends JFrame {
      */
     private JLabel generationLabel;
 
+    /**
+     * A JLabel to display how many tiles the last generation had to evolve.
+     */
+    private JLabel activeTilesLabel;
+
+    /**
+     * A JLabel to display the generations per second actually achieved.
+     */
+    private JLabel rateLabel;
+
     /**
      * A JPanel responsible for rendering the simulation grid.
      */
@@ -123,10 +189,28 @@ public class GameOfLife extends JFrame {
     private JButton size175Button;
 
     /**
-     * The size of each cell in pixels, used for rendering the grid.
+     * Draws frames into an image, redrawing only the cells that changed.
+     */
+    private final GridRenderer renderer = new GridRenderer();
+
+    /**
+     * The size of each cell in pixels, used for rendering the grid. Only
+     * used on the EDT; read it through cellSizeFor().
      */
     private int cellSize = 10;
 
+    /**
+     * The grid size a resize is waiting for, or 0 if none is pending.
+     * Only used on the EDT.
+     */
+    private int pendingGridSize;
+
+    /**
+     * The cell size to switch to once a frame at pendingGridSize arrives.
+     * Only used on the EDT.
+     */
+    private int pendingCellSize;
+
     /**
      * The selected color for cells.
      */
@@ -153,7 +237,15 @@ public class GameOfLife extends JFrame {
         initializeStatsPanel();
         initializeGridPanel();
         combinePanels();
-        initializeTimer();
+
+        try {
+            metrics.register(SimulationMetrics.DEFAULT_NAME);
+        } catch (JMException e) {
+            DebugLogger.warn("Metrics not registered: %s", e);
+        }
+
+        // default grid size is 50x50
+        initializeWorker(newSimulation(50, 50));
 
         // Add the main panel to the frame
         add(mainPanel);
@@ -161,9 +253,6 @@ public class GameOfLife extends JFrame {
         pack();
         setVisible(true);
         gridPanel.repaint();
-
-        // default grid size is 50x50
-        this.simulation = new Simulation(50, 50);
         updateStatistics();
     }
 
@@ -188,16 +277,18 @@ public class GameOfLife extends JFrame {
         pauseButton = new JButton("Pause");
         resetButton = new JButton("Reset");
         stepButton = new JButton("Step"); 
+        stepBackButton = new JButton("Step Back");
         loadRleButton = new JButton("Load RLE"); 
         size25Button = new JButton("25x25");  
         size50Button = new JButton("50x50");
         size100Button = new JButton("100x100");
         size175Button = new JButton("175x175");
 
-        startButton.addActionListener(e -> timer.start());
-        pauseButton.addActionListener(e -> timer.stop());
+        startButton.addActionListener(e -> worker.setRunning(true));
+        pauseButton.addActionListener(e -> worker.setRunning(false));
         resetButton.addActionListener(e -> resetGrid());
         stepButton.addActionListener(e -> stepGeneration()); 
+        stepBackButton.addActionListener(e -> stepBack());
         loadRleButton.addActionListener(e -> loadRleFile()); 
         size25Button.addActionListener(e -> setGridAndCellSize(25, 20));  
         size50Button.addActionListener(e -> setGridAndCellSize(50, 10));
@@ -211,7 +302,7 @@ public class GameOfLife extends JFrame {
         speedSlider.setPaintTicks(true);
         //speedSlider.setPaintLabels(true);
         speedSlider.setToolTipText("Adjust Simulation Speed");
-        speedSlider.addChangeListener(e -> timer.setDelay(speedSlider.getValue()));
+        speedSlider.addChangeListener(e -> worker.setDelay(speedSlider.getValue()));
 
         chooseColorButton = new JButton("Choose Color");
         chooseColorButton.addActionListener(e -> {
@@ -223,6 +314,7 @@ public class GameOfLife extends JFrame {
                 chooseColorButton.setBackground(selectedColor);
                 // Update the global default alive color for all cells.
                 Cell.defaultAliveColor = selectedColor;
+                gridPanel.repaint();
             }
         });
 
@@ -234,6 +326,8 @@ public class GameOfLife extends JFrame {
         controlPanel.add(Box.createVerticalStrut(10));
         controlPanel.add(stepButton);
         controlPanel.add(Box.createVerticalStrut(10));
+        controlPanel.add(stepBackButton);
+        controlPanel.add(Box.createVerticalStrut(10));
         controlPanel.add(loadRleButton); 
         controlPanel.add(Box.createVerticalStrut(10));
 
@@ -259,17 +353,21 @@ public class GameOfLife extends JFrame {
      * Initializes the stats panel.
      */
     private void initializeStatsPanel() {
-        statsPanel = new JPanel(new GridLayout(2, 2, 10, 5));
+        statsPanel = new JPanel(new GridLayout(3, 2, 10, 5));
 
         averageAgeLabel = new JLabel("Average Age: 0", SwingConstants.CENTER);
         aliveCellsLabel = new JLabel("Alive Cells: 0", SwingConstants.CENTER);
         maxAgeLabel = new JLabel("Max Age: 0", SwingConstants.CENTER);
         generationLabel = new JLabel("Generations: 0", SwingConstants.CENTER);
+        activeTilesLabel = new JLabel("Active Tiles: 0", SwingConstants.CENTER);
+        rateLabel = new JLabel("Rate: 0.0 gen/s", SwingConstants.CENTER);
 
         statsPanel.add(averageAgeLabel);
         statsPanel.add(aliveCellsLabel);
         statsPanel.add(maxAgeLabel);
         statsPanel.add(generationLabel);
+        statsPanel.add(activeTilesLabel);
+        statsPanel.add(rateLabel);
     }
 
     /**
@@ -301,34 +399,33 @@ public class GameOfLife extends JFrame {
 
         gridPanel.addMouseListener(new MouseAdapter() {
             public void mousePressed(MouseEvent evt) {
-                int col = evt.getX() / cellSize;
-                int row = evt.getY() / cellSize;
+                int size = cellSizeFor(worker.getFrame());
+                int col = evt.getX() / size;
+                int row = evt.getY() / size;
+                Color color = selectedColor;
                 // Left-click toggles the cell's alive state.
                 if (evt.getButton() == MouseEvent.BUTTON1) {
-                    simulation.toggleCell(row, col);
-                    // Retrieve the toggled cell and set its color to selectedColor.
-                    Cell cell = simulation.getGrid().get(new Point(row, col));
-                    if (cell != null && cell.isAlive()) {
-                        cell.setColor(selectedColor);
-                    }
+                    worker.submitRegion(sim -> {
+                        sim.toggleCell(row, col);
+                        // Set the toggled cell's color to selectedColor.
+                        sim.setCellColor(row, col, color);
+                        return new Rectangle(col, row, 1, 1);
+                    });
                 }
                 // Right-click also sets the cell color to the currently selected color.
                 else if (evt.getButton() == MouseEvent.BUTTON3) {
-                    Cell cell = simulation.getGrid().get(new Point(row, col));
-                    if (cell != null && cell.isAlive()) {
-                        cell.setColor(selectedColor);
-                    }
+                    worker.submitRegion(sim -> {
+                        sim.setCellColor(row, col, color);
+                        return new Rectangle(col, row, 1, 1);
+                    });
                 }
-                gridPanel.repaint();
             }
         });
 
         gridPanel.addMouseMotionListener(new MouseMotionAdapter() {
             public void mouseDragged(MouseEvent evt) {
-                int col = evt.getX() / cellSize;
-                int row = evt.getY() / cellSize;
-                simulation.toggleCell(row, col);
-                gridPanel.repaint();
+                int size = cellSizeFor(worker.getFrame());
+                addToStroke(evt.getY() / size, evt.getX() / size);
             }
         });
 
@@ -336,64 +433,158 @@ public class GameOfLife extends JFrame {
     }
 
     /**
-     * Initializes the timer for automatic evolution of the simulation.
+     * Starts the worker thread that evolves the simulation at the slider's rate.
+     *
+     * @param simulation the simulation to run.
      */
-    private void initializeTimer() {
-        timer = new Timer(100, e -> {
-            simulation.evolve();
-            updateStatistics();
-            gridPanel.repaint();
-        });
+    private void initializeWorker(Simulation simulation) {
+        worker = new SimulationWorker(simulation, speedSlider.getValue(), this::frameReady);
     }
 
     /**
-     * Draws the grid and cells on the grid panel.
-     * @param g the Graphics object used for rendering
+     * Adds a dragged-over cell to the stroke. The first cell of a batch
+     * queues one edit, which applies every cell added before it runs, so a
+     * fast drag costs one edit per generation gap rather than one per event.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
      */
-    private void drawGrid(Graphics g) {
-        HashMap<Point, Cell> grid = simulation.getGrid();
-        
-        for (int row = 0; row < simulation.getRows(); row++) {
-            for (int col = 0; col < simulation.getCols(); col++) {
-                Cell cell = grid.get(new Point(row, col));
-                if (cell != null && cell.isAlive()) {
-                    g.setColor(cell.getColor());
-                    g.fillRect(col * cellSize, row * cellSize, cellSize, cellSize);
-                }
-                g.setColor(Color.LIGHT_GRAY);
-                g.drawRect(col * cellSize, row * cellSize, cellSize, cellSize);
+    private void addToStroke(int row, int col) {
+        synchronized (strokeLock) {
+            if (strokeLength >= 2 && stroke[strokeLength - 2] == row && stroke[strokeLength - 1] == col) {
+                return;
+            }
+            if (strokeLength == 0) {
+                worker.submitRegion(this::applyStroke);
+            }
+            if (strokeLength == stroke.length) {
+                stroke = Arrays.copyOf(stroke, stroke.length * 2);
+            }
+            stroke[strokeLength++] = row;
+            stroke[strokeLength++] = col;
+        }
+    }
+
+    /**
+     * Applies the pending stroke on the worker thread as one batched edit.
+     *
+     * @param sim the simulation being run.
+     * @return the cells that changed.
+     */
+    private Rectangle applyStroke(Simulation sim) {
+        int[] cells;
+        int length;
+        synchronized (strokeLock) {
+            cells = stroke;
+            length = strokeLength;
+            stroke = strokeSpare;
+            strokeSpare = cells;
+            strokeLength = 0;
+        }
+        return sim.editCells(cells, length, Simulation.EditMode.OR);
+    }
+
+    /**
+     * Called on the worker thread when a new frame is published. Schedules a
+     * repaint unless one is already waiting, so a fast simulation cannot
+     * flood the event queue. Frames that only changed a region repaint just
+     * the pixels of that region.
+     */
+    private void frameReady() {
+        Rectangle dirty = worker.getFrame().getDirty();
+        synchronized (repaintLock) {
+            if (dirty == null) {
+                repaintWhole = true;
+            } else if (!dirty.isEmpty()) {
+                repaintRegion = repaintRegion == null ? dirty : repaintRegion.union(dirty);
             }
         }
+        if (repaintPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                repaintPending.set(false);
+                boolean whole;
+                Rectangle region;
+                synchronized (repaintLock) {
+                    whole = repaintWhole;
+                    region = repaintRegion;
+                    repaintWhole = false;
+                    repaintRegion = null;
+                }
+                updateStatistics();
+                if (whole) {
+                    gridPanel.repaint();
+                } else if (region != null) {
+                    int size = cellSizeFor(worker.getFrame());
+                    gridPanel.repaint(region.x * size, region.y * size,
+                            region.width * size + 1, region.height * size + 1);
+                }
+            });
+        }
+    }
+
+    /**
+     * Draws the grid and cells of the latest finished frame on the grid panel,
+     * as one image.
+     * @param g the Graphics object used for rendering
+     */
+    private void drawGrid(Graphics g) {
+        long start = System.nanoTime();
+        GridFrame frame = worker.getFrame();
+        g.drawImage(renderer.render(frame, cellSizeFor(frame), Cell.defaultAliveColor, gridPanel.getBackground()),
+                0, 0, null);
+        metrics.recordFrame(System.nanoTime() - start);
     }
 
     /**
      * Resets the simulation grid to its initial state.
      */
     private void resetGrid() {
-        timer.stop();
-        simulation.reset();
-
-        updateStatistics();
-        gridPanel.repaint();
+        worker.setRunning(false);
+        worker.submit(Simulation::reset);
     }
 
     /**
      * Advances the simulation by one generation.
      */
     private void stepGeneration() {
-        simulation.evolve(); 
-        updateStatistics(); 
-        gridPanel.repaint(); 
+        worker.step();
+    }
+
+    /**
+     * Pauses the simulation and goes back one generation, if it is recorded.
+     */
+    private void stepBack() {
+        worker.setRunning(false);
+        worker.submit(Simulation::stepBack);
+    }
+
+    /**
+     * Creates a simulation for the GUI to run, recording its history and
+     * its metrics.
+     *
+     * @param rows the number of rows.
+     * @param cols the number of cols.
+     * @return the simulation.
+     */
+    private Simulation newSimulation(int rows, int cols) {
+        Simulation simulation = new Simulation(rows, cols, Simulation.Backend.BIT_PACKED);
+        simulation.setHistoryBudget(HISTORY_BUDGET);
+        simulation.setMetrics(metrics);
+        return simulation;
     }
 
     /**
      * Fetches statistics from Simulation and updates the GUI.
      */
     private void updateStatistics() {
-        averageAgeLabel.setText(String.format("Average Age: %.2f", simulation.getAverageAge()));
-        aliveCellsLabel.setText("Alive Cells: " + simulation.getAliveCells());
-        maxAgeLabel.setText("Max Age: " + simulation.getMaxAge());
-        generationLabel.setText("Generations: " + simulation.getGenerations());
+        GridFrame frame = worker.getFrame();
+        averageAgeLabel.setText(String.format("Average Age: %.2f", frame.getAverageAge()));
+        aliveCellsLabel.setText("Alive Cells: " + frame.getAliveCells());
+        maxAgeLabel.setText("Max Age: " + frame.getMaxAge());
+        generationLabel.setText("Generations: " + frame.getGeneration()
+                + (frame.getPeriod() > 0 ? " (period " + frame.getPeriod() + ")" : ""));
+        activeTilesLabel.setText("Active Tiles: " + frame.getActiveTiles());
+        rateLabel.setText(String.format("Rate: %.1f gen/s", frame.getRate()));
     }
 
     /**
@@ -403,47 +594,52 @@ public class GameOfLife extends JFrame {
      * @param newCellSize the new size of the cell in pixels
      */
     private void setGridAndCellSize(int newSize, int newCellSize) {
-        // Stop the simulation timer if running
-        timer.stop();
-
-        // Create a new Simulation object with the new size
-        simulation = new Simulation(newSize, newSize);
-        this.cellSize = newCellSize;
-
-        // Adjust gridPanel dimensions
-        gridPanel.repaint();
+        // Stop the simulation if running
+        worker.setRunning(false);
+
+        // Hand the worker a new Simulation object with the new size;
+        // it repaints once the first frame at that size is ready, and the
+        // new cell size applies from that frame on
+        worker.replace(newSimulation(newSize, newSize));
+        pendingGridSize = newSize;
+        pendingCellSize = newCellSize;
+    }
 
-        // Reset statistics and repaint
-        updateStatistics();
-        gridPanel.repaint();
+    /**
+     * Helper method: the cell size to draw and hit-test a frame with. Until
+     * the first frame of a pending resize arrives, frames still show the old
+     * grid and keep the old cell size.
+     *
+     * @param frame the frame being drawn or clicked on.
+     * @return the size of a cell in pixels.
+     */
+    private int cellSizeFor(GridFrame frame) {
+        if (pendingGridSize != 0 && frame.getRows() == pendingGridSize && frame.getCols() == pendingGridSize) {
+            cellSize = pendingCellSize;
+            pendingGridSize = 0;
+        }
+        return cellSize;
     }
 
     /**
      * File handler triggered by Load RLE button.
-     * Passes array of lines to parseRLE in Simulation class.
+     * Simulation memory-maps the file and decodes it straight into a new grid
+     * of the current size, which then replaces the one the worker is running.
      */
     private void loadRleFile() {
         JFileChooser fileChooser = new JFileChooser();
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
+            GridFrame frame = worker.getFrame();
+            Simulation loaded = newSimulation(frame.getRows(), frame.getCols());
             try {
-                ArrayList<String> lines = new ArrayList<>();
-                try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        if (!line.startsWith("#")) { // Ignore comments
-                            lines.add(line);
-                        }
-                    }
-                    simulation.parseRle(lines);
-                }
+                loaded.loadRleFile(file);
+                worker.replace(loaded);
             } catch (IOException e) {
                 JOptionPane.showMessageDialog(this, "Failed to load RLE file.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         }
-
-        gridPanel.repaint();
     }
 
     /**
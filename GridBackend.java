@@ -0,0 +1,398 @@
+import java.awt.Color;
+import java.awt.Point;
+import java.util.HashMap;
+
+/**
+ * GridBackend: the storage and evolution strategy behind a Simulation.
+ * Row/column arguments are always in range; Simulation does the bounds checks.
+ */
+public interface GridBackend {
+
+    /**
+     * Returns the number of rows this backend stores.
+     *
+     * @return the number of rows.
+     */
+    int getRows();
+
+    /**
+     * Returns the number of columns this backend stores.
+     *
+     * @return the number of columns.
+     */
+    int getCols();
+
+    /**
+     * Returns whether cells only exist inside rows by cols. Unbounded
+     * backends accept any int row/col and treat rows by cols as a window.
+     *
+     * @return true if the grid has edges.
+     */
+    default boolean isBounded() {
+        return true;
+    }
+
+    /**
+     * Returns whether the cell at row/col is alive.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return true if the cell is alive.
+     */
+    boolean isAlive(int row, int col);
+
+    /**
+     * Returns the age of the cell at row/col, 0 when the cell is dead.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the age of the cell.
+     */
+    int getAge(int row, int col);
+
+    /**
+     * Brings the cell at row/col to life with age 1. No change if it is already alive.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    void setAlive(int row, int col);
+
+    /**
+     * Brings the cell at row/col to life with the given age, replacing its age
+     * if it is already alive. Used to restore saved state.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @param age the age to give the cell, 1 or more.
+     */
+    void setAlive(int row, int col, int age);
+
+    /**
+     * Returns 64 cells of a row as bits: bit i is the cell at column
+     * word * 64 + i. Columns past the edge read as dead.
+     * O(64) unless the backend overrides it.
+     *
+     * @param row the row of the cells.
+     * @param word which group of 64 columns.
+     * @return the packed cells.
+     */
+    default long getWord(int row, int word) {
+        long bits = 0;
+        int first = word << 6;
+        for (int i = 0; i < 64 && first + i < getCols(); i++) {
+            if (isAlive(row, first + i)) {
+                bits |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Brings to life, with age 1, every cell whose bit is set in a group of
+     * 64 cells laid out as in getWord. Bits past the edge are ignored.
+     * O(64) unless the backend overrides it.
+     *
+     * @param row the row of the cells.
+     * @param word which group of 64 columns.
+     * @param bits the cells to bring to life.
+     */
+    default void setWord(int row, int word, long bits) {
+        int first = word << 6;
+        while (bits != 0) {
+            int i = Long.numberOfTrailingZeros(bits);
+            if (first + i >= getCols()) {
+                break;
+            }
+            setAlive(row, first + i);
+            bits &= bits - 1;
+        }
+    }
+
+    /**
+     * Kills the cell at row/col; a dead cell is left alone.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    void setDead(int row, int col);
+
+    /**
+     * Kills every cell whose bit is set in a group of 64 cells laid out as
+     * in getWord. Bits past the edge are ignored.
+     * O(64) unless the backend overrides it.
+     *
+     * @param row the row of the cells.
+     * @param word which group of 64 columns.
+     * @param bits the cells to kill.
+     */
+    default void clearWord(int row, int word, long bits) {
+        int first = word << 6;
+        while (bits != 0) {
+            int i = Long.numberOfTrailingZeros(bits);
+            if (first + i >= getCols()) {
+                break;
+            }
+            setDead(row, first + i);
+            bits &= bits - 1;
+        }
+    }
+
+    /**
+     * Counts the live neighbors of the cell at row/col. Cells beyond the edge
+     * are dead unless the backend was given a wrapping Boundary.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the number of live neighbors.
+     */
+    int countLiveNeighbors(int row, int col);
+
+    /**
+     * Advances every cell by one generation using the current rule, with
+     * the backend's Boundary at the edges.
+     */
+    void evolve();
+
+    /**
+     * Sets the rule evolve() applies from the next generation on.
+     *
+     * @param rule the rule.
+     * @throws IllegalArgumentException if the backend cannot run the rule.
+     */
+    void setRule(Rule rule);
+
+    /**
+     * Returns the rule evolve() applies.
+     *
+     * @return the rule, B3/S23 unless setRule was called.
+     */
+    Rule getRule();
+
+    /**
+     * Kills every cell.
+     */
+    void clear();
+
+    /**
+     * Sets how many threads evolve() may use. Backends that only evolve
+     * serially ignore this.
+     *
+     * @param parallelism the number of worker threads, 1 for serial.
+     */
+    default void setParallelism(int parallelism) {
+    }
+
+    /**
+     * Switches evolve() to a SIMD kernel where the backend has one and the
+     * platform supports it. Other backends ignore this.
+     *
+     * @param vectorized true to use the SIMD kernel.
+     * @return true if the SIMD kernel is now in use.
+     */
+    default boolean setVectorized(boolean vectorized) {
+        return false;
+    }
+
+    /**
+     * Returns the number of tiles evolved in the last generation. Backends
+     * without tiles report 0.
+     *
+     * @return the active tile count.
+     */
+    default int getActiveTiles() {
+        return 0;
+    }
+
+    /**
+     * Returns whether any cell of a row may have changed in the last
+     * evolve(). Edits since then are not counted. History builds its deltas
+     * from the rows this says changed; backends that do not track it say
+     * every row did.
+     *
+     * @param row the row.
+     * @return false only if no cell of the row changed.
+     */
+    default boolean isRowChanged(int row) {
+        return true;
+    }
+
+    /**
+     * Returns whether any of the 64 cells getWord(row, word) returns may
+     * have changed in the last evolve(), like isRowChanged for one word.
+     *
+     * @param row the row.
+     * @param word the word of the row.
+     * @return false only if none of the cells changed.
+     */
+    default boolean isWordChanged(int row, int word) {
+        return true;
+    }
+
+    /**
+     * Returns the number of cells born in the last generation.
+     *
+     * @return the births, or -1 if the backend does not count them.
+     */
+    default int getLastBirths() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of cells that died in the last generation.
+     *
+     * @return the deaths, or -1 if the backend does not count them.
+     */
+    default int getLastDeaths() {
+        return -1;
+    }
+
+    /**
+     * Returns the display color of the cell at row/col.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the color of the cell.
+     */
+    Color getColor(int row, int col);
+
+    /**
+     * Sets the display color of the cell at row/col. Backends that do not
+     * store per-cell colors ignore this.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @param color the new color.
+     */
+    void setColor(int row, int col, Color color);
+
+    /**
+     * Returns the Palette index of the cell at row/col, for resolving its
+     * color later with getPalette().
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the index, Palette.DEFAULT unless the backend stores colors.
+     */
+    default int getColorIndex(int row, int col) {
+        return Palette.DEFAULT;
+    }
+
+    /**
+     * Returns the palette that color indexes refer to.
+     *
+     * @return the palette, or null if the backend stores no colors.
+     */
+    default Palette getPalette() {
+        return null;
+    }
+
+    /**
+     * Returns the grid as a Point to Cell map. Backends that do not store
+     * Cell objects build a fresh copy on every call.
+     *
+     * @return a map holding one Cell per grid position.
+     */
+    HashMap<Point, Cell> toMap();
+
+    /**
+     * Calls the visitor once for every live cell.
+     * O(rows * cols) unless the backend overrides it.
+     *
+     * @param visitor receives each live cell.
+     */
+    default void forEachAlive(CellVisitor visitor) {
+        for (int i = 0; i < getRows(); i++) {
+            for (int j = 0; j < getCols(); j++) {
+                if (isAlive(i, j)) {
+                    visitor.visit(i, j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the Zobrist hash of the live cells: the xor of
+     * Zobrist.key(row * cols + col) over every live cell. Two boards with the
+     * same live cells have the same hash, so a repeating hash marks a cycle.
+     * A backend may key its cells differently, so hashes are only compared
+     * between states of the same backend.
+     * O(rows * cols) unless the backend overrides it; the built-in backends
+     * update the hash on each birth and death and return it in O(1).
+     *
+     * @return the hash, 0 if no cell is alive.
+     */
+    default long getStateHash() {
+        long cols = getCols();
+        long[] hash = new long[1];
+        forEachAlive((row, col) -> hash[0] ^= Zobrist.key(row * cols + col));
+        return hash[0];
+    }
+
+    /**
+     * Returns the count of live cells, which on the off-heap backend may be
+     * more than an int holds.
+     * O(rows * cols) unless the backend overrides it.
+     *
+     * @return the number of alive cells.
+     */
+    default long getPopulation() {
+        long aliveCount = 0;
+        for (int i = 0; i < getRows(); i++) {
+            for (int j = 0; j < getCols(); j++) {
+                if (isAlive(i, j)) {
+                    aliveCount++;
+                }
+            }
+        }
+        return aliveCount;
+    }
+
+    /**
+     * Returns the count of live cells, capped at Integer.MAX_VALUE; use
+     * getPopulation() where the grid may be larger.
+     *
+     * @return the number of alive cells, at most Integer.MAX_VALUE.
+     */
+    default int getAliveCells() {
+        return (int) Math.min(getPopulation(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the average age of all alive cells.
+     * O(rows * cols) unless the backend overrides it.
+     *
+     * @return the average age, or 0.0 if there are no alive cells.
+     */
+    default double getAverageAge() {
+        long totalAge = 0;
+        int aliveCount = 0;
+        for (int i = 0; i < getRows(); i++) {
+            for (int j = 0; j < getCols(); j++) {
+                if (isAlive(i, j)) {
+                    totalAge += getAge(i, j);
+                    aliveCount++;
+                }
+            }
+        }
+        return aliveCount == 0 ? 0.0 : (double) totalAge / aliveCount;
+    }
+
+    /**
+     * Returns the maximum age of all alive cells.
+     * O(rows * cols) unless the backend overrides it.
+     *
+     * @return the maximum age among alive cells.
+     */
+    default int getMaxAge() {
+        int maxAge = 0;
+        for (int i = 0; i < getRows(); i++) {
+            for (int j = 0; j < getCols(); j++) {
+                if (isAlive(i, j) && getAge(i, j) > maxAge) {
+                    maxAge = getAge(i, j);
+                }
+            }
+        }
+        return maxAge;
+    }
+}
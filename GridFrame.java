@@ -0,0 +1,311 @@
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * GridFrame: an immutable picture of a simulation after one generation,
+ * published by the SimulationWorker for the GUI to paint. The cells are
+ * copied as 64-cell words, so the GUI never reads the live grid. Colors
+ * are copied as palette indexes and resolved when painted. A frame that
+ * follows edits to a known region copies the previous frame and re-reads
+ * only that region.
+ */
+public final class GridFrame {
+    /**
+     * The number of rows in the grid.
+     */
+    private final int rows;
+
+    /**
+     * The number of cols in the grid.
+     */
+    private final int cols;
+
+    /**
+     * The number of words per row.
+     */
+    private final int stride;
+
+    /**
+     * The cells, row by row; bit c % 64 of word c / 64 is column c.
+     */
+    private final long[] cells;
+
+    /**
+     * The Palette index of each live cell, row-major, or null if every live
+     * cell uses the default color.
+     */
+    private final byte[] colorIndexes;
+
+    /**
+     * The palette's colors when the frame was taken.
+     */
+    private final Color[] palette;
+
+    /**
+     * The generation this frame shows.
+     */
+    private final long generation;
+
+    /**
+     * The number of live cells.
+     */
+    private final long aliveCells;
+
+    /**
+     * The average age of the live cells.
+     */
+    private final double averageAge;
+
+    /**
+     * The age of the oldest live cell.
+     */
+    private final int maxAge;
+
+    /**
+     * The number of tiles the last generation evolved.
+     */
+    private final int activeTiles;
+
+    /**
+     * The period of the cycle the board has settled into, 0 if none.
+     */
+    private final int period;
+
+    /**
+     * The generations per second the worker was achieving.
+     */
+    private final double rate;
+
+    /**
+     * The cells that may differ from the previous frame, or null if any may.
+     */
+    private final Rectangle dirty;
+
+    /**
+     * Main constructor. Copies the cells and statistics out of a simulation;
+     * must run on the thread that owns it.
+     * O(rows * cols / 64)
+     *
+     * @param simulation the simulation to copy.
+     * @param rate the achieved generations per second.
+     */
+    public GridFrame(Simulation simulation, double rate) {
+        this(simulation, rate, null, null);
+    }
+
+    /**
+     * Constructor for a frame that differs from the previous one only
+     * inside a region, such as after a batched edit: the previous frame's
+     * cells are copied and only the words overlapping the region are read
+     * from the simulation. Without a previous frame of the same size, or
+     * without a region, the whole grid is read. Must run on the thread that
+     * owns the simulation.
+     * O(rows * cols / 64) to copy, plus the words and live cells in the region
+     *
+     * @param simulation the simulation to copy.
+     * @param rate the achieved generations per second.
+     * @param previous the frame before this one, or null.
+     * @param dirty the cells that may have changed since it, in columns (x)
+     *        and rows (y), or null if any may have.
+     */
+    public GridFrame(Simulation simulation, double rate, GridFrame previous, Rectangle dirty) {
+        rows = simulation.getRows();
+        cols = simulation.getCols();
+        stride = (cols + 63) >>> 6;
+        boolean partial = previous != null && dirty != null && previous.rows == rows && previous.cols == cols;
+        int top = 0;
+        int bottom = rows;
+        int firstWord = 0;
+        int lastWord = stride;
+        byte[] indexes = null;
+        if (partial) {
+            cells = previous.cells.clone();
+            indexes = previous.colorIndexes == null ? null : previous.colorIndexes.clone();
+            Rectangle area = dirty.intersection(new Rectangle(cols, rows));
+            if (area.isEmpty()) {
+                bottom = 0;
+            } else {
+                top = area.y;
+                bottom = area.y + area.height;
+                firstWord = area.x >>> 6;
+                lastWord = ((area.x + area.width - 1) >>> 6) + 1;
+            }
+        } else {
+            cells = new long[rows * stride];
+        }
+        Palette colors = simulation.getPalette();
+        for (int i = top; i < bottom; i++) {
+            for (int w = firstWord; w < lastWord; w++) {
+                long word = simulation.getWord(i, w);
+                cells[i * stride + w] = word;
+                if (indexes != null) {
+                    Arrays.fill(indexes, i * cols + (w << 6), i * cols + Math.min(cols, (w + 1) << 6), (byte) Palette.DEFAULT);
+                }
+                for (long bits = colors == null ? 0 : word; bits != 0; bits &= bits - 1) {
+                    int col = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    int index = simulation.getColorIndex(i, col);
+                    if (index != Palette.DEFAULT) {
+                        if (indexes == null) {
+                            indexes = new byte[rows * cols];
+                        }
+                        indexes[i * cols + col] = (byte) index;
+                    }
+                }
+            }
+        }
+        colorIndexes = indexes;
+        palette = indexes == null ? null : colors.toArray();
+        generation = simulation.getGenerationCount();
+        aliveCells = simulation.getPopulation();
+        averageAge = simulation.getAverageAge();
+        maxAge = simulation.getMaxAge();
+        activeTiles = simulation.getActiveTiles();
+        period = simulation.getPeriod();
+        this.rate = rate;
+        this.dirty = partial ? dirty : null;
+    }
+
+    /**
+     * Returns whether the cell at row/col is alive. Out of range cells are dead.
+     * O(1)
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return true if the cell is alive.
+     */
+    public boolean isAlive(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return false;
+        }
+        return (cells[row * stride + (col >>> 6)] & (1L << col)) != 0;
+    }
+
+    /**
+     * Returns 64 cells of a row as bits: bit i is the cell at column
+     * word * 64 + i.
+     * O(1)
+     *
+     * @param row the row of the cells.
+     * @param word which group of 64 columns.
+     * @return the packed cells.
+     */
+    public long getWord(int row, int word) {
+        return cells[row * stride + word];
+    }
+
+    /**
+     * Returns the Palette index of a live cell.
+     * O(1)
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the color index, Palette.DEFAULT for the default color.
+     */
+    public int getColorIndex(int row, int col) {
+        return colorIndexes == null ? Palette.DEFAULT : colorIndexes[row * cols + col] & 0xff;
+    }
+
+    /**
+     * Returns the color of a palette index.
+     *
+     * @param index a color index other than Palette.DEFAULT.
+     * @param fallback the color to use if the index is unknown.
+     * @return the color.
+     */
+    public Color getPaletteColor(int index, Color fallback) {
+        return palette == null || index >= palette.length || palette[index] == null
+                ? fallback : palette[index];
+    }
+
+    /**
+     * Returns the number of rows in the grid.
+     *
+     * @return the row count.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of cols in the grid.
+     *
+     * @return the column count.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the generation this frame shows.
+     *
+     * @return the generation.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the number of live cells.
+     *
+     * @return the live cell count.
+     */
+    public long getAliveCells() {
+        return aliveCells;
+    }
+
+    /**
+     * Returns the average age of the live cells.
+     *
+     * @return the average age.
+     */
+    public double getAverageAge() {
+        return averageAge;
+    }
+
+    /**
+     * Returns the age of the oldest live cell.
+     *
+     * @return the maximum age.
+     */
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Returns the number of tiles the last generation evolved.
+     *
+     * @return the active tile count.
+     */
+    public int getActiveTiles() {
+        return activeTiles;
+    }
+
+    /**
+     * Returns the period of the cycle the board has settled into.
+     *
+     * @return the period, 1 for a still life, or 0 if none is detected.
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Returns the generations per second the worker was achieving.
+     *
+     * @return the achieved rate, 0 while paused.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Returns the cells that may differ from the previous frame, so a
+     * painter can redraw just those.
+     *
+     * @return the region in columns (x) and rows (y), or null if any cell may differ.
+     */
+    public Rectangle getDirty() {
+        return dirty;
+    }
+}
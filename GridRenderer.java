@@ -0,0 +1,176 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * GridRenderer: draws frames into the int[] raster of a BufferedImage, so
+ * the panel paints the whole grid with one drawImage call.
+ *
+ * Each cell is a square of cellSize pixels whose border is shared with its
+ * neighbors, as drawRect drew it. The gridlines are written once when the
+ * image is built; after that only the insides of cells that changed since
+ * the previous frame are refilled, found by xor-ing the frames' words and
+ * comparing the palette indexes of live cells. Colors are resolved here, so
+ * cells using the default pick up a new default on the next frame.
+ */
+public class GridRenderer {
+    /**
+     * The color of the gridlines.
+     */
+    private static final int GRIDLINE_RGB = Color.LIGHT_GRAY.getRGB();
+
+    /**
+     * The image the grid is drawn into, or null before the first frame.
+     */
+    private BufferedImage image;
+
+    /**
+     * The image's pixels, row by row.
+     */
+    private int[] pixels;
+
+    /**
+     * The width of the image in pixels.
+     */
+    private int width;
+
+    /**
+     * The cells currently drawn, one word per 64 cells as in GridFrame.
+     */
+    private long[] drawn;
+
+    /**
+     * The Palette index each live cell was drawn with, row-major.
+     */
+    private byte[] drawnColors;
+
+    /**
+     * The number of words per row of drawn.
+     */
+    private int stride;
+
+    /**
+     * The number of rows drawn.
+     */
+    private int rows;
+
+    /**
+     * The number of cols drawn.
+     */
+    private int cols;
+
+    /**
+     * The size of each cell in pixels, gridline included.
+     */
+    private int cellSize;
+
+    /**
+     * The color live cells were drawn in.
+     */
+    private int aliveRgb;
+
+    /**
+     * The color dead cells were drawn in.
+     */
+    private int deadRgb;
+
+    /**
+     * Brings the image up to date with a frame and returns it. The whole
+     * image is redrawn only if the size or a color changed.
+     * O(rows * cols / 64 + live cells + changed cells * cellSize^2)
+     *
+     * @param frame the frame to draw.
+     * @param cellSize the size of each cell in pixels.
+     * @param alive the color of live cells.
+     * @param dead the color of dead cells.
+     * @return the image, (cols * cellSize + 1) by (rows * cellSize + 1) pixels.
+     */
+    public BufferedImage render(GridFrame frame, int cellSize, Color alive, Color dead) {
+        boolean full = image == null || frame.getRows() != rows || frame.getCols() != cols
+                || cellSize != this.cellSize || alive.getRGB() != aliveRgb || dead.getRGB() != deadRgb;
+        if (full) {
+            rebuild(frame.getRows(), frame.getCols(), cellSize, alive.getRGB(), dead.getRGB());
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int w = 0; w < stride; w++) {
+                long now = frame.getWord(row, w);
+                int index = row * stride + w;
+                long changed = now ^ drawn[index];
+                if (full) {
+                    // the image starts all dead
+                    changed = now;
+                }
+                for (long live = now & ~changed; live != 0; live &= live - 1) {
+                    int bit = Long.numberOfTrailingZeros(live);
+                    int col = (w << 6) + bit;
+                    if (frame.getColorIndex(row, col) != (drawnColors[row * cols + col] & 0xff)) {
+                        changed |= 1L << bit;
+                    }
+                }
+                drawn[index] = now;
+                while (changed != 0) {
+                    int bit = Long.numberOfTrailingZeros(changed);
+                    int col = (w << 6) + bit;
+                    int rgb = deadRgb;
+                    int colorIndex = Palette.DEFAULT;
+                    if ((now & (1L << bit)) != 0) {
+                        colorIndex = frame.getColorIndex(row, col);
+                        rgb = colorIndex == Palette.DEFAULT ? aliveRgb : frame.getPaletteColor(colorIndex, alive).getRGB();
+                    }
+                    drawnColors[row * cols + col] = (byte) colorIndex;
+                    fillCell(row, col, rgb);
+                    changed &= changed - 1;
+                }
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Helper method: makes a new image for a grid size, with the gridlines
+     * drawn and every cell dead.
+     *
+     * @param rows the number of rows.
+     * @param cols the number of cols.
+     * @param cellSize the size of each cell in pixels.
+     * @param aliveRgb the color of live cells.
+     * @param deadRgb the color of dead cells.
+     */
+    private void rebuild(int rows, int cols, int cellSize, int aliveRgb, int deadRgb) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cellSize = cellSize;
+        this.aliveRgb = aliveRgb;
+        this.deadRgb = deadRgb;
+        stride = (cols + 63) >>> 6;
+        drawn = new long[rows * stride];
+        drawnColors = new byte[rows * cols];
+        width = cols * cellSize + 1;
+        int height = rows * cellSize + 1;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < height; y++) {
+            boolean line = y % cellSize == 0;
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = line || x % cellSize == 0 ? GRIDLINE_RGB : deadRgb;
+            }
+        }
+    }
+
+    /**
+     * Helper method: fills the inside of one cell, leaving its gridlines.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @param rgb the color to fill with.
+     */
+    private void fillCell(int row, int col, int rgb) {
+        int x = col * cellSize + 1;
+        int y = row * cellSize + 1;
+        for (int dy = 0; dy < cellSize - 1; dy++) {
+            int start = (y + dy) * width + x;
+            Arrays.fill(pixels, start, start + cellSize - 1, rgb);
+        }
+    }
+}
@@ -0,0 +1,600 @@
+/**
+ * HashLife: evolves a pattern on an unbounded plane using a quadtree of
+ * hash-consed, memoized nodes, so repeated structure in space and time is
+ * computed once. Jumps of 2^k generations cost about as much as a single
+ * generation once the memo cache is warm.
+ *
+ * Cells are addressed by (row, col) as longs, with the root centered on the
+ * origin. The node cache is bounded: when it grows past its limit between
+ * steps, unreachable nodes and all memoized results are dropped. A single
+ * jump that would add more than the limit on its own is abandoned, the
+ * cache collected, and the jump made as two halves instead, so the cache
+ * stays within about twice its limit plus the nodes of the live pattern.
+ *
+ * Memoized results are only valid for one rule, so the rule is fixed when
+ * the engine is created. Rules with B0 cannot run, since empty space would
+ * not stay empty.
+ */
+public class HashLife {
+    /**
+     * The default cap on cached nodes, roughly 64 MB.
+     */
+    public static final int DEFAULT_MAX_NODES = 1 << 20;
+
+    /**
+     * CacheFull: thrown out of a step that has added too many nodes.
+     */
+    private static final class CacheFull extends RuntimeException {
+        /**
+         * Serialization version; never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor for CacheFull, without a stack trace since it is only
+         * used to unwind the step.
+         */
+        CacheFull() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * The one CacheFull thrown, as it carries no state.
+     */
+    private static final CacheFull CACHE_FULL = new CacheFull();
+
+    /**
+     * Node: an immutable square of 2^level by 2^level cells. Two nodes with the
+     * same children are always the same object, so children compare by identity.
+     */
+    private static final class Node {
+        /**
+         * The four quadrants, null for leaves.
+         */
+        final Node nw, ne, sw, se;
+
+        /**
+         * log2 of the side length; leaves are level 0.
+         */
+        final int level;
+
+        /**
+         * The number of live cells.
+         */
+        final long population;
+
+        /**
+         * The hash of the four children's identities.
+         */
+        final int hash;
+
+        /**
+         * The next node in the same hash table bucket.
+         */
+        Node next;
+
+        /**
+         * The memoized center of this node advanced 2^resultStep generations.
+         */
+        Node result;
+
+        /**
+         * The step the memoized result is for, -1 when there is none.
+         */
+        int resultStep = -1;
+
+        /**
+         * Constructor for leaves.
+         *
+         * @param alive whether the single cell is alive.
+         */
+        Node(boolean alive) {
+            this.nw = this.ne = this.sw = this.se = null;
+            this.level = 0;
+            this.population = alive ? 1 : 0;
+            this.hash = alive ? 1 : 0;
+        }
+
+        /**
+         * Constructor for inner nodes.
+         *
+         * @param nw the north-west quadrant.
+         * @param ne the north-east quadrant.
+         * @param sw the south-west quadrant.
+         * @param se the south-east quadrant.
+         * @param hash the precomputed hash of the children.
+         */
+        Node(Node nw, Node ne, Node sw, Node se, int hash) {
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.level = nw.level + 1;
+            this.population = nw.population + ne.population + sw.population + se.population;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * The dead leaf.
+     */
+    private final Node dead = new Node(false);
+
+    /**
+     * The live leaf.
+     */
+    private final Node alive = new Node(true);
+
+    /**
+     * The canonical empty node of each level, index = level.
+     */
+    private Node[] empty = new Node[64];
+
+    /**
+     * The hash-consing table, chained through Node.next.
+     */
+    private Node[] table = new Node[1 << 10];
+
+    /**
+     * The number of nodes in the table.
+     */
+    private int size;
+
+    /**
+     * The table size that triggers a collection between steps.
+     */
+    private final int maxNodes;
+
+    /**
+     * The table size at which the running step gives up; no limit between steps.
+     */
+    private int stepLimit = Integer.MAX_VALUE;
+
+    /**
+     * The whole universe; everything outside it is dead.
+     */
+    private Node root;
+
+    /**
+     * The lookup table for the rule, used on 4x4 blocks.
+     */
+    private final LifeTable lifeTable;
+
+    /**
+     * Main constructor. Runs B3/S23.
+     *
+     * @param maxNodes the number of cached nodes that triggers a collection.
+     */
+    public HashLife(int maxNodes) {
+        this(maxNodes, Rule.CONWAY);
+    }
+
+    /**
+     * Constructor with a choice of rule.
+     *
+     * @param maxNodes the number of cached nodes that triggers a collection.
+     * @param rule the rule to run.
+     * @throws IllegalArgumentException if the rule has B0.
+     */
+    public HashLife(int maxNodes, Rule rule) {
+        if (rule.bornFromNothing()) {
+            throw new IllegalArgumentException("HashLife cannot run B0 rules such as " + rule);
+        }
+        this.maxNodes = maxNodes;
+        this.lifeTable = LifeTable.forRule(rule);
+        empty[0] = dead;
+        clear();
+    }
+
+    /**
+     * Kills every cell. Cached nodes and their memoized results are kept for reuse.
+     */
+    public void clear() {
+        root = emptyNode(3);
+    }
+
+    /**
+     * Returns the number of live cells.
+     * O(1)
+     *
+     * @return the population.
+     */
+    public long getPopulation() {
+        return root.population;
+    }
+
+    /**
+     * Returns the number of nodes currently cached.
+     *
+     * @return the node count.
+     */
+    public int getCachedNodes() {
+        return size;
+    }
+
+    /**
+     * Helper method: returns the canonical node with the given children.
+     *
+     * @param nw the north-west quadrant.
+     * @param ne the north-east quadrant.
+     * @param sw the south-west quadrant.
+     * @param se the south-east quadrant.
+     * @return the interned node.
+     */
+    private Node join(Node nw, Node ne, Node sw, Node se) {
+        int h = System.identityHashCode(nw);
+        h = h * 31 + System.identityHashCode(ne);
+        h = h * 31 + System.identityHashCode(sw);
+        h = h * 31 + System.identityHashCode(se);
+        h ^= h >>> 16;
+        int bucket = h & (table.length - 1);
+        for (Node n = table[bucket]; n != null; n = n.next) {
+            if (n.hash == h && n.nw == nw && n.ne == ne && n.sw == sw && n.se == se) {
+                return n;
+            }
+        }
+        Node n = new Node(nw, ne, sw, se, h);
+        insert(n);
+        return n;
+    }
+
+    /**
+     * Helper method: adds a node to the table, doubling it when it is 3/4 full.
+     *
+     * @param n the node to add.
+     */
+    private void insert(Node n) {
+        if (size >= table.length - (table.length >>> 2)) {
+            Node[] old = table;
+            table = new Node[old.length << 1];
+            for (Node head : old) {
+                while (head != null) {
+                    Node following = head.next;
+                    int bucket = head.hash & (table.length - 1);
+                    head.next = table[bucket];
+                    table[bucket] = head;
+                    head = following;
+                }
+            }
+        }
+        int bucket = n.hash & (table.length - 1);
+        n.next = table[bucket];
+        table[bucket] = n;
+        size++;
+    }
+
+    /**
+     * Helper method: returns the canonical empty node of a level.
+     *
+     * @param level the level.
+     * @return the empty node.
+     */
+    private Node emptyNode(int level) {
+        if (level >= empty.length) {
+            Node[] grown = new Node[level + 1];
+            System.arraycopy(empty, 0, grown, 0, empty.length);
+            empty = grown;
+        }
+        if (empty[level] == null) {
+            Node e = emptyNode(level - 1);
+            empty[level] = join(e, e, e, e);
+        }
+        return empty[level];
+    }
+
+    /**
+     * Helper method: doubles the root's size, keeping it centered on the origin.
+     */
+    private void expand() {
+        Node e = emptyNode(root.level - 1);
+        root = join(join(e, e, e, root.nw), join(e, e, root.ne, e),
+                join(e, root.sw, e, e), join(root.se, e, e, e));
+    }
+
+    /**
+     * Brings the cell at row/col to life, growing the universe as needed.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    public void setCell(long row, long col) {
+        while (!contains(root, row, col)) {
+            expand();
+        }
+        root = setCell(root, row, col);
+    }
+
+    /**
+     * Helper method: whether a node centered on the origin covers row/col.
+     *
+     * @param n the node.
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return true if the cell lies inside the node.
+     */
+    private static boolean contains(Node n, long row, long col) {
+        long half = 1L << (n.level - 1);
+        return row >= -half && row < half && col >= -half && col < half;
+    }
+
+    /**
+     * Helper method: returns a copy of n with the cell at row/col alive.
+     * Coordinates are relative to the center of n.
+     *
+     * @param n the node, level 1 or higher.
+     * @param row the row relative to the center.
+     * @param col the column relative to the center.
+     * @return the updated node.
+     */
+    private Node setCell(Node n, long row, long col) {
+        if (n.level == 1) {
+            return join(row < 0 && col < 0 ? alive : n.nw, row < 0 && col >= 0 ? alive : n.ne,
+                    row >= 0 && col < 0 ? alive : n.sw, row >= 0 && col >= 0 ? alive : n.se);
+        }
+        long quarter = 1L << (n.level - 2);
+        if (row < 0) {
+            if (col < 0) {
+                return join(setCell(n.nw, row + quarter, col + quarter), n.ne, n.sw, n.se);
+            }
+            return join(n.nw, setCell(n.ne, row + quarter, col - quarter), n.sw, n.se);
+        }
+        if (col < 0) {
+            return join(n.nw, n.ne, setCell(n.sw, row - quarter, col + quarter), n.se);
+        }
+        return join(n.nw, n.ne, n.sw, setCell(n.se, row - quarter, col - quarter));
+    }
+
+    /**
+     * Visits every live cell inside the inclusive bounds, skipping empty and
+     * out of range subtrees.
+     *
+     * @param minRow the smallest row to visit.
+     * @param minCol the smallest column to visit.
+     * @param maxRow the largest row to visit.
+     * @param maxCol the largest column to visit.
+     * @param visitor receives each live cell.
+     */
+    public void forEachAlive(long minRow, long minCol, long maxRow, long maxCol, CellVisitor visitor) {
+        long half = 1L << (root.level - 1);
+        forEachAlive(root, -half, -half, minRow, minCol, maxRow, maxCol, visitor);
+    }
+
+    /**
+     * Helper method: recursive part of forEachAlive.
+     *
+     * @param n the node to walk.
+     * @param top the row of the node's top edge.
+     * @param left the column of the node's left edge.
+     * @param minRow the smallest row to visit.
+     * @param minCol the smallest column to visit.
+     * @param maxRow the largest row to visit.
+     * @param maxCol the largest column to visit.
+     * @param visitor receives each live cell.
+     */
+    private void forEachAlive(Node n, long top, long left, long minRow, long minCol,
+            long maxRow, long maxCol, CellVisitor visitor) {
+        long side = 1L << n.level;
+        if (n.population == 0 || top > maxRow || left > maxCol
+                || top + side - 1 < minRow || left + side - 1 < minCol) {
+            return;
+        }
+        if (n.level == 0) {
+            visitor.visit(top, left);
+            return;
+        }
+        long half = side >>> 1;
+        forEachAlive(n.nw, top, left, minRow, minCol, maxRow, maxCol, visitor);
+        forEachAlive(n.ne, top, left + half, minRow, minCol, maxRow, maxCol, visitor);
+        forEachAlive(n.sw, top + half, left, minRow, minCol, maxRow, maxCol, visitor);
+        forEachAlive(n.se, top + half, left + half, minRow, minCol, maxRow, maxCol, visitor);
+    }
+
+    /**
+     * Advances the universe by the given number of generations, one
+     * power-of-two jump per set bit.
+     *
+     * @param generations the number of generations, ignored if not positive.
+     */
+    public void advance(long generations) {
+        while (generations > 0) {
+            int k = Long.numberOfTrailingZeros(generations);
+            stepPow2(k);
+            generations &= generations - 1;
+            if (size > maxNodes) {
+                collect();
+            }
+        }
+    }
+
+    /**
+     * Helper method: advances the universe by exactly 2^k generations.
+     * The root is first grown until the pattern sits in its center quarter,
+     * then once more, so nothing can reach the part of the root that a step drops.
+     * If the step outgrows the cache it is dropped, the cache collected, and
+     * the jump made as two steps of 2^(k-1).
+     *
+     * @param k log2 of the number of generations.
+     */
+    private void stepPow2(int k) {
+        while (root.level < k + 2 || centered(centered(root)).population != root.population) {
+            expand();
+        }
+        Node grown = root;
+        expand();
+        // a step may add maxNodes nodes; a single generation always runs
+        stepLimit = k == 0 ? Integer.MAX_VALUE : size + maxNodes;
+        try {
+            root = step(root, k);
+        } catch (CacheFull e) {
+            // the halves grow the root again themselves
+            root = grown;
+            collect();
+            stepPow2(k - 1);
+            stepPow2(k - 1);
+        } finally {
+            stepLimit = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Helper method: the node of half the size at the center of n.
+     *
+     * @param n a node of level 2 or higher.
+     * @return the center node.
+     */
+    private Node centered(Node n) {
+        return join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+    }
+
+    /**
+     * Helper method: the node straddling the border of two side-by-side nodes.
+     *
+     * @param w the western node.
+     * @param e the eastern node.
+     * @return the node of the same level between them.
+     */
+    private Node centeredHorizontal(Node w, Node e) {
+        return join(w.ne, e.nw, w.se, e.sw);
+    }
+
+    /**
+     * Helper method: the node straddling the border of two stacked nodes.
+     *
+     * @param n the northern node.
+     * @param s the southern node.
+     * @return the node of the same level between them.
+     */
+    private Node centeredVertical(Node n, Node s) {
+        return join(n.sw, n.se, s.nw, s.ne);
+    }
+
+    /**
+     * Helper method: the center of n advanced 2^k generations. Results are
+     * memoized on the node for the last k it was asked about.
+     *
+     * @param n a node of level 2 or higher.
+     * @param k log2 of the number of generations, at most n.level - 2.
+     * @return the center node, one level below n.
+     */
+    private Node step(Node n, int k) {
+        if (n.population == 0) {
+            return emptyNode(n.level - 1);
+        }
+        if (n.resultStep == k) {
+            return n.result;
+        }
+        if (size > stepLimit) {
+            throw CACHE_FULL;
+        }
+        Node result;
+        if (n.level == 2) {
+            result = baseStep(n);
+        } else {
+            Node n00 = n.nw;
+            Node n01 = centeredHorizontal(n.nw, n.ne);
+            Node n02 = n.ne;
+            Node n10 = centeredVertical(n.nw, n.sw);
+            Node n11 = centered(n);
+            Node n12 = centeredVertical(n.ne, n.se);
+            Node n20 = n.sw;
+            Node n21 = centeredHorizontal(n.sw, n.se);
+            Node n22 = n.se;
+            int inner = n.level - 3;
+            boolean full = k == n.level - 2;
+            // a full-speed step spends half its time in each phase; slower
+            // steps only move the nine windows inward before advancing
+            Node r00 = full ? step(n00, inner) : centered(n00);
+            Node r01 = full ? step(n01, inner) : centered(n01);
+            Node r02 = full ? step(n02, inner) : centered(n02);
+            Node r10 = full ? step(n10, inner) : centered(n10);
+            Node r11 = full ? step(n11, inner) : centered(n11);
+            Node r12 = full ? step(n12, inner) : centered(n12);
+            Node r20 = full ? step(n20, inner) : centered(n20);
+            Node r21 = full ? step(n21, inner) : centered(n21);
+            Node r22 = full ? step(n22, inner) : centered(n22);
+            int rest = full ? inner : k;
+            result = join(step(join(r00, r01, r10, r11), rest), step(join(r01, r02, r11, r12), rest),
+                    step(join(r10, r11, r20, r21), rest), step(join(r11, r12, r21, r22), rest));
+        }
+        n.result = result;
+        n.resultStep = k;
+        return result;
+    }
+
+    /**
+     * Helper method: evolves the center 2x2 of a 4x4 node by one generation,
+     * packing each center cell's 3x3 neighborhood into a LifeTable index.
+     *
+     * @param n a level 2 node.
+     * @return the level 1 center after one generation.
+     */
+    private Node baseStep(Node n) {
+        // bit (row * 4 + col) of the 4x4 block
+        int bits = 0;
+        Node[] quads = {n.nw, n.ne, n.sw, n.se};
+        for (int q = 0; q < 4; q++) {
+            int top = (q >> 1) * 2;
+            int left = (q & 1) * 2;
+            Node quad = quads[q];
+            bits |= (int) quad.nw.population << (top * 4 + left);
+            bits |= (int) quad.ne.population << (top * 4 + left + 1);
+            bits |= (int) quad.sw.population << ((top + 1) * 4 + left);
+            bits |= (int) quad.se.population << ((top + 1) * 4 + left + 1);
+        }
+        Node[] next = new Node[4];
+        for (int q = 0; q < 4; q++) {
+            int row = 1 + (q >> 1);
+            int col = 1 + (q & 1);
+            int index = 0;
+            for (int dc = -1; dc <= 1; dc++) {
+                for (int dr = -1; dr <= 1; dr++) {
+                    index |= ((bits >>> ((row + dr) * 4 + col + dc)) & 1) << ((dc + 1) * 3 + dr + 1);
+                }
+            }
+            next[q] = lifeTable.next(index) ? alive : dead;
+        }
+        return join(next[0], next[1], next[2], next[3]);
+    }
+
+    /**
+     * Helper method: drops every cached node not reachable from the root or
+     * the empty nodes, along with all memoized results.
+     */
+    private void collect() {
+        for (Node head : table) {
+            for (Node n = head; n != null; n = n.next) {
+                n.result = null;
+                n.resultStep = -1;
+            }
+        }
+        table = new Node[Math.max(1 << 10, Integer.highestOneBit(Math.max(size, 1)))];
+        size = 0;
+        for (int level = 1; level < empty.length && empty[level] != null; level++) {
+            reinsert(empty[level]);
+        }
+        reinsert(root);
+    }
+
+    /**
+     * Helper method: puts a node and its descendants back into the table once.
+     *
+     * @param n the node to keep.
+     */
+    private void reinsert(Node n) {
+        if (n.level == 0) {
+            return;
+        }
+        int bucket = n.hash & (table.length - 1);
+        for (Node m = table[bucket]; m != null; m = m.next) {
+            if (m == n) {
+                return;
+            }
+        }
+        reinsert(n.nw);
+        reinsert(n.ne);
+        reinsert(n.sw);
+        reinsert(n.se);
+        insert(n);
+    }
+}
@@ -0,0 +1,345 @@
+import java.awt.Color;
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * HashMapBackend: the original storage and evolve algorithm. Cell state
+ * lives in a CellPlane (alive bits, short ages and palette indexes, about
+ * 3 bytes per cell). The Point to Cell map that getGrid() returns is only
+ * built when first asked for, and its Cells are views of the plane, so
+ * changes made through them show up in the simulation as before. The plane
+ * keeps running population and age totals through those changes too, so
+ * the statistics are O(1).
+ */
+public class HashMapBackend implements GridBackend {
+    /**
+     * The cell data, row-major.
+     */
+    private final CellPlane plane;
+
+    /**
+     * The grid of Cell views handed out by toMap, or null until first asked for.
+     */
+    private HashMap<Point, Cell> grid;
+
+    /**
+     * The number of rows the grid has.
+     */
+    private final int rows;
+
+    /**
+     * The number of cols the grid has.
+     */
+    private final int cols;
+
+    /**
+     * What lies past the edges.
+     */
+    private final Boundary boundary;
+
+    /**
+     * The lookup table for the rule evolve() applies.
+     */
+    private LifeTable table = LifeTable.CONWAY;
+
+    /**
+     * The number of cells born in the last generation.
+     */
+    private int lastBirths;
+
+    /**
+     * The number of cells that died in the last generation.
+     */
+    private int lastDeaths;
+
+    /**
+     * Main constructor. Cells past the edges are dead.
+     *
+     * @param rows the number of rows in the grid
+     * @param cols the number of columns in the grid
+     */
+    public HashMapBackend(int rows, int cols) {
+        this(rows, cols, Boundary.BOUNDED);
+    }
+
+    /**
+     * Constructor with a choice of boundary.
+     *
+     * @param rows the number of rows in the grid
+     * @param cols the number of columns in the grid
+     * @param boundary what lies past the edges
+     */
+    public HashMapBackend(int rows, int cols, Boundary boundary) {
+        this.rows = rows;
+        this.cols = cols;
+        this.boundary = boundary;
+        this.plane = new CellPlane(rows * cols, new Palette());
+    }
+
+    /**
+     * Helper method: the plane index of row/col, or -1 if out of range.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the index.
+     */
+    private int indexOf(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols ? row * cols + col : -1;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public boolean isAlive(int row, int col) {
+        int i = indexOf(row, col);
+        return i >= 0 && plane.isAlive(i);
+    }
+
+    @Override
+    public int getAge(int row, int col) {
+        int i = indexOf(row, col);
+        return i < 0 ? 0 : plane.getAge(i);
+    }
+
+    @Override
+    public void setAlive(int row, int col) {
+        int i = indexOf(row, col);
+        if (i >= 0) {
+            plane.setAlive(i);
+        }
+    }
+
+    @Override
+    public void setAlive(int row, int col, int age) {
+        int i = indexOf(row, col);
+        if (i >= 0) {
+            plane.setAlive(i);
+            plane.setAge(i, age);
+        }
+    }
+
+    @Override
+    public void setDead(int row, int col) {
+        int i = indexOf(row, col);
+        if (i >= 0 && plane.isAlive(i)) {
+            plane.kill(i);
+        }
+    }
+
+    @Override
+    public int countLiveNeighbors(int row, int col) {
+        return boundary.countLiveNeighbors(this, row, col);
+    }
+
+    /**
+     * Applies the rules cell by cell, rewriting the plane in place one row
+     * at a time. The old alive states of the row above and the current row
+     * are kept aside, so no second plane is needed and existing Cell views
+     * see the new generation. Each cell's 3x3 neighborhood is packed into an
+     * index as the row is walked and looked up in the rule's shared LifeTable.
+     * The row copies have a halo column at each end, and the rows past the
+     * top and bottom are set up once per generation for the boundary, so
+     * the cell loop has no per-neighbor branches or bounds checks.
+     * Survivors keep their color.
+     * O(rows * cols)
+     */
+    @Override
+    public void evolve() {
+        LifeTable table = this.table;
+        // row copies: column j is at j + 1, with the halo columns at 0 and cols + 1
+        int births = 0;
+        int deaths = 0;
+        boolean[] above = new boolean[cols + 2];
+        boolean[] current = new boolean[cols + 2];
+        boolean[] below = new boolean[cols + 2];
+        boolean[] first = new boolean[cols + 2];
+        loadRow(current, 0);
+        System.arraycopy(current, 0, first, 0, first.length);
+        if (boundary.wraps()) {
+            loadRow(above, rows - 1);
+            if (boundary.mirrorsRows()) {
+                mirror(above, above);
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            if (i + 1 < rows) {
+                loadRow(below, i + 1);
+            } else if (!boundary.wraps()) {
+                Arrays.fill(below, false);
+            } else if (boundary.mirrorsRows()) {
+                // row 0 has been rewritten by now, so wrap to its saved copy
+                mirror(first, below);
+            } else {
+                System.arraycopy(first, 0, below, 0, below.length);
+            }
+            int neighborhood = LifeTable.column(above[0], current[0], below[0]) << 3
+                    | LifeTable.column(above[1], current[1], below[1]) << 6;
+            for (int j = 0; j < cols; j++) {
+                int index = i * cols + j;
+                neighborhood = (neighborhood >>> 3)
+                        | (LifeTable.column(above[j + 2], current[j + 2], below[j + 2]) << 6);
+                if (table.next(neighborhood)) {
+                    if (current[j + 1]) {
+                        // alive cell survives
+                        plane.setAge(index, plane.getAge(index) + 1);
+                    } else {
+                        // dead cell comes back to life
+                        plane.setAlive(index);
+                        births++;
+                    }
+                } else {
+                    // alive cell dies; a dead cell loses any color it was given
+                    deaths += current[j + 1] ? 1 : 0;
+                    plane.kill(index);
+                }
+            }
+            boolean[] swap = above;
+            above = current;
+            current = below;
+            below = swap;
+        }
+        lastBirths = births;
+        lastDeaths = deaths;
+    }
+
+    @Override
+    public int getLastBirths() {
+        return lastBirths;
+    }
+
+    @Override
+    public int getLastDeaths() {
+        return lastDeaths;
+    }
+
+    /**
+     * Helper method: copies the alive states of a row into a row copy and
+     * fills its halo columns for the boundary.
+     * O(cols)
+     *
+     * @param dst the row copy, cols + 2 long.
+     * @param row the row to copy.
+     */
+    private void loadRow(boolean[] dst, int row) {
+        int base = row * cols;
+        for (int j = 0; j < cols; j++) {
+            dst[j + 1] = plane.isAlive(base + j);
+        }
+        boolean wraps = boundary.wraps();
+        dst[0] = wraps && dst[cols];
+        dst[cols + 1] = wraps && dst[1];
+    }
+
+    /**
+     * Helper method: writes a row copy reversed, halo columns included, as
+     * the row is seen across a mirrored edge. src and dst may be the same.
+     * O(cols)
+     *
+     * @param src the row copy to reverse.
+     * @param dst where to write it.
+     */
+    private static void mirror(boolean[] src, boolean[] dst) {
+        for (int i = 0, j = src.length - 1; i <= j; i++, j--) {
+            boolean left = src[i];
+            dst[i] = src[j];
+            dst[j] = left;
+        }
+    }
+
+    @Override
+    public void setRule(Rule rule) {
+        table = LifeTable.forRule(rule);
+    }
+
+    @Override
+    public Rule getRule() {
+        return table.getRule();
+    }
+
+    @Override
+    public void clear() {
+        plane.clear();
+    }
+
+    /**
+     * O(1), kept up to date by the plane.
+     */
+    @Override
+    public long getPopulation() {
+        return plane.getAliveCount();
+    }
+
+    /**
+     * O(1), kept up to date by the plane.
+     */
+    @Override
+    public double getAverageAge() {
+        return plane.getAverageAge();
+    }
+
+    /**
+     * O(1), kept up to date by the plane.
+     */
+    @Override
+    public int getMaxAge() {
+        return plane.getMaxAge();
+    }
+
+    @Override
+    public long getStateHash() {
+        return plane.getHash();
+    }
+
+    @Override
+    public Color getColor(int row, int col) {
+        int i = indexOf(row, col);
+        return i < 0 ? Color.WHITE : plane.getColor(i);
+    }
+
+    @Override
+    public void setColor(int row, int col, Color color) {
+        int i = indexOf(row, col);
+        if (i >= 0 && plane.isAlive(i)) {
+            plane.setColor(i, color);
+        }
+    }
+
+    @Override
+    public int getColorIndex(int row, int col) {
+        int i = indexOf(row, col);
+        return i < 0 ? Palette.DEFAULT : plane.getColorIndex(i);
+    }
+
+    @Override
+    public Palette getPalette() {
+        return plane.getPalette();
+    }
+
+    /**
+     * Returns the live map of Cell views, building it on the first call;
+     * changes to its cells show up in the simulation.
+     *
+     * @return the grid map.
+     */
+    @Override
+    public HashMap<Point, Cell> toMap() {
+        if (grid == null) {
+            grid = new HashMap<>();
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    grid.put(new Point(i, j), new Cell(plane, i * cols + j));
+                }
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,454 @@
+import java.util.Arrays;
+
+/**
+ * History: a memory-bounded record of past generations of a bounded grid,
+ * for stepping back and seeking.
+ *
+ * Each recorded generation is a frame. Most frames are deltas: the cells
+ * that flipped since the generation before, births and deaths alike, since
+ * a flip undoes itself. Every keyframeInterval generations, and after any
+ * edit or jump, a keyframe holds the whole live set instead. Both are lists
+ * of row-major cell indexes in ascending order, stored as varint gaps, so a
+ * delta costs one or two bytes per changed cell.
+ *
+ * Seeking decodes the nearest keyframe at or before the target and replays
+ * the deltas after it, so it costs the distance from that keyframe. When the
+ * frames outgrow the budget, the oldest keyframe and its deltas are evicted
+ * together, so the oldest frame kept is always a keyframe. Seeking restores
+ * the live cells only: ages start again at 1 and colors at the default.
+ */
+public class History {
+    /**
+     * The default number of generations between keyframes.
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 64;
+
+    /**
+     * The bytes a frame is counted as beyond its data, for the object and
+     * its slot in the ring.
+     */
+    private static final int FRAME_OVERHEAD = 48;
+
+    /**
+     * Frame: one recorded generation.
+     */
+    private static final class Frame {
+        /**
+         * The generation the frame records.
+         */
+        private final long generation;
+
+        /**
+         * How many frames back the nearest keyframe is; 0 for a keyframe.
+         */
+        private final int depth;
+
+        /**
+         * The varint-encoded cell indexes: live cells for a keyframe,
+         * flipped cells for a delta.
+         */
+        private final byte[] data;
+
+        /**
+         * Constructor for Frame.
+         *
+         * @param generation the generation recorded.
+         * @param depth the distance to the nearest keyframe.
+         * @param data the encoded cell indexes.
+         */
+        Frame(long generation, int depth, byte[] data) {
+            this.generation = generation;
+            this.depth = depth;
+            this.data = data;
+        }
+    }
+
+    /**
+     * The number of grid rows.
+     */
+    private final int rows;
+
+    /**
+     * The number of grid cols.
+     */
+    private final int cols;
+
+    /**
+     * The number of words per row of the image.
+     */
+    private final int stride;
+
+    /**
+     * The grid as of the newest frame, or as of the last seek: 64 cells per
+     * word laid out as in GridBackend.getWord, row by row.
+     */
+    private final long[] image;
+
+    /**
+     * The generation the image shows, or -1 if nothing is recorded.
+     */
+    private long imageGeneration = -1;
+
+    /**
+     * The backend's state hash when the image was taken, to spot edits.
+     */
+    private long imageHash;
+
+    /**
+     * The frames, oldest first, as a ring starting at head.
+     */
+    private Frame[] frames = new Frame[64];
+
+    /**
+     * The slot of the oldest frame.
+     */
+    private int head;
+
+    /**
+     * The number of frames in the ring.
+     */
+    private int size;
+
+    /**
+     * The bytes the frames take, overhead included.
+     */
+    private long bytes;
+
+    /**
+     * The most bytes the frames may take.
+     */
+    private long budget;
+
+    /**
+     * The largest number of deltas after a keyframe.
+     */
+    private final int keyframeInterval;
+
+    /**
+     * Scratch space frames are encoded into before being copied out.
+     */
+    private byte[] scratch = new byte[1024];
+
+    /**
+     * Main constructor.
+     *
+     * @param rows the number of grid rows.
+     * @param cols the number of grid cols.
+     * @param budget the most bytes the frames may take.
+     * @param keyframeInterval the largest number of deltas after a keyframe.
+     * @throws IllegalArgumentException if the budget or interval is not positive.
+     */
+    public History(int rows, int cols, long budget, int keyframeInterval) {
+        if (budget <= 0 || keyframeInterval <= 0) {
+            throw new IllegalArgumentException("History needs a positive budget and keyframe interval");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = (cols + 63) >>> 6;
+        this.image = new long[rows * stride];
+        this.budget = budget;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Makes sure the grid about to be evolved from the given generation is
+     * the one recorded for it. If the grid was edited since, or the
+     * generation was never recorded, it is recorded now as a keyframe.
+     * O(1) unless it records
+     *
+     * @param backend the grid.
+     * @param generation the generation it is at.
+     */
+    public void sync(GridBackend backend, long generation) {
+        if (generation != imageGeneration || backend.getStateHash() != imageHash) {
+            record(backend, generation);
+        }
+    }
+
+    /**
+     * Records the grid as the given generation. Frames for that generation
+     * or later are dropped first, since they belong to a future that no
+     * longer follows. The frame is a delta if the previous generation is the
+     * newest frame and the image still shows it, and a keyframe otherwise.
+     * A delta only reads the rows and words the backend says changed in the
+     * last generation, so with the bit-packed and off-heap backends it costs
+     * about as much as the evolve did; a keyframe reads the whole grid.
+     * O(rows + changed words + changed cells) for a delta on those backends,
+     * O(rows * cols / 64 + live cells) otherwise
+     *
+     * @param backend the grid.
+     * @param generation the generation it is at.
+     */
+    public void record(GridBackend backend, long generation) {
+        while (size > 0 && newest().generation >= generation) {
+            bytes -= cost(newest());
+            frames[slot(--size)] = null;
+        }
+        boolean delta = size > 0 && newest().generation == generation - 1
+                && imageGeneration == generation - 1 && newest().depth < keyframeInterval;
+        int length = 0;
+        int last = -1;
+        for (int r = 0; r < rows; r++) {
+            if (delta && !backend.isRowChanged(r)) {
+                continue;
+            }
+            for (int w = 0; w < stride; w++) {
+                if (delta && !backend.isWordChanged(r, w)) {
+                    continue;
+                }
+                int i = r * stride + w;
+                long now = backend.getWord(r, w);
+                long bits = delta ? now ^ image[i] : now;
+                image[i] = now;
+                for (; bits != 0; bits &= bits - 1) {
+                    int index = r * cols + (w << 6) + Long.numberOfTrailingZeros(bits);
+                    length = putVarint(length, index - last - 1);
+                    last = index;
+                }
+            }
+        }
+        imageGeneration = generation;
+        imageHash = backend.getStateHash();
+        append(new Frame(generation, delta ? newest().depth + 1 : 0, Arrays.copyOf(scratch, length)));
+        evict();
+    }
+
+    /**
+     * Puts the grid back as it was at a recorded generation.
+     * O(rows * cols / 64 + cells in the nearest keyframe and the deltas after it)
+     *
+     * @param backend the grid to overwrite.
+     * @param generation the generation to go to.
+     * @return true if the generation was recorded and the grid now shows it.
+     */
+    public boolean seek(GridBackend backend, long generation) {
+        int target = find(generation);
+        if (target < 0) {
+            return false;
+        }
+        int first = target - frames[slot(target)].depth;
+        Arrays.fill(image, 0L);
+        for (int f = first; f <= target; f++) {
+            // a keyframe's cells are set and a delta's are flipped, and
+            // flipping cells of a cleared image sets them
+            byte[] data = frames[slot(f)].data;
+            int index = -1;
+            int pos = 0;
+            while (pos < data.length) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[pos++];
+                    gap |= (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+                index += gap + 1;
+                int r = index / cols;
+                int c = index - r * cols;
+                image[r * stride + (c >>> 6)] ^= 1L << c;
+            }
+        }
+        backend.clear();
+        for (int r = 0; r < rows; r++) {
+            for (int w = 0; w < stride; w++) {
+                long bits = image[r * stride + w];
+                if (bits != 0) {
+                    backend.setWord(r, w, bits);
+                }
+            }
+        }
+        imageGeneration = generation;
+        imageHash = backend.getStateHash();
+        return true;
+    }
+
+    /**
+     * Helper method: finds the frame recording a generation. Generations
+     * rise from oldest to newest, so this is a binary search.
+     * O(log frames)
+     *
+     * @param generation the generation.
+     * @return its position from the oldest frame, or -1 if not recorded.
+     */
+    private int find(long generation) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long found = frames[slot(mid)].generation;
+            if (found < generation) {
+                low = mid + 1;
+            } else if (found > generation) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Helper method: appends a varint to the scratch space, growing it as needed.
+     *
+     * @param length the bytes used so far.
+     * @param value the value, not negative.
+     * @return the bytes used now.
+     */
+    private int putVarint(int length, int value) {
+        if (length + 5 > scratch.length) {
+            scratch = Arrays.copyOf(scratch, scratch.length * 2);
+        }
+        while ((value & ~0x7f) != 0) {
+            scratch[length++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        scratch[length++] = (byte) value;
+        return length;
+    }
+
+    /**
+     * Helper method: adds a frame after the newest, growing the ring as needed.
+     *
+     * @param frame the frame.
+     */
+    private void append(Frame frame) {
+        if (size == frames.length) {
+            Frame[] grown = new Frame[size * 2];
+            for (int i = 0; i < size; i++) {
+                grown[i] = frames[slot(i)];
+            }
+            frames = grown;
+            head = 0;
+        }
+        frames[slot(size++)] = frame;
+        bytes += cost(frame);
+    }
+
+    /**
+     * Helper method: drops the oldest keyframe and its deltas until the
+     * frames fit the budget. The newest keyframe and its deltas are always
+     * kept, so the current generation stays reachable.
+     */
+    private void evict() {
+        while (bytes > budget) {
+            int next = 1;
+            while (next < size && frames[slot(next)].depth != 0) {
+                next++;
+            }
+            if (next >= size) {
+                return;
+            }
+            for (int i = 0; i < next; i++) {
+                bytes -= cost(frames[head]);
+                frames[head] = null;
+                head = head + 1 == frames.length ? 0 : head + 1;
+            }
+            size -= next;
+        }
+    }
+
+    /**
+     * Helper method: the ring slot of the frame a given number of frames
+     * after the oldest.
+     *
+     * @param i the position from the oldest frame.
+     * @return the slot.
+     */
+    private int slot(int i) {
+        int s = head + i;
+        return s >= frames.length ? s - frames.length : s;
+    }
+
+    /**
+     * Helper method: the newest frame.
+     *
+     * @return the frame; there must be one.
+     */
+    private Frame newest() {
+        return frames[slot(size - 1)];
+    }
+
+    /**
+     * Helper method: the bytes a frame is counted as.
+     *
+     * @param frame the frame.
+     * @return its data length plus overhead.
+     */
+    private static long cost(Frame frame) {
+        return frame.data.length + FRAME_OVERHEAD;
+    }
+
+    /**
+     * Sets the most bytes the frames may take, evicting frames if needed.
+     *
+     * @param budget the budget in bytes.
+     * @throws IllegalArgumentException if the budget is not positive.
+     */
+    public void setBudget(long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("History needs a positive budget");
+        }
+        this.budget = budget;
+        evict();
+    }
+
+    /**
+     * Returns the most bytes the frames may take.
+     *
+     * @return the budget in bytes.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the bytes the frames take. The newest keyframe and its deltas
+     * are kept even past the budget.
+     *
+     * @return the bytes in use, overhead included.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the oldest generation that can be sought.
+     *
+     * @return the generation, or -1 if nothing is recorded.
+     */
+    public long getOldestGeneration() {
+        return size == 0 ? -1 : frames[head].generation;
+    }
+
+    /**
+     * Returns the newest generation that can be sought.
+     *
+     * @return the generation, or -1 if nothing is recorded.
+     */
+    public long getNewestGeneration() {
+        return size == 0 ? -1 : newest().generation;
+    }
+
+    /**
+     * Returns whether a generation can be sought. Generations skipped over
+     * by a jump are not recorded.
+     *
+     * @param generation the generation.
+     * @return true if it is recorded.
+     */
+    public boolean contains(long generation) {
+        return find(generation) >= 0;
+    }
+
+    /**
+     * Forgets every frame.
+     */
+    public void clear() {
+        Arrays.fill(frames, null);
+        head = 0;
+        size = 0;
+        bytes = 0;
+        imageGeneration = -1;
+    }
+}
@@ -0,0 +1,167 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram: counts non-negative values, such as durations in
+ * nanoseconds, in log-linear buckets, for percentiles without keeping the
+ * values themselves.
+ *
+ * Values below 8 have a bucket each. Above that, every power of two is split
+ * into 8 equal buckets, so a percentile is reported to within 12.5% of the
+ * true value, from nanoseconds up to centuries, in a fixed 488 buckets.
+ * Recording is lock-free and allocation-free, so one thread can record
+ * while others read.
+ */
+public class LatencyHistogram {
+    /**
+     * The number of buckets each power of two is split into, as a shift.
+     */
+    private static final int SUB_BITS = 3;
+
+    /**
+     * The number of buckets each power of two is split into.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * The number of buckets: the values below SUB_BUCKETS, then SUB_BUCKETS
+     * for each power of two from SUB_BUCKETS up to 2^62.
+     */
+    private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BITS);
+
+    /**
+     * The number of values in each bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * The number of values recorded.
+     */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * The sum of the values recorded.
+     */
+    private final AtomicLong sum = new AtomicLong();
+
+    /**
+     * The largest value recorded.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are counted as 0.
+     * O(1)
+     *
+     * @param value the value.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucket(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        long seen = max.get();
+        while (v > seen && !max.compareAndSet(seen, v)) {
+            seen = max.get();
+        }
+    }
+
+    /**
+     * Helper method: the bucket a value falls in.
+     *
+     * @param value the value, not negative.
+     * @return the bucket index.
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Helper method: the largest value that falls in a bucket.
+     *
+     * @param bucket the bucket index.
+     * @return the bucket's upper bound.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall, as the upper bound of its bucket but no more than the
+     * largest value recorded. Values recorded during the call may or may
+     * not be counted.
+     * O(buckets)
+     *
+     * @param percentile the percentage, from 0 to 100.
+     * @return the value, or 0 if nothing is recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return the value, or 0 if nothing is recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     *
+     * @return the mean, or 0 if nothing is recorded.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0.0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the count.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Forgets every value. Values recorded during the call may survive it.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * LifeTable: the next state of a cell for every possible 3x3 neighborhood,
+ * so evolving a cell is one array read instead of eight bounds-checked
+ * neighbor tests.
+ *
+ * A neighborhood is packed into a 9-bit index column by column: the left
+ * column in bits 0-2, the cell's own column in bits 3-5 and the right
+ * column in bits 6-8, top to bottom within each. The cell itself is bit 4.
+ * Walking along a row, the next index is (index >>> 3) | (newColumn << 6),
+ * so each step reads only the three cells entering on the right.
+ *
+ * There is one table per Rule, built the first time the rule is used and
+ * shared by every Simulation from then on.
+ */
+public final class LifeTable {
+    /**
+     * The number of neighborhoods.
+     */
+    public static final int SIZE = 1 << 9;
+
+    /**
+     * The bit of the index holding the cell itself.
+     */
+    public static final int CENTER = 4;
+
+    /**
+     * The tables built so far, by rule.
+     */
+    private static final Map<Rule, LifeTable> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * The table for B3/S23.
+     */
+    public static final LifeTable CONWAY = forRule(Rule.CONWAY);
+
+    /**
+     * The rule the table applies.
+     */
+    private final Rule rule;
+
+    /**
+     * The next state by neighborhood index, 1 for alive.
+     */
+    private final byte[] next = new byte[SIZE];
+
+    /**
+     * How long building the table took, in nanoseconds.
+     */
+    private final long buildNanos;
+
+    /**
+     * Helper constructor: builds the table for a rule and logs its cost.
+     *
+     * @param rule the rule to apply.
+     */
+    private LifeTable(Rule rule) {
+        this.rule = rule;
+        long start = System.nanoTime();
+        for (int index = 0; index < SIZE; index++) {
+            int neighbors = Integer.bitCount(index & ~(1 << CENTER));
+            boolean alive = (index & (1 << CENTER)) != 0;
+            next[index] = (byte) (rule.next(alive, neighbors) ? 1 : 0);
+        }
+        buildNanos = System.nanoTime() - start;
+        DebugLogger.debug("LifeTable: %s, %d entries, %d bytes, built in %.1f us",
+                rule, SIZE, getBytes(), buildNanos / 1e3);
+    }
+
+    /**
+     * Returns the shared table for a rule, building it on first use.
+     *
+     * @param rule the rule.
+     * @return the table.
+     */
+    public static LifeTable forRule(Rule rule) {
+        return TABLES.computeIfAbsent(rule, LifeTable::new);
+    }
+
+    /**
+     * Returns the rule the table applies.
+     *
+     * @return the rule.
+     */
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * Returns the next state of the cell at the middle of a neighborhood.
+     * O(1)
+     *
+     * @param index the packed neighborhood.
+     * @return true if the cell is alive next generation.
+     */
+    public boolean next(int index) {
+        return next[index] != 0;
+    }
+
+    /**
+     * Packs one column of a neighborhood, top to bottom, for the high bits
+     * of the index.
+     *
+     * @param top whether the top cell is alive.
+     * @param middle whether the middle cell is alive.
+     * @param bottom whether the bottom cell is alive.
+     * @return the column, 0 to 7.
+     */
+    public static int column(boolean top, boolean middle, boolean bottom) {
+        return (top ? 1 : 0) | (middle ? 2 : 0) | (bottom ? 4 : 0);
+    }
+
+    /**
+     * Returns how long building the table took.
+     *
+     * @return the build time in nanoseconds.
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * Returns the memory the table's entries take.
+     *
+     * @return the size in bytes.
+     */
+    public int getBytes() {
+        return next.length;
+    }
+}
@@ -0,0 +1,327 @@
+import java.util.Arrays;
+
+/**
+ * LongIntHashMap: an open-addressing hash map from primitive long keys to
+ * int values, with linear probing and no boxing. Removal shifts later
+ * entries of the probe run back instead of leaving tombstones.
+ *
+ * Free slots hold Long.MIN_VALUE, so that one key lives in a dedicated
+ * extra slot at index capacity. Iterate with slots(), isUsed(), keyAt() and
+ * valueAt().
+ *
+ * The table doubles when half full and halves again, down to the size it
+ * was made for, once fewer than 1/8 of its slots are used, so memory and
+ * iteration follow the current number of keys rather than the peak.
+ */
+public class LongIntHashMap {
+    /**
+     * The marker for a free slot.
+     */
+    private static final long FREE = Long.MIN_VALUE;
+
+    /**
+     * The key of each slot, FREE when unused.
+     */
+    private long[] keys;
+
+    /**
+     * The value of each slot; index keys.length holds the FREE key's value.
+     */
+    private int[] values;
+
+    /**
+     * Whether the FREE key itself is in the map.
+     */
+    private boolean hasFreeKey;
+
+    /**
+     * The number of keys in the map.
+     */
+    private int size;
+
+    /**
+     * keys.length - 1, for masking hashes into slots.
+     */
+    private int mask;
+
+    /**
+     * The capacity the table was made with; it never shrinks below this.
+     */
+    private final int minCapacity;
+
+    /**
+     * Main constructor.
+     *
+     * @param expected the number of keys to size the table for.
+     */
+    public LongIntHashMap(int expected) {
+        minCapacity = capacityFor(expected);
+        allocate(minCapacity);
+    }
+
+    /**
+     * Helper method: the capacity that holds a number of keys at most half full.
+     *
+     * @param keys the number of keys.
+     * @return the capacity, a power of two.
+     */
+    private static int capacityFor(int keys) {
+        return Integer.highestOneBit(Math.max(keys, 8) * 2 - 1) << 1;
+    }
+
+    /**
+     * Helper method: replaces the table with an empty one.
+     *
+     * @param capacity the number of slots, a power of two.
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new int[capacity + 1];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Helper method: spreads the bits of a key so nearby cells land in
+     * different slots.
+     *
+     * @param key the key.
+     * @return the home slot of the key.
+     */
+    private int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     *
+     * @return the size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the key is in the map.
+     *
+     * @param key the key.
+     * @return true if present.
+     */
+    public boolean containsKey(long key) {
+        if (key == FREE) {
+            return hasFreeKey;
+        }
+        for (int i = slot(key); keys[i] != FREE; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key the key.
+     * @param defaultValue the value to return when the key is absent.
+     * @return the value, or defaultValue.
+     */
+    public int get(long key, int defaultValue) {
+        if (key == FREE) {
+            return hasFreeKey ? values[keys.length] : defaultValue;
+        }
+        for (int i = slot(key); keys[i] != FREE; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Sets the value of a key, adding the key if needed.
+     *
+     * @param key the key.
+     * @param value the value.
+     */
+    public void put(long key, int value) {
+        // find first: it may grow the table and replace values
+        int i = find(key);
+        values[i] = value;
+    }
+
+    /**
+     * Adds delta to the value of a key, treating an absent key as 0.
+     *
+     * @param key the key.
+     * @param delta the amount to add.
+     * @return the new value.
+     */
+    public int addTo(long key, int delta) {
+        int i = find(key);
+        values[i] += delta;
+        return values[i];
+    }
+
+    /**
+     * Helper method: returns the slot of a key, adding it with value 0 if absent.
+     *
+     * @param key the key.
+     * @return the index into values.
+     */
+    private int find(long key) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                values[keys.length] = 0;
+                size++;
+            }
+            return keys.length;
+        }
+        int i = slot(key);
+        while (keys[i] != FREE) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+            return find(key);
+        }
+        keys[i] = key;
+        values[i] = 0;
+        size++;
+        return i;
+    }
+
+    /**
+     * Removes a key. The entries after it in its probe run are moved back
+     * to close the gap, so lookups never need to skip deleted slots.
+     * O(1) expected
+     *
+     * @param key the key.
+     * @return true if the key was in the map.
+     */
+    public boolean remove(long key) {
+        if (key == FREE) {
+            boolean had = hasFreeKey;
+            if (had) {
+                hasFreeKey = false;
+                size--;
+            }
+            return had;
+        }
+        int i = slot(key);
+        while (keys[i] != key) {
+            if (keys[i] == FREE) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        size--;
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            // an entry can fill the gap if its home slot is not between the gap and it
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = FREE;
+        if (size < keys.length >>> 3 && keys.length > minCapacity) {
+            rehash(Math.max(capacityFor(size), minCapacity));
+        }
+        return true;
+    }
+
+    /**
+     * Helper method: doubles the table, keeping every entry.
+     */
+    private void grow() {
+        rehash(keys.length << 1);
+    }
+
+    /**
+     * Helper method: moves every entry into a table of a new size.
+     * O(old capacity + new capacity)
+     *
+     * @param capacity the new number of slots, a power of two above size * 2.
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        values[keys.length] = oldValues[oldKeys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int j = slot(oldKeys[i]);
+                while (keys[j] != FREE) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Removes every key. If fewer than 1/8 of the slots were in use the table
+     * shrinks to fit that many keys, so a map refilled every generation
+     * follows the population; otherwise it keeps its capacity.
+     * O(capacity)
+     */
+    public void clear() {
+        if (size < keys.length >>> 3 && keys.length > minCapacity) {
+            allocate(Math.max(capacityFor(size), minCapacity));
+        } else {
+            Arrays.fill(keys, FREE);
+        }
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    /**
+     * Returns the number of slots to iterate over, including the extra slot.
+     *
+     * @return the slot count.
+     */
+    public int slots() {
+        return keys.length + 1;
+    }
+
+    /**
+     * Returns whether a slot holds a key.
+     *
+     * @param slot the slot, from 0 to slots() - 1.
+     * @return true if the slot is in use.
+     */
+    public boolean isUsed(int slot) {
+        return slot == keys.length ? hasFreeKey : keys[slot] != FREE;
+    }
+
+    /**
+     * Returns the key in a used slot.
+     *
+     * @param slot the slot.
+     * @return the key.
+     */
+    public long keyAt(int slot) {
+        return slot == keys.length ? FREE : keys[slot];
+    }
+
+    /**
+     * Returns the value in a used slot.
+     *
+     * @param slot the slot.
+     * @return the value.
+     */
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+}
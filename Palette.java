@@ -0,0 +1,119 @@
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * Palette: the colors cells can be painted in, so each cell stores a
+ * one-byte index instead of a Color reference.
+ *
+ * Index 0 means "the default": Cell.defaultAliveColor for a live cell and
+ * white for a dead one. It is resolved when the color is asked for, so
+ * changing the default recolors every cell still using it. Other indexes
+ * are handed out in order and never change their color. Once all 255 are
+ * used, new colors share the index of the closest one already there. The
+ * table grows as colors are added, so a palette for a single cell stays
+ * small.
+ */
+public class Palette {
+    /**
+     * The index meaning "use the default color".
+     */
+    public static final int DEFAULT = 0;
+
+    /**
+     * The largest number of indexes, DEFAULT included.
+     */
+    private static final int CAPACITY = 256;
+
+    /**
+     * The colors by index; entry 0 is unused. Grown up to CAPACITY.
+     */
+    private Color[] colors = new Color[2];
+
+    /**
+     * The number of indexes in use, including DEFAULT.
+     */
+    private int size = 1;
+
+    /**
+     * Returns the index for a color, adding it if there is room.
+     * O(palette size)
+     *
+     * @param color the color.
+     * @return the index, 1 to 255.
+     */
+    public int indexOf(Color color) {
+        int closest = 1;
+        long closestDistance = Long.MAX_VALUE;
+        for (int i = 1; i < size; i++) {
+            if (colors[i].equals(color)) {
+                return i;
+            }
+            long distance = distance(colors[i], color);
+            if (distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+        if (size < CAPACITY) {
+            if (size == colors.length) {
+                colors = Arrays.copyOf(colors, Math.min(size * 2, CAPACITY));
+            }
+            colors[size] = color;
+            return size++;
+        }
+        return closest;
+    }
+
+    /**
+     * Helper method: squared distance between two colors in RGB space.
+     *
+     * @param a the first color.
+     * @param b the second color.
+     * @return the squared distance.
+     */
+    private static long distance(Color a, Color b) {
+        long dr = a.getRed() - b.getRed();
+        long dg = a.getGreen() - b.getGreen();
+        long db = a.getBlue() - b.getBlue();
+        return dr * dr + dg * dg + db * db;
+    }
+
+    /**
+     * Returns the color of an index.
+     * O(1)
+     *
+     * @param index the index, as stored (0 to 255).
+     * @param alive whether the cell is alive, which decides the default.
+     * @return the color.
+     */
+    public Color colorAt(int index, boolean alive) {
+        if (index == DEFAULT || index >= size) {
+            return alive ? Cell.defaultAliveColor : Color.WHITE;
+        }
+        return colors[index];
+    }
+
+    /**
+     * Returns a copy of the colors by index, DEFAULT's entry null, for
+     * resolving indexes on another thread.
+     *
+     * @return the colors.
+     */
+    public Color[] toArray() {
+        return Arrays.copyOf(colors, size);
+    }
+
+    /**
+     * Returns a palette with the same colors at the same indexes, for a copy
+     * of the grid whose color changes should not reach this one.
+     * O(palette size)
+     *
+     * @return the copy.
+     */
+    public Palette copy() {
+        Palette copy = new Palette();
+        copy.colors = Arrays.copyOf(colors, colors.length);
+        copy.size = size;
+        return copy;
+    }
+}
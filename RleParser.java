@@ -0,0 +1,310 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * RleParser: a streaming decoder for the RLE pattern format. Characters are
+ * fed one at a time through a small state machine, and every run of live
+ * cells goes straight to a Sink. Body lines are never turned into Strings,
+ * and no boolean[][] is built, so input of any size parses in constant memory.
+ *
+ * The "x = , y = , rule =" header line is reported to the sink before any
+ * cells. '#' lines are skipped. In multi-state files every non-zero state
+ * counts as alive.
+ */
+public class RleParser {
+
+    /**
+     * Sink: receives the decoded pattern.
+     */
+    public interface Sink {
+        /**
+         * Called once for the header line, before any runs.
+         *
+         * @param width the x value of the header.
+         * @param height the y value of the header.
+         * @param rule the rule value, or null if the header has none.
+         */
+        void header(int width, int height, String rule);
+
+        /**
+         * Called for each horizontal run of live cells.
+         *
+         * @param row the row of the run, relative to the pattern.
+         * @param col the first column of the run, relative to the pattern.
+         * @param length the number of live cells in the run.
+         */
+        void run(int row, int col, int length);
+    }
+
+    /**
+     * State: at the start of a line.
+     */
+    private static final int LINE_START = 0;
+
+    /**
+     * State: inside a '#' comment line.
+     */
+    private static final int COMMENT = 1;
+
+    /**
+     * State: inside the header line.
+     */
+    private static final int HEADER = 2;
+
+    /**
+     * State: inside the run-length encoded cells.
+     */
+    private static final int BODY = 3;
+
+    /**
+     * State: after the closing '!'.
+     */
+    private static final int DONE = 4;
+
+    /**
+     * The size of the buffer used when reading from a Reader.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Where decoded cells go.
+     */
+    private final Sink sink;
+
+    /**
+     * The current state.
+     */
+    private int state = LINE_START;
+
+    /**
+     * Whether any body characters have been seen; a line starting with 'x'
+     * is only a header before that.
+     */
+    private boolean bodyStarted;
+
+    /**
+     * The header line, collected only while in the HEADER state.
+     */
+    private final StringBuilder header = new StringBuilder();
+
+    /**
+     * The run count read so far, 0 if no digits are pending.
+     */
+    private int count;
+
+    /**
+     * The current row, relative to the pattern.
+     */
+    private int row;
+
+    /**
+     * The current column, relative to the pattern.
+     */
+    private int col;
+
+    /**
+     * The number of input bytes (or chars) consumed.
+     */
+    private long bytes;
+
+    /**
+     * Time spent parsing, in nanoseconds.
+     */
+    private long nanos;
+
+    /**
+     * Main constructor.
+     *
+     * @param sink where decoded cells go.
+     */
+    public RleParser(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Parses everything a Reader supplies, up to the closing '!'.
+     *
+     * @param in the source; not closed.
+     * @throws IOException if reading fails.
+     */
+    public void parse(Reader in) throws IOException {
+        long start = System.nanoTime();
+        char[] buffer = new char[BUFFER_SIZE];
+        int n;
+        while (state != DONE && (n = in.read(buffer)) > 0) {
+            int i = 0;
+            while (i < n && state != DONE) {
+                feed(buffer[i++]);
+            }
+            bytes += i;
+        }
+        nanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Parses the remaining bytes of a buffer, such as a memory-mapped file,
+     * up to the closing '!'. The buffer's position ends after the last byte read.
+     *
+     * @param in the source.
+     */
+    public void parse(ByteBuffer in) {
+        long start = System.nanoTime();
+        int from = in.position();
+        while (state != DONE && in.hasRemaining()) {
+            feed((char) (in.get() & 0xff));
+        }
+        bytes += in.position() - from;
+        nanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Parses lines that have already been read, as if joined by newlines.
+     *
+     * @param lines the lines of the file.
+     */
+    public void parse(List<String> lines) {
+        long start = System.nanoTime();
+        for (String line : lines) {
+            for (int i = 0; i < line.length() && state != DONE; i++) {
+                feed(line.charAt(i));
+            }
+            feed('\n');
+            bytes += line.length() + 1;
+        }
+        nanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Helper method: advances the state machine by one character.
+     *
+     * @param ch the next input character.
+     */
+    private void feed(char ch) {
+        switch (state) {
+            case LINE_START:
+                if (ch == '#') {
+                    state = COMMENT;
+                } else if (ch == 'x' && !bodyStarted) {
+                    header.setLength(0);
+                    header.append(ch);
+                    state = HEADER;
+                } else if (ch != '\n' && ch != '\r' && ch != ' ' && ch != '\t') {
+                    state = BODY;
+                    body(ch);
+                }
+                break;
+            case COMMENT:
+                if (ch == '\n') {
+                    state = LINE_START;
+                }
+                break;
+            case HEADER:
+                if (ch == '\n') {
+                    parseHeader();
+                    state = LINE_START;
+                } else {
+                    header.append(ch);
+                }
+                break;
+            case BODY:
+                if (ch == '\n') {
+                    state = LINE_START;
+                } else {
+                    body(ch);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Helper method: handles one character of the cell data.
+     *
+     * @param ch the character.
+     */
+    private void body(char ch) {
+        bodyStarted = true;
+        if (ch >= '0' && ch <= '9') {
+            count = count * 10 + (ch - '0');
+            return;
+        }
+        int n = count == 0 ? 1 : count;
+        if (ch == 'b' || ch == '.') {
+            col += n;
+        } else if (ch == 'o' || (ch >= 'A' && ch <= 'X')) {
+            sink.run(row, col, n);
+            col += n;
+        } else if (ch == '$') {
+            row += n;
+            col = 0;
+        } else if (ch == '!') {
+            state = DONE;
+        } else {
+            // multi-state prefixes (p to y), whitespace and anything unknown
+            return;
+        }
+        count = 0;
+    }
+
+    /**
+     * Helper method: reads x, y and rule out of the collected header line and
+     * passes them to the sink. The rule runs to the end of the line, and any
+     * ":" topology suffix is dropped.
+     */
+    private void parseHeader() {
+        int width = 0;
+        int height = 0;
+        String rule = null;
+        String line = header.toString();
+        int at = 0;
+        while (at < line.length()) {
+            int eq = line.indexOf('=', at);
+            if (eq < 0) {
+                break;
+            }
+            String key = line.substring(at, eq).trim();
+            int comma = line.indexOf(',', eq);
+            if (key.equalsIgnoreCase("rule")) {
+                rule = line.substring(eq + 1).trim();
+                int colon = rule.indexOf(':');
+                if (colon >= 0) {
+                    rule = rule.substring(0, colon).trim();
+                }
+                break;
+            }
+            String value = (comma < 0 ? line.substring(eq + 1) : line.substring(eq + 1, comma)).trim();
+            try {
+                if (key.equals("x")) {
+                    width = Integer.parseInt(value);
+                } else if (key.equals("y")) {
+                    height = Integer.parseInt(value);
+                }
+            } catch (NumberFormatException e) {
+                // leave the dimension at 0
+            }
+            at = comma < 0 ? line.length() : comma + 1;
+        }
+        sink.header(width, height, rule);
+    }
+
+    /**
+     * Returns the number of bytes (or chars) consumed so far.
+     *
+     * @return the input size.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the parse throughput so far.
+     *
+     * @return megabytes (10^6 bytes) per second, or 0 if nothing was timed.
+     */
+    public double getMegabytesPerSecond() {
+        return nanos == 0 ? 0.0 : bytes / 1e6 / (nanos / 1e9);
+    }
+}
@@ -0,0 +1,864 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShardCoordinator: runs a grid split into rectangular shards, each owned by
+ * a ShardWorker, usually in a process of its own.
+ *
+ * The grid is cut into shardRows by shardCols shards of near-equal size.
+ * The coordinator tells each worker where its shard lies and which workers
+ * are across its edges, routes cell edits to the owning shard in batches,
+ * and drives the generations: step() starts every worker on the same
+ * number of generations and waits for all of them, which is the barrier
+ * between steps. The workers swap halo cells among themselves, so the
+ * coordinator only carries commands and statistics. getAliveCells and the
+ * age statistics add up the workers' own.
+ *
+ * BOUNDED and TORUS grids are supported. A KLEIN_BOTTLE would need the
+ * top and bottom shards mirrored onto each other, which the shard layout
+ * does not do.
+ *
+ * Usage:
+ *   java ShardCoordinator [options] pattern.rle
+ *
+ * Options:
+ *   -g, --generations N  generations to run (default 1000)
+ *   -s, --size RxC       grid size (default 1024x1024)
+ *   --shards RxC         shard layout (default 2x2)
+ *   --boundary NAME      BOUNDED or TORUS (default BOUNDED)
+ *   -r, --rule RULE      a rule such as B36/S23, overriding the file's
+ *   --unix               launch workers on Unix domain sockets, not TCP
+ *   --workers A,B,...    use running workers at these addresses, one per
+ *                        shard row by row, instead of launching local JVMs
+ */
+public class ShardCoordinator implements Closeable {
+    /**
+     * The most cells queued for one shard before they are sent.
+     */
+    private static final int BATCH_CELLS = 4096;
+
+    /**
+     * Worker: the coordinator's connection to one worker.
+     */
+    private static final class Worker {
+        /**
+         * The channel.
+         */
+        private final SocketChannel channel;
+
+        /**
+         * Replies from the worker.
+         */
+        private final DataInputStream in;
+
+        /**
+         * Commands to the worker.
+         */
+        private final DataOutputStream out;
+
+        /**
+         * Cells queued for the worker, as row, col pairs.
+         */
+        private final int[] cells = new int[2 * BATCH_CELLS];
+
+        /**
+         * The number of ints used in cells.
+         */
+        private int queued;
+
+        /**
+         * Constructor for Worker: connects and says hello.
+         *
+         * @param address the worker's address.
+         * @throws IOException if the connection fails.
+         */
+        Worker(String address) throws IOException {
+            channel = ShardWorker.connect(address);
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeByte(ShardWorker.HELLO_COORDINATOR);
+        }
+    }
+
+    /**
+     * LocalWorkers: worker JVMs started on this machine.
+     */
+    public static final class LocalWorkers implements Closeable {
+        /**
+         * The worker processes.
+         */
+        private final List<Process> processes = new ArrayList<>();
+
+        /**
+         * The address each worker listens on.
+         */
+        private final List<String> addresses = new ArrayList<>();
+
+        /**
+         * Returns the address each worker listens on.
+         *
+         * @return the addresses, in launch order.
+         */
+        public List<String> getAddresses() {
+            return addresses;
+        }
+
+        /**
+         * Waits for the workers to exit, as they do once their coordinator
+         * is closed, and kills any still running after a few seconds, such
+         * as those no coordinator ever reached.
+         */
+        @Override
+        public void close() {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            for (Process process : processes) {
+                try {
+                    if (!process.waitFor(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                        process.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * The number of grid rows.
+     */
+    private final int rows;
+
+    /**
+     * The number of grid cols.
+     */
+    private final int cols;
+
+    /**
+     * The first grid row of each shard row, then rows.
+     */
+    private final int[] rowStarts;
+
+    /**
+     * The first grid column of each shard column, then cols.
+     */
+    private final int[] colStarts;
+
+    /**
+     * The workers, row by row.
+     */
+    private final Worker[] workers;
+
+    /**
+     * The rule the workers run.
+     */
+    private Rule rule;
+
+    /**
+     * The total live cells as of the last report.
+     */
+    private long aliveCells;
+
+    /**
+     * The total age of the live cells as of the last report.
+     */
+    private long totalAge;
+
+    /**
+     * The oldest age as of the last report.
+     */
+    private int maxAge;
+
+    /**
+     * The generation as of the last report.
+     */
+    private long generation;
+
+    /**
+     * Whether the cells changed since the last report.
+     */
+    private boolean stale = true;
+
+    /**
+     * Main constructor: connects to one worker per shard and sets them up.
+     *
+     * @param rows the number of grid rows.
+     * @param cols the number of grid cols.
+     * @param shardRows the number of shards down the grid.
+     * @param shardCols the number of shards across the grid.
+     * @param boundary BOUNDED or TORUS.
+     * @param rule the rule to run.
+     * @param addresses the workers' addresses, one per shard, row by row.
+     * @throws IllegalArgumentException if the layout does not fit the grid,
+     *         the boundary is not supported, or the worker count is wrong.
+     * @throws IOException if a worker cannot be reached or set up.
+     */
+    public ShardCoordinator(int rows, int cols, int shardRows, int shardCols, Boundary boundary, Rule rule,
+            List<String> addresses) throws IOException {
+        checkLayout(rows, cols, shardRows, shardCols, boundary);
+        if (addresses.size() != shardRows * shardCols) {
+            throw new IllegalArgumentException("Expected " + shardRows * shardCols + " workers, not " + addresses.size());
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.rule = rule;
+        rowStarts = cuts(rows, shardRows);
+        colStarts = cuts(cols, shardCols);
+        workers = new Worker[addresses.size()];
+        try {
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Worker(addresses.get(i));
+            }
+            // every worker must be setting up before any can finish, since
+            // they connect to each other
+            for (int i = 0; i < shardRows; i++) {
+                for (int j = 0; j < shardCols; j++) {
+                    DataOutputStream out = workers[i * shardCols + j].out;
+                    out.writeByte(ShardWorker.INIT);
+                    out.writeInt(rowStarts[i]);
+                    out.writeInt(colStarts[j]);
+                    out.writeInt(rowStarts[i + 1] - rowStarts[i]);
+                    out.writeInt(colStarts[j + 1] - colStarts[j]);
+                    out.writeUTF(rule.toString());
+                    writeLink(out, boundary, j, shardCols, i * shardCols + j - 1,
+                            i * shardCols + (j == 0 ? shardCols - 1 : j - 1), false, addresses);
+                    writeLink(out, boundary, j, shardCols, i * shardCols + j + 1,
+                            i * shardCols + (j + 1 == shardCols ? 0 : j + 1), true, addresses);
+                    writeLink(out, boundary, i, shardRows, (i - 1) * shardCols + j,
+                            (i == 0 ? shardRows - 1 : i - 1) * shardCols + j, false, addresses);
+                    writeLink(out, boundary, i, shardRows, (i + 1) * shardCols + j,
+                            (i + 1 == shardRows ? 0 : i + 1) * shardCols + j, true, addresses);
+                    out.flush();
+                }
+            }
+            for (Worker worker : workers) {
+                expectOk(worker);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks that a grid can be sharded as asked.
+     *
+     * @param rows the number of grid rows.
+     * @param cols the number of grid cols.
+     * @param shardRows the number of shards down the grid.
+     * @param shardCols the number of shards across the grid.
+     * @param boundary the grid's boundary.
+     * @throws IllegalArgumentException if the layout does not fit the grid
+     *         or the boundary is not supported.
+     */
+    public static void checkLayout(int rows, int cols, int shardRows, int shardCols, Boundary boundary) {
+        if (shardRows < 1 || shardCols < 1 || shardRows > rows || shardCols > cols) {
+            throw new IllegalArgumentException("Cannot cut a " + rows + "x" + cols + " grid into "
+                    + shardRows + "x" + shardCols + " shards");
+        }
+        if (boundary == Boundary.KLEIN_BOTTLE) {
+            throw new IllegalArgumentException("Sharded grids cannot use boundary " + boundary);
+        }
+    }
+
+    /**
+     * Helper method: writes one edge's link for an INIT command.
+     *
+     * @param out the command being written.
+     * @param boundary the grid's boundary.
+     * @param index the shard's index along the edge's axis.
+     * @param count the number of shards along that axis.
+     * @param inside the neighbor's worker if the edge is inside the grid.
+     * @param wrapped the neighbor's worker if the edge wraps.
+     * @param connects whether this worker connects to the neighbor, and so
+     *        needs its address; true for the right and lower edges.
+     * @param addresses the workers' addresses.
+     * @throws IOException if writing fails.
+     */
+    private static void writeLink(DataOutputStream out, Boundary boundary, int index, int count, int inside,
+            int wrapped, boolean connects, List<String> addresses) throws IOException {
+        boolean edge = connects ? index == count - 1 : index == 0;
+        if (edge && !boundary.wraps()) {
+            out.writeByte(ShardWorker.NONE);
+        } else if (count == 1) {
+            out.writeByte(ShardWorker.SELF);
+        } else {
+            out.writeByte(ShardWorker.PEER);
+            if (connects) {
+                out.writeUTF(addresses.get(edge ? wrapped : inside));
+            }
+        }
+    }
+
+    /**
+     * Helper method: splits a length into near-equal parts.
+     *
+     * @param length the length.
+     * @param parts the number of parts.
+     * @return the start of each part, then the length.
+     */
+    private static int[] cuts(int length, int parts) {
+        int[] starts = new int[parts + 1];
+        for (int i = 0; i <= parts; i++) {
+            starts[i] = (int) ((long) length * i / parts);
+        }
+        return starts;
+    }
+
+    /**
+     * Helper method: the part a position falls in.
+     *
+     * @param starts the parts' starts, then the length.
+     * @param position the position, inside the length.
+     * @return the part index.
+     */
+    private static int partOf(int[] starts, int position) {
+        int found = Arrays.binarySearch(starts, position);
+        if (found >= 0) {
+            // an empty part is never chosen, since starts[i + 1] > starts[i]
+            return found;
+        }
+        return -found - 2;
+    }
+
+    /**
+     * Helper method: the worker owning a cell.
+     *
+     * @param row the row, inside the grid.
+     * @param col the column, inside the grid.
+     * @return the worker.
+     */
+    private Worker owner(int row, int col) {
+        return workers[partOf(rowStarts, row) * (colStarts.length - 1) + partOf(colStarts, col)];
+    }
+
+    /**
+     * Helper method: reads a worker's reply to a command.
+     *
+     * @param worker the worker.
+     * @throws IOException if the worker failed the command or disconnected.
+     */
+    private static void expectOk(Worker worker) throws IOException {
+        worker.out.flush();
+        if (worker.in.readByte() != ShardWorker.OK) {
+            throw new IOException("shard worker failed: " + worker.in.readUTF());
+        }
+    }
+
+    /**
+     * Turns a cell on. Cells are sent to their shards in batches, before
+     * any other command.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @throws IOException if a full batch cannot be sent.
+     */
+    public void setAlive(int row, int col) throws IOException {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return;
+        }
+        Worker worker = owner(row, col);
+        worker.cells[worker.queued++] = row;
+        worker.cells[worker.queued++] = col;
+        if (worker.queued == worker.cells.length) {
+            send(worker);
+        }
+        stale = true;
+    }
+
+    /**
+     * Helper method: sends a worker its queued cells.
+     *
+     * @param worker the worker.
+     * @throws IOException if sending fails.
+     */
+    private static void send(Worker worker) throws IOException {
+        if (worker.queued == 0) {
+            return;
+        }
+        worker.out.writeByte(ShardWorker.CELLS);
+        worker.out.writeInt(worker.queued / 2);
+        for (int i = 0; i < worker.queued; i++) {
+            worker.out.writeInt(worker.cells[i]);
+        }
+        worker.queued = 0;
+        expectOk(worker);
+    }
+
+    /**
+     * Helper method: sends every worker its queued cells.
+     *
+     * @throws IOException if sending fails.
+     */
+    private void sendAll() throws IOException {
+        for (Worker worker : workers) {
+            send(worker);
+        }
+    }
+
+    /**
+     * Toggles a cell between alive and dead.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @throws IOException if the worker cannot be reached.
+     */
+    public void toggleCell(int row, int col) throws IOException {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return;
+        }
+        sendAll();
+        Worker worker = owner(row, col);
+        worker.out.writeByte(ShardWorker.TOGGLE);
+        worker.out.writeInt(row);
+        worker.out.writeInt(col);
+        expectOk(worker);
+        stale = true;
+    }
+
+    /**
+     * Returns whether a cell is alive.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return true if the cell is alive; false off the grid.
+     * @throws IOException if the worker cannot be reached.
+     */
+    public boolean isAlive(int row, int col) throws IOException {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return false;
+        }
+        sendAll();
+        Worker worker = owner(row, col);
+        worker.out.writeByte(ShardWorker.ALIVE);
+        worker.out.writeInt(row);
+        worker.out.writeInt(col);
+        expectOk(worker);
+        return worker.in.readBoolean();
+    }
+
+    /**
+     * Sets the rule on every shard.
+     *
+     * @param rule the rule.
+     * @throws IOException if a worker cannot be reached.
+     */
+    public void setRule(Rule rule) throws IOException {
+        for (Worker worker : workers) {
+            worker.out.writeByte(ShardWorker.RULE);
+            worker.out.writeUTF(rule.toString());
+            worker.out.flush();
+        }
+        for (Worker worker : workers) {
+            expectOk(worker);
+        }
+        this.rule = rule;
+    }
+
+    /**
+     * Returns the rule the shards run.
+     *
+     * @return the rule.
+     */
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * Kills every cell and starts again from generation 0.
+     *
+     * @throws IOException if a worker cannot be reached.
+     */
+    public void reset() throws IOException {
+        for (Worker worker : workers) {
+            worker.queued = 0;
+            worker.out.writeByte(ShardWorker.RESET);
+            worker.out.flush();
+        }
+        for (Worker worker : workers) {
+            expectOk(worker);
+        }
+        stale = true;
+    }
+
+    /**
+     * Loads an RLE file into the grid, centered like Simulation.loadRleFile.
+     * The file is decoded here and its cells routed to their shards, so it
+     * is read once however many workers there are. The header's rule, if
+     * any, becomes the rule.
+     *
+     * @param file the RLE file.
+     * @throws IOException if the file cannot be read or a worker reached.
+     */
+    public void loadRleFile(File file) throws IOException {
+        reset();
+        IOException[] failed = new IOException[1];
+        RleParser parser = new RleParser(new RleParser.Sink() {
+            /**
+             * The grid row of the pattern's top edge.
+             */
+            private int startRow;
+
+            /**
+             * The grid column of the pattern's left edge.
+             */
+            private int startCol;
+
+            @Override
+            public void header(int width, int height, String headerRule) {
+                startRow = rows / 2 - height / 2;
+                startCol = cols / 2 - width / 2;
+                if (headerRule != null && failed[0] == null) {
+                    try {
+                        setRule(Rule.parse(headerRule));
+                    } catch (IllegalArgumentException e) {
+                        DebugLogger.warn("RLE: rule %s is not supported, keeping %s", headerRule, rule);
+                    } catch (IOException e) {
+                        failed[0] = e;
+                    }
+                }
+            }
+
+            @Override
+            public void run(int row, int col, int length) {
+                for (int j = 0; j < length && failed[0] == null; j++) {
+                    try {
+                        setAlive(startRow + row, startCol + col + j);
+                    } catch (IOException e) {
+                        failed[0] = e;
+                    }
+                }
+            }
+        });
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            parser.parse(mapped);
+        }
+        if (failed[0] != null) {
+            throw failed[0];
+        }
+        sendAll();
+    }
+
+    /**
+     * Evolves every shard the given number of generations and waits for all
+     * of them to finish. The workers keep each other in step as they swap
+     * halos, so a whole run is one command per worker.
+     *
+     * @param generations the number of generations.
+     * @throws IOException if a worker fails or disconnects.
+     */
+    public void step(long generations) throws IOException {
+        sendAll();
+        for (Worker worker : workers) {
+            worker.out.writeByte(ShardWorker.STEP);
+            worker.out.writeLong(generations);
+            worker.out.flush();
+        }
+        readStats();
+    }
+
+    /**
+     * Helper method: reads and adds up every worker's statistics, which
+     * each sends after a STEP or STATS command.
+     *
+     * @throws IOException if a worker fails or disconnects.
+     */
+    private void readStats() throws IOException {
+        long alive = 0;
+        long age = 0;
+        int oldest = 0;
+        long reached = -1;
+        for (Worker worker : workers) {
+            expectOk(worker);
+            alive += worker.in.readLong();
+            age += worker.in.readLong();
+            oldest = Math.max(oldest, worker.in.readInt());
+            long shardGeneration = worker.in.readLong();
+            if (reached >= 0 && shardGeneration != reached) {
+                throw new IOException("shards out of step: generations " + reached + " and " + shardGeneration);
+            }
+            reached = shardGeneration;
+        }
+        aliveCells = alive;
+        totalAge = age;
+        maxAge = oldest;
+        generation = reached;
+        stale = false;
+    }
+
+    /**
+     * Helper method: fetches the statistics if the cells changed since the
+     * last report.
+     *
+     * @throws IOException if a worker fails or disconnects.
+     */
+    private void refresh() throws IOException {
+        if (stale) {
+            sendAll();
+            for (Worker worker : workers) {
+                worker.out.writeByte(ShardWorker.STATS);
+                worker.out.flush();
+            }
+            readStats();
+        }
+    }
+
+    /**
+     * Returns the count of live cells across every shard.
+     *
+     * @return the number of alive cells.
+     * @throws IOException if a worker cannot be reached.
+     */
+    public long getAliveCells() throws IOException {
+        refresh();
+        return aliveCells;
+    }
+
+    /**
+     * Returns the average age of the live cells across every shard.
+     *
+     * @return the average age, or 0 if no cell is alive.
+     * @throws IOException if a worker cannot be reached.
+     */
+    public double getAverageAge() throws IOException {
+        refresh();
+        return aliveCells == 0 ? 0.0 : (double) totalAge / aliveCells;
+    }
+
+    /**
+     * Returns the oldest age of any live cell across every shard.
+     *
+     * @return the max age, or 0 if no cell is alive.
+     * @throws IOException if a worker cannot be reached.
+     */
+    public int getMaxAge() throws IOException {
+        refresh();
+        return maxAge;
+    }
+
+    /**
+     * Returns the generation every shard has reached.
+     *
+     * @return the generation count.
+     * @throws IOException if a worker cannot be reached.
+     */
+    public long getGenerationCount() throws IOException {
+        refresh();
+        return generation;
+    }
+
+    /**
+     * Returns the number of grid rows.
+     *
+     * @return the rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of grid cols.
+     *
+     * @return the cols.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Ends every worker's session and closes the connections.
+     */
+    @Override
+    public void close() {
+        for (Worker worker : workers) {
+            if (worker != null) {
+                try {
+                    worker.out.writeByte(ShardWorker.QUIT);
+                    worker.out.flush();
+                } catch (IOException e) {
+                    // the worker is gone already
+                }
+                try {
+                    worker.channel.close();
+                } catch (IOException e) {
+                    // nothing more to release
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts worker JVMs on this machine, with this JVM's java and class
+     * path, and waits until each is listening.
+     *
+     * @param count the number of workers.
+     * @param unix true for Unix domain sockets in the temporary directory,
+     *        false for TCP on the loopback address.
+     * @return the workers.
+     * @throws IOException if a worker cannot be started.
+     */
+    public static LocalWorkers launchLocalWorkers(int count, boolean unix) throws IOException {
+        LocalWorkers launched = new LocalWorkers();
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String tmp = System.getProperty("java.io.tmpdir");
+        try {
+            for (int i = 0; i < count; i++) {
+                String address = unix
+                        ? "unix:" + Paths.get(tmp, "gol-shard-" + ProcessHandle.current().pid() + "-" + i + ".sock")
+                        : "127.0.0.1:0";
+                Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        "ShardWorker", address).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                launched.processes.add(process);
+            }
+            for (Process process : launched.processes) {
+                // the first line a worker prints is the address it listens on
+                String line = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                        StandardCharsets.UTF_8)).readLine();
+                if (line == null) {
+                    throw new IOException("shard worker exited before listening");
+                }
+                launched.addresses.add(line.trim());
+            }
+        } catch (IOException e) {
+            for (Process process : launched.processes) {
+                process.destroyForcibly();
+            }
+            throw e;
+        }
+        return launched;
+    }
+
+    /**
+     * Runs a pattern on local worker JVMs, or on running workers, and
+     * reports the throughput and statistics.
+     *
+     * @param args the command line; see the class comment.
+     */
+    public static void main(String[] args) {
+        long generations = 1000;
+        int rows = 1024;
+        int cols = 1024;
+        int shardRows = 2;
+        int shardCols = 2;
+        Boundary boundary = Boundary.BOUNDED;
+        Rule rule = null;
+        boolean unix = false;
+        List<String> addresses = null;
+        File input = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-g":
+                    case "--generations":
+                        generations = BatchRunner.parsePositive(BatchRunner.value(args, ++i, arg), arg);
+                        break;
+                    case "-s":
+                    case "--size":
+                    case "--shards":
+                        String[] size = BatchRunner.value(args, ++i, arg).toLowerCase(Locale.ROOT).split("x");
+                        if (size.length != 2) {
+                            throw new IllegalArgumentException(arg + " expects RxC, such as 2x2");
+                        }
+                        int down = (int) BatchRunner.parsePositive(size[0], arg);
+                        int across = (int) BatchRunner.parsePositive(size[1], arg);
+                        if (arg.equals("--shards")) {
+                            shardRows = down;
+                            shardCols = across;
+                        } else {
+                            rows = down;
+                            cols = across;
+                        }
+                        break;
+                    case "--boundary":
+                        try {
+                            boundary = Boundary.valueOf(BatchRunner.value(args, ++i, arg).toUpperCase(Locale.ROOT));
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalArgumentException("unknown boundary " + args[i]);
+                        }
+                        break;
+                    case "-r":
+                    case "--rule":
+                        rule = Rule.parse(BatchRunner.value(args, ++i, arg));
+                        break;
+                    case "--unix":
+                        unix = true;
+                        break;
+                    case "--workers":
+                        addresses = Arrays.asList(BatchRunner.value(args, ++i, arg).split(","));
+                        break;
+                    default:
+                        if (arg.startsWith("-") || input != null) {
+                            throw new IllegalArgumentException("unexpected argument " + arg);
+                        }
+                        input = new File(arg);
+                        break;
+                }
+            }
+            if (input == null) {
+                throw new IllegalArgumentException("no input file");
+            }
+            checkLayout(rows, cols, shardRows, shardCols, boundary);
+        } catch (IllegalArgumentException e) {
+            System.err.println("ShardCoordinator: " + e.getMessage());
+            System.err.println("usage: java ShardCoordinator [-g generations] [-s RxC] [--shards RxC]"
+                    + " [--boundary mode] [-r rule] [--unix] [--workers A,B,...] pattern.rle");
+            System.exit(2);
+        }
+
+        int status = 0;
+        LocalWorkers launched = null;
+        try {
+            if (addresses == null) {
+                launched = launchLocalWorkers(shardRows * shardCols, unix);
+                addresses = launched.getAddresses();
+            }
+            try (ShardCoordinator grid = new ShardCoordinator(rows, cols, shardRows, shardCols, boundary,
+                    Rule.CONWAY, addresses)) {
+                grid.loadRleFile(input);
+                if (rule != null) {
+                    grid.setRule(rule);
+                }
+                long start = System.nanoTime();
+                grid.step(generations);
+                double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+                System.out.println(String.format(Locale.ROOT, "%s: %dx%d %s, %s, %dx%d shards on %s",
+                        input.getPath(), rows, cols, boundary, grid.getRule(), shardRows, shardCols,
+                        launched == null ? "running workers" : unix ? "local workers over Unix domain sockets"
+                        : "local workers over TCP"));
+                System.out.println(String.format(Locale.ROOT, "%d generations in %.3f s, %.1f generations/s, %.3g cells/s",
+                        generations, seconds, generations / seconds, generations / seconds * rows * cols));
+                System.out.println(String.format(Locale.ROOT, "alive %d, average age %.2f, max age %d",
+                        grid.getAliveCells(), grid.getAverageAge(), grid.getMaxAge()));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("ShardCoordinator: " + e.getMessage());
+            status = 1;
+        } finally {
+            if (launched != null) {
+                launched.close();
+            }
+        }
+        System.exit(status);
+    }
+}
@@ -0,0 +1,696 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * ShardWorker: one process of a distributed simulation, owning one
+ * rectangular shard of a grid too big for a single JVM.
+ *
+ * The shard is kept as a bit-packed Simulation two cells larger each way
+ * than the shard, whose outer ring is a halo: before each generation it is
+ * filled with the cells just across the shard's edges, so the inner cells
+ * evolve exactly as they would in the whole grid, and after it the ring is
+ * cleared again, so the statistics only count the shard's own cells.
+ *
+ * Neighboring workers swap their edge cells directly over non-blocking NIO
+ * socket channels, TCP or Unix domain. Columns go first, then rows
+ * including the halo columns just received, so the corner cells come along
+ * without diagonal links. A worker with itself as a neighbor (one shard
+ * across a wrapping grid) copies its own edge instead.
+ *
+ * A ShardCoordinator drives each worker over one more connection: it sends
+ * the shard's place in the grid, edits and step counts, and collects the
+ * statistics. The swaps themselves keep neighbors in lockstep, and the
+ * coordinator's wait for every worker to finish a step is the barrier.
+ *
+ * Usage:
+ *   java ShardWorker host:port|unix:/path
+ *
+ * Port 0 picks a free port. The address actually listened on is printed as
+ * the first line of output; the worker serves one coordinator and exits.
+ */
+public class ShardWorker {
+    /**
+     * Command: set up the shard and its links.
+     */
+    static final byte INIT = 1;
+
+    /**
+     * Command: turn cells on, by global row and column.
+     */
+    static final byte CELLS = 2;
+
+    /**
+     * Command: toggle one cell.
+     */
+    static final byte TOGGLE = 3;
+
+    /**
+     * Command: change the rule.
+     */
+    static final byte RULE = 4;
+
+    /**
+     * Command: evolve a number of generations, then report the statistics.
+     */
+    static final byte STEP = 5;
+
+    /**
+     * Command: report the statistics.
+     */
+    static final byte STATS = 6;
+
+    /**
+     * Command: report whether one cell is alive.
+     */
+    static final byte ALIVE = 7;
+
+    /**
+     * Command: kill every cell and start again from generation 0.
+     */
+    static final byte RESET = 8;
+
+    /**
+     * Command: end the session.
+     */
+    static final byte QUIT = 9;
+
+    /**
+     * Reply: the command was carried out.
+     */
+    static final byte OK = 0;
+
+    /**
+     * Reply: the command failed; an error message follows.
+     */
+    static final byte FAILED = -1;
+
+    /**
+     * The first byte a coordinator sends on connecting; peers send a direction.
+     */
+    static final byte HELLO_COORDINATOR = 127;
+
+    /**
+     * Link direction: the shard to the left.
+     */
+    static final int LEFT = 0;
+
+    /**
+     * Link direction: the shard to the right.
+     */
+    static final int RIGHT = 1;
+
+    /**
+     * Link direction: the shard above.
+     */
+    static final int UP = 2;
+
+    /**
+     * Link direction: the shard below.
+     */
+    static final int DOWN = 3;
+
+    /**
+     * Link kind: nothing across this edge; the halo stays dead.
+     */
+    static final byte NONE = 0;
+
+    /**
+     * Link kind: the shard is its own neighbor across this edge.
+     */
+    static final byte SELF = 1;
+
+    /**
+     * Link kind: another worker is across this edge.
+     */
+    static final byte PEER = 2;
+
+    /**
+     * The socket the worker listens on.
+     */
+    private final ServerSocketChannel server;
+
+    /**
+     * The address the worker listens on, in the form it was given, with
+     * the real port if port 0 was asked for.
+     */
+    private final String address;
+
+    /**
+     * The socket file to delete on close, or null for TCP.
+     */
+    private final Path socketFile;
+
+    /**
+     * The shard with its halo ring; null until INIT.
+     */
+    private Simulation shard;
+
+    /**
+     * The global row of the shard's first row.
+     */
+    private int top;
+
+    /**
+     * The global column of the shard's first column.
+     */
+    private int left;
+
+    /**
+     * The number of rows the shard owns.
+     */
+    private int height;
+
+    /**
+     * The number of columns the shard owns.
+     */
+    private int width;
+
+    /**
+     * The kind of link in each direction.
+     */
+    private final byte[] kinds = new byte[4];
+
+    /**
+     * The channel to the worker in each direction, or null.
+     */
+    private final SocketChannel[] peers = new SocketChannel[4];
+
+    /**
+     * The outgoing edge cells for each direction, packed 8 to a byte.
+     */
+    private final ByteBuffer[] outgoing = new ByteBuffer[4];
+
+    /**
+     * The incoming halo cells from each direction, packed 8 to a byte.
+     */
+    private final ByteBuffer[] incoming = new ByteBuffer[4];
+
+    /**
+     * Waits on the peer channels during a swap.
+     */
+    private Selector selector;
+
+    /**
+     * Unpacked column or row cells, one per word, for stamping into the halo.
+     */
+    private long[] column;
+
+    /**
+     * A row of words for stamping into the halo.
+     */
+    private long[] row;
+
+    /**
+     * Main constructor: starts listening, so a coordinator can connect as
+     * soon as it returns.
+     *
+     * @param address host:port, or unix: and a socket file path.
+     * @throws IOException if the address cannot be bound.
+     */
+    public ShardWorker(String address) throws IOException {
+        SocketAddress local = parseAddress(address);
+        if (local instanceof UnixDomainSocketAddress) {
+            socketFile = ((UnixDomainSocketAddress) local).getPath();
+            Files.deleteIfExists(socketFile);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(local);
+            this.address = address;
+        } else {
+            socketFile = null;
+            server = ServerSocketChannel.open();
+            server.bind(local);
+            InetSocketAddress bound = (InetSocketAddress) server.getLocalAddress();
+            this.address = bound.getHostString() + ":" + bound.getPort();
+        }
+    }
+
+    /**
+     * Runs a worker process.
+     *
+     * @param args the address to listen on.
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("usage: java ShardWorker host:port|unix:/path");
+            System.exit(2);
+        }
+        try {
+            ShardWorker worker = new ShardWorker(args[0]);
+            System.out.println(worker.getAddress());
+            System.out.flush();
+            worker.run();
+        } catch (IOException e) {
+            System.err.println("ShardWorker: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Returns the address the worker listens on.
+     *
+     * @return host:port or unix:path.
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Serves one coordinator until it sends QUIT or disconnects, then closes.
+     *
+     * @throws IOException if a connection fails.
+     */
+    public void run() throws IOException {
+        SocketChannel coordinator = null;
+        try {
+            coordinator = accept(HELLO_COORDINATOR);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(coordinator)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(coordinator)));
+            while (serve(in, out)) {
+                out.flush();
+            }
+            out.flush();
+        } finally {
+            // closing every link makes a failure here show up at the
+            // coordinator and the neighbors instead of stalling them
+            if (coordinator != null) {
+                coordinator.close();
+            }
+            close();
+        }
+    }
+
+    /**
+     * Helper method: carries out one command from the coordinator. Replies
+     * FAILED with a message to a command that is refused, and carries on.
+     *
+     * @param in the commands.
+     * @param out the replies.
+     * @return false once the session is over.
+     * @throws IOException if the connection fails.
+     */
+    private boolean serve(DataInputStream in, DataOutputStream out) throws IOException {
+        byte command;
+        try {
+            command = in.readByte();
+        } catch (EOFException e) {
+            return false;
+        }
+        try {
+            if (shard == null && command != INIT && command != QUIT) {
+                throw new IllegalStateException("not initialized");
+            }
+            switch (command) {
+                case INIT:
+                    init(in);
+                    break;
+                case CELLS:
+                    int count = in.readInt();
+                    int[] coordinates = new int[2 * count];
+                    for (int i = 0; i < count; i++) {
+                        coordinates[2 * i] = in.readInt() - top + 1;
+                        coordinates[2 * i + 1] = in.readInt() - left + 1;
+                    }
+                    shard.editCells(coordinates, 2 * count, Simulation.EditMode.OR);
+                    break;
+                case TOGGLE:
+                    int toggled = in.readInt() - top + 1;
+                    shard.toggleCell(toggled, in.readInt() - left + 1);
+                    break;
+                case RULE:
+                    shard.setRule(Rule.parse(in.readUTF()));
+                    break;
+                case STEP:
+                    long generations = in.readLong();
+                    for (long g = 0; g < generations; g++) {
+                        step();
+                    }
+                    out.writeByte(OK);
+                    writeStats(out);
+                    return true;
+                case STATS:
+                    out.writeByte(OK);
+                    writeStats(out);
+                    return true;
+                case ALIVE:
+                    int asked = in.readInt() - top + 1;
+                    out.writeByte(OK);
+                    out.writeBoolean(shard.isAlive(asked, in.readInt() - left + 1));
+                    return true;
+                case RESET:
+                    shard.reset();
+                    break;
+                case QUIT:
+                    return false;
+                default:
+                    throw new IllegalArgumentException("unknown command " + command);
+            }
+            out.writeByte(OK);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            out.writeByte(FAILED);
+            out.writeUTF(String.valueOf(e.getMessage()));
+        }
+        return true;
+    }
+
+    /**
+     * Helper method: sets up the shard from an INIT command and opens the
+     * peer links. Each worker connects to its right and lower neighbors and
+     * accepts the links from its left and upper ones, so every pair of
+     * neighbors shares exactly one channel per edge.
+     *
+     * @param in the rest of the command.
+     * @throws IOException if a link cannot be opened.
+     */
+    private void init(DataInputStream in) throws IOException {
+        if (shard != null) {
+            throw new IllegalStateException("already initialized");
+        }
+        top = in.readInt();
+        left = in.readInt();
+        height = in.readInt();
+        width = in.readInt();
+        Rule rule = Rule.parse(in.readUTF());
+        String[] targets = new String[4];
+        for (int d = 0; d < 4; d++) {
+            kinds[d] = in.readByte();
+            if (kinds[d] == PEER && (d == RIGHT || d == DOWN)) {
+                targets[d] = in.readUTF();
+            }
+        }
+        shard = new Simulation(height + 2, width + 2, Simulation.Backend.BIT_PACKED);
+        shard.setRule(rule);
+        column = new long[height];
+        row = new long[(width + 2 + 63) >>> 6];
+        for (int d = 0; d < 4; d++) {
+            int cells = d == LEFT || d == RIGHT ? height : width + 2;
+            outgoing[d] = ByteBuffer.allocateDirect((cells + 7) >>> 3);
+            incoming[d] = ByteBuffer.allocateDirect((cells + 7) >>> 3);
+        }
+
+        selector = Selector.open();
+        for (int d : new int[] {RIGHT, DOWN}) {
+            if (kinds[d] == PEER) {
+                SocketChannel channel = connect(targets[d]);
+                // tell the neighbor which of its edges this link crosses
+                channel.write(ByteBuffer.wrap(new byte[] {(byte) (d == RIGHT ? LEFT : UP)}));
+                peers[d] = channel;
+            }
+        }
+        while (kinds[LEFT] == PEER && peers[LEFT] == null || kinds[UP] == PEER && peers[UP] == null) {
+            accept((byte) -1);
+        }
+        for (int d = 0; d < 4; d++) {
+            if (peers[d] != null) {
+                peers[d].configureBlocking(false);
+                peers[d].register(selector, 0, d);
+            }
+        }
+    }
+
+    /**
+     * Helper method: accepts connections until the one wanted arrives. Peer
+     * links that arrive along the way are kept for their direction, since a
+     * neighbor may connect before the coordinator has.
+     *
+     * @param wanted HELLO_COORDINATOR to wait for the coordinator, or -1 for
+     *        any peer link.
+     * @return the coordinator's channel, or null for a peer.
+     * @throws IOException if accepting fails.
+     */
+    private SocketChannel accept(byte wanted) throws IOException {
+        while (true) {
+            SocketChannel channel = server.accept();
+            if (socketFile == null) {
+                channel.socket().setTcpNoDelay(true);
+            }
+            ByteBuffer hello = ByteBuffer.allocate(1);
+            while (hello.hasRemaining()) {
+                if (channel.read(hello) < 0) {
+                    throw new EOFException("connection closed before its hello");
+                }
+            }
+            byte kind = hello.get(0);
+            if (kind == HELLO_COORDINATOR) {
+                if (wanted == HELLO_COORDINATOR) {
+                    return channel;
+                }
+                channel.close();
+            } else if (kind >= 0 && kind < 4 && peers[kind] == null) {
+                peers[kind] = channel;
+                if (wanted != HELLO_COORDINATOR) {
+                    return null;
+                }
+            } else {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Helper method: evolves one generation. Swaps edge columns with the
+     * left and right neighbors, then edge rows, including the halo columns,
+     * with the upper and lower ones; evolves; and clears the halo ring.
+     * O(height * width / 64 + height + width)
+     *
+     * @throws IOException if a peer link fails.
+     */
+    private void step() throws IOException {
+        packColumn(outgoing[LEFT], 1);
+        packColumn(outgoing[RIGHT], width);
+        swap(LEFT, RIGHT);
+        unpackColumn(LEFT, 0);
+        unpackColumn(RIGHT, width + 1);
+
+        packRow(outgoing[UP], 1);
+        packRow(outgoing[DOWN], height);
+        swap(UP, DOWN);
+        unpackRow(UP, 0);
+        unpackRow(DOWN, height + 1);
+
+        shard.evolve();
+
+        Arrays.fill(row, 0L);
+        shard.stamp(row, row.length, 1, width + 2, 0, 0, Simulation.EditMode.REPLACE);
+        shard.stamp(row, row.length, 1, width + 2, height + 1, 0, Simulation.EditMode.REPLACE);
+        Arrays.fill(column, 0L);
+        shard.stamp(column, 1, height, 1, 1, 0, Simulation.EditMode.REPLACE);
+        shard.stamp(column, 1, height, 1, 1, width + 1, Simulation.EditMode.REPLACE);
+    }
+
+    /**
+     * Helper method: exchanges the outgoing and incoming buffers of two
+     * opposite directions. Every peer channel is written and read at once
+     * through the selector, so no two workers can block writing to each
+     * other; a self link copies the outgoing cells of the opposite edge.
+     *
+     * @param first one direction.
+     * @param second the opposite direction.
+     * @throws IOException if a peer link fails or closes.
+     */
+    private void swap(int first, int second) throws IOException {
+        int pending = 0;
+        outgoing[first].flip();
+        outgoing[second].flip();
+        for (int d : new int[] {first, second}) {
+            incoming[d].clear();
+            if (kinds[d] == SELF) {
+                // the cells across this edge are our own opposite edge
+                incoming[d].put(outgoing[d == first ? second : first].duplicate());
+            } else if (kinds[d] == PEER) {
+                peers[d].keyFor(selector).interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                pending++;
+            }
+        }
+        while (pending > 0) {
+            selector.select();
+            for (SelectionKey key : selector.selectedKeys()) {
+                int d = (Integer) key.attachment();
+                SocketChannel channel = (SocketChannel) key.channel();
+                if (key.isWritable()) {
+                    channel.write(outgoing[d]);
+                    if (!outgoing[d].hasRemaining()) {
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                    }
+                }
+                if (key.isReadable() && channel.read(incoming[d]) < 0) {
+                    throw new EOFException("shard link closed");
+                }
+                if (!incoming[d].hasRemaining() && !outgoing[d].hasRemaining() && key.interestOps() != 0) {
+                    key.interestOps(0);
+                    pending--;
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+        for (int d : new int[] {first, second}) {
+            outgoing[d].clear();
+            incoming[d].flip();
+        }
+    }
+
+    /**
+     * Helper method: packs the shard's cells in one column, rows 1 to height.
+     *
+     * @param buffer where to pack them.
+     * @param col the local column.
+     */
+    private void packColumn(ByteBuffer buffer, int col) {
+        buffer.clear();
+        for (int r = 0; r < height; r += 8) {
+            int bits = 0;
+            for (int b = 0; b < 8 && r + b < height; b++) {
+                if (shard.isAlive(r + b + 1, col)) {
+                    bits |= 1 << b;
+                }
+            }
+            buffer.put((byte) bits);
+        }
+    }
+
+    /**
+     * Helper method: packs one whole local row, halo columns included.
+     *
+     * @param buffer where to pack it.
+     * @param r the local row.
+     */
+    private void packRow(ByteBuffer buffer, int r) {
+        buffer.clear();
+        int bytes = buffer.capacity();
+        for (int w = 0; w < row.length; w++) {
+            long word = shard.getWord(r, w);
+            for (int b = 0; b < 8 && (w << 3) + b < bytes; b++) {
+                buffer.put((byte) (word >>> (b << 3)));
+            }
+        }
+    }
+
+    /**
+     * Helper method: writes the cells received from one direction into a
+     * halo column, rows 1 to height. Nothing is written without a neighbor.
+     *
+     * @param d the direction.
+     * @param col the local halo column.
+     */
+    private void unpackColumn(int d, int col) {
+        if (kinds[d] == NONE) {
+            return;
+        }
+        ByteBuffer buffer = incoming[d];
+        for (int r = 0; r < height; r++) {
+            column[r] = buffer.get(r >>> 3) >>> (r & 7) & 1;
+        }
+        shard.stamp(column, 1, height, 1, 1, col, Simulation.EditMode.REPLACE);
+    }
+
+    /**
+     * Helper method: writes the cells received from one direction into a
+     * halo row. Nothing is written without a neighbor.
+     *
+     * @param d the direction.
+     * @param r the local halo row.
+     */
+    private void unpackRow(int d, int r) {
+        if (kinds[d] == NONE) {
+            return;
+        }
+        ByteBuffer buffer = incoming[d];
+        Arrays.fill(row, 0L);
+        for (int i = 0; i < buffer.limit(); i++) {
+            row[i >>> 3] |= (buffer.get(i) & 0xffL) << ((i & 7) << 3);
+        }
+        shard.stamp(row, row.length, 1, width + 2, r, 0, Simulation.EditMode.REPLACE);
+    }
+
+    /**
+     * Helper method: writes the shard's statistics, halo excluded: alive
+     * cells, the sum of their ages, the oldest age and the generation.
+     *
+     * @param out the replies.
+     * @throws IOException if writing fails.
+     */
+    private void writeStats(DataOutputStream out) throws IOException {
+        long alive = shard.getPopulation();
+        out.writeLong(alive);
+        out.writeLong(Math.round(shard.getAverageAge() * alive));
+        out.writeInt(shard.getMaxAge());
+        out.writeLong(shard.getGenerationCount());
+    }
+
+    /**
+     * Helper method: closes every channel and deletes the socket file.
+     *
+     * @throws IOException if closing fails.
+     */
+    private void close() throws IOException {
+        for (int d = 0; d < 4; d++) {
+            if (peers[d] != null) {
+                peers[d].close();
+            }
+        }
+        if (selector != null) {
+            selector.close();
+        }
+        server.close();
+        if (socketFile != null) {
+            Files.deleteIfExists(socketFile);
+        }
+    }
+
+    /**
+     * Parses a worker address.
+     *
+     * @param address host:port, or unix: and a socket file path.
+     * @return the socket address.
+     * @throws IllegalArgumentException if the address is malformed.
+     */
+    static SocketAddress parseAddress(String address) {
+        if (address.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(address.substring("unix:".length()));
+        }
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("expected host:port or unix:/path, not " + address);
+        }
+        try {
+            return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad port in " + address);
+        }
+    }
+
+    /**
+     * Opens a blocking channel to a worker address.
+     *
+     * @param address host:port, or unix: and a socket file path.
+     * @return the connected channel.
+     * @throws IOException if the connection fails.
+     */
+    static SocketChannel connect(String address) throws IOException {
+        SocketAddress remote = parseAddress(address);
+        if (remote instanceof UnixDomainSocketAddress) {
+            SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(remote);
+            return channel;
+        }
+        SocketChannel channel = SocketChannel.open(remote);
+        channel.socket().setTcpNoDelay(true);
+        return channel;
+    }
+}
@@ -5,14 +5,29 @@
 // big-O requirements are listed if they exist.
 // if no requirement is listed, you may do as you wish.
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.awt.Color;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.Random;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.sun.management.ThreadMXBean;
 
 /**
  * The simulator: manages state of cell in a grid.
@@ -25,10 +40,16 @@ public class Simulation {
      * The grid that holds the cell data.
      * YOU MUST USE THIS.
      * Automated testing will be done on this variable directly.
+     * Refreshed from the backend by getGrid().
      * [EXTRA]
      */
     private HashMap<Point, Cell> grid;
 
+    /**
+     * The storage and evolution strategy that holds the actual cell state.
+     */
+    private GridBackend backend;
+
     /**
      * The number of rows the grid has.
      */
@@ -42,43 +63,261 @@ public class Simulation {
     /**
      * The number of generations this sim has gone through.
      */
-    private int generations;
+    private long generations;
+
+    /**
+     * Jumps shorter than this are made with evolve() instead of HashLife.
+     */
+    public static final long HASHLIFE_MIN_JUMP = 1024;
+
+    /**
+     * The throughput of the last RLE parse in MB/s.
+     */
+    private double rleThroughput;
+
+    /**
+     * The HashLife engine used by advance(), created on first use so its node
+     * cache carries over between jumps.
+     */
+    private HashLife hashLife;
+
+    /**
+     * The backend's state hash when the last HashLife jump was copied back,
+     * to tell whether HashLife's universe still matches the grid.
+     */
+    private long hashLifeHash;
+
+    /**
+     * Watches the state hash across evolve() calls for a still life or oscillator.
+     */
+    private final CycleDetector cycles = new CycleDetector(CycleDetector.DEFAULT_MAX_PERIOD);
+
+    /**
+     * Recent generations for stepping back, or null while history is off.
+     */
+    private History history;
+
+    /**
+     * Where evolve() records each generation's timing and cell counts, or
+     * null for none.
+     */
+    private SimulationMetrics metrics = new SimulationMetrics();
+
+    /**
+     * The first row changed by the batched edit in progress.
+     */
+    private int dirtyTop;
+
+    /**
+     * The last row changed by the batched edit in progress.
+     */
+    private int dirtyBottom;
+
+    /**
+     * The first column changed by the batched edit in progress.
+     */
+    private int dirtyLeft;
+
+    /**
+     * The last column changed by the batched edit in progress.
+     */
+    private int dirtyRight;
+
+    /**
+     * What lies past the edges of the grid.
+     */
+    private final Boundary boundary;
+
+    /**
+     * The available storage backends.
+     */
+    public enum Backend {
+        /**
+         * One Cell object per Point in a HashMap; getGrid() returns the live map.
+         */
+        HASH_MAP,
+        /**
+         * One bit per cell in long words, evolved 64 cells at a time.
+         */
+        BIT_PACKED,
+        /**
+         * Only live cells, keyed by packed position; no edges, rows/cols is
+         * just the window that getGrid() and the GUI show.
+         */
+        SPARSE
+    }
+
+    /**
+     * How a batched edit combines with the cells already on the grid.
+     */
+    public enum EditMode {
+        /**
+         * The edit's live cells come to life; every other cell is left alone.
+         */
+        OR,
+        /**
+         * The edit's live cells flip; every other cell is left alone.
+         */
+        XOR,
+        /**
+         * Every cell the edit covers takes the edit's state, so the edit's
+         * dead cells kill.
+         */
+        REPLACE
+    }
 
     /**
-     * Main constructor.
+     * Main constructor. Uses the HashMap backend.
      * 
      * @param rows the number of rows in the grid
      * @param cols the number of columns in the grid
      */
     public Simulation(int rows, int cols) {
+        this(rows, cols, Backend.HASH_MAP);
+    }
+
+    /**
+     * Constructor with a choice of storage backend.
+     *
+     * @param rows the number of rows in the grid
+     * @param cols the number of columns in the grid
+     * @param backend the storage backend to use
+     */
+    public Simulation(int rows, int cols, Backend backend) {
+        this(rows, cols, backend, Boundary.BOUNDED);
+    }
+
+    /**
+     * Constructor with a choice of storage backend and boundary.
+     *
+     * @param rows the number of rows in the grid
+     * @param cols the number of columns in the grid
+     * @param backend the storage backend to use
+     * @param boundary what lies past the edges of the grid
+     * @throws IllegalArgumentException if the boundary wraps and the backend is
+     *         SPARSE, which has no edges to wrap
+     */
+    public Simulation(int rows, int cols, Backend backend, Boundary boundary) {
+        if (backend == Backend.SPARSE && boundary.wraps()) {
+            throw new IllegalArgumentException("The sparse backend has no edges to wrap");
+        }
         this.rows = rows;
         this.cols = cols;
         this.generations = 0;
-        initializeGrid();
+        this.boundary = boundary;
+        initializeGrid(backend);
+    }
+
+    /**
+     * Helper method: constructor around a backend that was already created.
+     *
+     * @param backend the storage backend
+     * @param boundary what lies past the edges of the grid
+     */
+    private Simulation(GridBackend backend, Boundary boundary) {
+        this.rows = backend.getRows();
+        this.cols = backend.getCols();
+        this.generations = 0;
+        this.boundary = boundary;
+        this.backend = backend;
+    }
+
+    /**
+     * Creates a simulation whose grid lives outside the Java heap, in native
+     * memory or mapped onto a file (see OffHeapBackend). A mapped file keeps
+     * the grid between runs and may be larger than RAM: a missing or empty
+     * file starts a dead grid, and a file saved by an earlier run carries on
+     * with its cells, ages and rule. The generation count starts at 0 either
+     * way. The backend is compiled separately (offheap/) because the
+     * Foreign Function & Memory API is a preview in JDK 21, and is found by
+     * name like the vector kernel.
+     *
+     * @param rows the number of rows in the grid
+     * @param cols the number of columns in the grid
+     * @param boundary what lies past the edges of the grid
+     * @param file the file to map the grid onto, or null for native memory
+     * @return the simulation.
+     * @throws IOException if the file cannot be mapped or is not a grid file.
+     * @throws IllegalArgumentException if the file holds a grid of another
+     *         size or boundary.
+     * @throws UnsupportedOperationException if the backend was not compiled
+     *         or the JVM cannot run it (on JDK 21, without --enable-preview).
+     */
+    public static Simulation openOffHeap(int rows, int cols, Boundary boundary, File file) throws IOException {
+        GridBackend backend;
+        try {
+            backend = (GridBackend) Class.forName("OffHeapBackend")
+                    .getConstructor(int.class, int.class, Boundary.class, File.class)
+                    .newInstance(rows, cols, boundary, file);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new UnsupportedOperationException("The off-heap backend is not available", e);
+        }
+        return new Simulation(backend, boundary);
     }
 
     /**
      * Helper method: initailize the grid of cells.
      * [EXTRA]
+     *
+     * @param type the storage backend to create
      */
-    private void initializeGrid() {
-        grid = new HashMap<>();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                grid.put(new Point(i, j), new Cell(false));
-            }
+    private void initializeGrid(Backend type) {
+        switch (type) {
+            case BIT_PACKED:
+                backend = new BitGridBackend(rows, cols, boundary);
+                break;
+            case SPARSE:
+                backend = new SparseBackend(rows, cols);
+                break;
+            default:
+                backend = new HashMapBackend(rows, cols, boundary);
+                break;
         }
     }
 
+    /**
+     * Returns what lies past the edges of the grid.
+     *
+     * @return the boundary.
+     */
+    public Boundary getBoundary() {
+        return boundary;
+    }
+
     /**
      * DO NOT CHANGE THIS, FOR GRADING PURPOSE ONLY.
+     * With a backend other than HASH_MAP this is a copy of the current state.
      * [EXTRA]
      * @return grid for automatic testing
      */
     public HashMap<Point, Cell> getGrid() {
+        grid = backend.toMap();
         return grid;
     }
 
+    /**
+     * Helper method: whether row/col is a cell the backend can hold. Always
+     * true for unbounded backends.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return true if the cell exists
+     */
+    private boolean inBounds(int row, int col) {
+        return !backend.isBounded()
+                || (row >= 0 && row < backend.getRows() && col >= 0 && col < backend.getCols());
+    }
+
     /**
      * This is called when the user manually interacts with the grid.
      * Sets the cell to Alive
@@ -87,280 +326,964 @@ public class Simulation {
      * @param col the column where the action happened
      */
     public void toggleCell(int row, int col) {
-        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+        if (!inBounds(row, col)) {
             return;
         }
-        Cell cell = grid.get(new Point(row, col));
-        if (cell != null && !cell.isAlive()) {
-            cell.setAlive();
+        backend.setAlive(row, col);
+    }
+
+    /**
+     * Applies a run of single-cell edits, such as the cells a mouse drag
+     * passed over, in one call. Each cell is a live cell of the edit, so
+     * OR and REPLACE bring it to life and XOR flips it (twice if listed
+     * twice). Cells off a bounded grid are skipped.
+     * O(count)
+     *
+     * @param coordinates row, col pairs.
+     * @param length the number of ints of coordinates to use, twice the
+     *        number of cells.
+     * @param mode how the edit combines with the grid.
+     * @return the bounds of the cells that changed, x for cols and y for
+     *         rows; empty if none did.
+     */
+    public Rectangle editCells(int[] coordinates, int length, EditMode mode) {
+        beginEdit();
+        for (int i = 0; i + 1 < length; i += 2) {
+            editCell(coordinates[i], coordinates[i + 1], true, mode);
         }
+        return endEdit();
     }
 
     /**
-     * Logic for evolution of grid by one generation.
-     * [EXTRA]
+     * Applies a rectangle of live cells: OR and REPLACE fill it and XOR
+     * inverts it. Bounded grids are edited 64 cells at a time, and the part
+     * off the grid is clipped.
+     * O(height * width / 64) on a bounded grid, O(height * width) otherwise
+     *
+     * @param row the top row.
+     * @param col the left column.
+     * @param height the number of rows.
+     * @param width the number of columns.
+     * @param mode how the edit combines with the grid.
+     * @return the bounds of the cells that changed; empty if none did.
      */
-    public void evolve() {
-        HashMap<Point, Cell> newGrid = new HashMap<>();
-
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                Cell currentCell = grid.get(new Point(i, j));
-                int liveNeighbors = countLiveNeighbors(i, j);
-                Cell newCell;
-                if (currentCell.isAlive()) {
-                    // alive cell dies
-                    if (liveNeighbors < 2 || liveNeighbors > 3) {
-                        newCell = new Cell(false);
-                    } else { // alive cell survives
-                        newCell = new Cell(true);
-                        newCell.setAge(currentCell.getAge() + 1);
-                    }
-                } else {
-                    // dead cell comes back to life
-                    if (liveNeighbors == 3) {
-                        newCell = new Cell(true);
-                    } else {
-                        newCell = new Cell(false);
-                    }
+    public Rectangle editRect(int row, int col, int height, int width, EditMode mode) {
+        beginEdit();
+        for (int i = 0; i < height; i++) {
+            if (backend.isBounded()) {
+                for (int j = 0; j < width; j += 64) {
+                    long cover = width - j >= 64 ? -1L : (1L << (width - j)) - 1;
+                    editSpan(row + i, col + j, cover, cover, mode);
+                }
+            } else {
+                for (int j = 0; j < width; j++) {
+                    editCell(row + i, col + j, true, mode);
                 }
-                newGrid.put(new Point(i, j), newCell);
             }
         }
-        grid = newGrid;
-        generations++;
+        return endEdit();
     }
 
     /**
-     * Helper method for evolve to count the live neighbors of a specific cell at row/col.
+     * Stamps a pattern with its top left corner at row/col. Rows may differ
+     * in length; a row covers as many cells as it has entries.
+     * O(cells in the pattern / 64) on a bounded grid, O(cells in the pattern) otherwise
      *
-     * @param row the row of the cell in question.
-     * @param col the column of the cell in question.
-     * @return the number of live neighbors.
+     * @param pattern the pattern, true for alive.
+     * @param row the grid row of the pattern's first row.
+     * @param col the grid column of the pattern's first column.
+     * @param mode how the edit combines with the grid.
+     * @return the bounds of the cells that changed; empty if none did.
      */
-    public int countLiveNeighbors(int row, int col) {
-        int count = 0;
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int dc = -1; dc <= 1; dc++) {
-                if (dr == 0 && dc == 0) continue; // skip self
-                int r = row + dr;
-                int c = col + dc;
-                if (r >= 0 && r < rows && c >= 0 && c < cols) {
-                    Cell neighbor = grid.get(new Point(r, c));
-                    if (neighbor != null && neighbor.isAlive()) {
-                        count++;
+    public Rectangle stamp(boolean[][] pattern, int row, int col, EditMode mode) {
+        beginEdit();
+        for (int i = 0; i < pattern.length; i++) {
+            boolean[] line = pattern[i];
+            if (backend.isBounded()) {
+                for (int j = 0; j < line.length; j += 64) {
+                    int count = Math.min(64, line.length - j);
+                    long bits = 0;
+                    for (int k = 0; k < count; k++) {
+                        if (line[j + k]) {
+                            bits |= 1L << k;
+                        }
+                    }
+                    editSpan(row + i, col + j, bits, count == 64 ? -1L : (1L << count) - 1, mode);
+                }
+            } else {
+                for (int j = 0; j < line.length; j++) {
+                    if (line[j] || mode == EditMode.REPLACE) {
+                        editCell(row + i, col + j, line[j], mode);
                     }
                 }
             }
         }
-        return count;
+        return endEdit();
     }
 
     /**
-     * Reset all cells in the grid. Generation count should also reset to zero.
+     * Stamps a bitmap with its top left corner at row/col. The bitmap is
+     * laid out like getWord: row i, column j is bit j % 64 of
+     * bitmap[i * stride + j / 64].
+     * O(height * stride) on a bounded grid, O(height * width) otherwise
+     *
+     * @param bitmap the pattern's words.
+     * @param stride the number of words per bitmap row.
+     * @param height the number of rows.
+     * @param width the number of columns; bits past it are ignored.
+     * @param row the grid row of the bitmap's first row.
+     * @param col the grid column of the bitmap's first column.
+     * @param mode how the edit combines with the grid.
+     * @return the bounds of the cells that changed; empty if none did.
      */
-    public void reset() {
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                Cell cell = grid.get(new Point(i, j));
-                if (cell != null) {
-                    cell.reset();
+    public Rectangle stamp(long[] bitmap, int stride, int height, int width, int row, int col, EditMode mode) {
+        beginEdit();
+        for (int i = 0; i < height; i++) {
+            for (int w = 0; w < stride && w << 6 < width; w++) {
+                int count = Math.min(64, width - (w << 6));
+                long cover = count == 64 ? -1L : (1L << count) - 1;
+                long bits = bitmap[i * stride + w] & cover;
+                if (backend.isBounded()) {
+                    editSpan(row + i, col + (w << 6), bits, cover, mode);
+                } else {
+                    for (long cells = mode == EditMode.REPLACE ? cover : bits; cells != 0; cells &= cells - 1) {
+                        int bit = Long.numberOfTrailingZeros(cells);
+                        editCell(row + i, col + (w << 6) + bit, (bits >>> bit & 1) != 0, mode);
+                    }
                 }
             }
         }
-        generations = 0;
+        return endEdit();
     }
 
     /**
-     * Returns the count of live cells in the grid.
-     * 
-     * @return the number of alive cells.
+     * Helper method: starts tracking the bounds of a batched edit.
      */
-    public int getAliveCells() {
-        int aliveCount = 0;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                Cell cell = grid.get(new Point(i, j));
-                if (cell != null && cell.isAlive()) {
-                    aliveCount++;
-                }
-            }
+    private void beginEdit() {
+        dirtyTop = Integer.MAX_VALUE;
+        dirtyLeft = Integer.MAX_VALUE;
+        dirtyBottom = Integer.MIN_VALUE;
+        dirtyRight = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Helper method: grows the edit bounds to cover part of a row.
+     *
+     * @param row the row.
+     * @param first the first changed column.
+     * @param last the last changed column.
+     */
+    private void markDirty(int row, int first, int last) {
+        dirtyTop = Math.min(dirtyTop, row);
+        dirtyBottom = Math.max(dirtyBottom, row);
+        dirtyLeft = Math.min(dirtyLeft, first);
+        dirtyRight = Math.max(dirtyRight, last);
+    }
+
+    /**
+     * Helper method: the bounds of the batched edit that just finished.
+     *
+     * @return the bounds, empty if no cell changed.
+     */
+    private Rectangle endEdit() {
+        if (dirtyTop > dirtyBottom) {
+            return new Rectangle();
         }
-        return aliveCount;
+        return new Rectangle(dirtyLeft, dirtyTop, dirtyRight - dirtyLeft + 1, dirtyBottom - dirtyTop + 1);
     }
 
     /**
-     * Returns the average age of all alive cells in the grid.
+     * Helper method: edits one cell.
      *
-     * @return the average age, or 0.0 if there are no alive cells.
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @param alive the edit's state for the cell.
+     * @param mode how the edit combines with the grid.
      */
-    public double getAverageAge() {
-        int totalAge = 0;
-        int aliveCount = 0;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                Cell cell = grid.get(new Point(i, j));
-                if (cell != null && cell.isAlive()) {
-                    totalAge += cell.getAge();
-                    aliveCount++;
-                }
+    private void editCell(int row, int col, boolean alive, EditMode mode) {
+        if (!inBounds(row, col)) {
+            return;
+        }
+        boolean was = backend.isAlive(row, col);
+        boolean now = mode == EditMode.OR ? was || alive : mode == EditMode.XOR ? was != alive : alive;
+        if (now != was) {
+            if (now) {
+                backend.setAlive(row, col);
+            } else {
+                backend.setDead(row, col);
             }
+            markDirty(row, col, col);
         }
-        return aliveCount == 0 ? 0.0 : (double) totalAge / aliveCount;
     }
 
     /**
-     * Returns the maximum age of all alive cells in the grid.
+     * Helper method: edits up to 64 cells of a bounded grid starting at any
+     * column, even one off the grid, by splitting them over the two words
+     * they straddle.
      *
-     * @return the maximum age among alive cells.
+     * @param row the row of the cells.
+     * @param col the column of bit 0.
+     * @param bits the edit's live cells; only bits in cover count.
+     * @param cover the cells the edit covers.
+     * @param mode how the edit combines with the grid.
      */
-    public int getMaxAge() {
-        int maxAge = 0;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                Cell cell = grid.get(new Point(i, j));
-                if (cell != null && cell.isAlive() && cell.getAge() > maxAge) {
-                    maxAge = cell.getAge();
-                }
-            }
+    private void editSpan(int row, int col, long bits, long cover, EditMode mode) {
+        if (row < 0 || row >= backend.getRows() || cover == 0) {
+            return;
+        }
+        int word = Math.floorDiv(col, 64);
+        int shift = Math.floorMod(col, 64);
+        editWord(row, word, bits << shift, cover << shift, mode);
+        if (shift != 0) {
+            editWord(row, word + 1, bits >>> (64 - shift), cover >>> (64 - shift), mode);
         }
-        return maxAge;
     }
 
     /**
-     * Returns the number of generations the simulation has gone through.
+     * Helper method: edits the cells of one word of a bounded grid with at
+     * most one setWord and one clearWord call.
      *
-     * @return the current generation count.
+     * @param row the row of the cells.
+     * @param word which group of 64 columns.
+     * @param bits the edit's live cells; only bits in cover count.
+     * @param cover the cells the edit covers.
+     * @param mode how the edit combines with the grid.
      */
-    public int getGenerations() {
-        return generations;
+    private void editWord(int row, int word, long bits, long cover, EditMode mode) {
+        int cols = backend.getCols();
+        if (word < 0 || word > (cols - 1) >>> 6) {
+            return;
+        }
+        int remaining = cols - (word << 6);
+        if (remaining < 64) {
+            cover &= (1L << remaining) - 1;
+        }
+        bits &= cover;
+        long was = backend.getWord(row, word);
+        long now = mode == EditMode.OR ? was | bits : mode == EditMode.XOR ? was ^ bits : (was & ~cover) | bits;
+        long births = now & ~was;
+        long deaths = was & ~now;
+        if (births != 0) {
+            backend.setWord(row, word, births);
+        }
+        if (deaths != 0) {
+            backend.clearWord(row, word, deaths);
+        }
+        long flips = births | deaths;
+        if (flips != 0) {
+            markDirty(row, (word << 6) + Long.numberOfTrailingZeros(flips),
+                    (word << 6) + 63 - Long.numberOfLeadingZeros(flips));
+        }
     }
 
     /**
-     * Parses RLE input lines and applies the resulting pattern to the simulation grid.
+     * Returns whether the cell at row/col is alive. Out of range cells are dead.
      *
-     * @param lines a List of Strings representing the non-comment lines from the RLE file.
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return true if the cell is alive
      */
-    public void parseRle(List<String> lines) {
-        // Updated implementation to process the list of strings.
-        // [Insert your existing logic here, updated as needed to work with List<String>]
+    public boolean isAlive(int row, int col) {
+        if (!inBounds(row, col)) {
+            return false;
+        }
+        return backend.isAlive(row, col);
     }
 
     /**
-     * Translates a boolean 2d array into actual cell data in our grid.
+     * Returns 64 cells of a row as bits: bit i is the cell at column
+     * word * 64 + i. Out of range cells are dead.
      *
-     * @param pattern a 2D boolean array representing the pattern (true for alive,
-     *                false for dead).
+     * @param row the row of the cells
+     * @param word which group of 64 columns
+     * @return the packed cells
      */
-    public void applyPatternToGrid(boolean[][] pattern) {
-        reset();
-        int startRow = rows / 2 - pattern.length / 2;
-        int startCol = cols / 2 - pattern[0].length / 2;
-        for (int i = 0; i < pattern.length; i++) {
-            for (int j = 0; j < pattern[0].length; j++) {
-                if (pattern[i][j]) {
-                    int gridRow = startRow + i;
-                    int gridCol = startCol + j;
-                    if (gridRow >= 0 && gridRow < rows && gridCol >= 0 && gridCol < cols) {
-                        grid.get(new Point(gridRow, gridCol)).setAlive();
-                    }
-                }
-            }
+    public long getWord(int row, int word) {
+        if (row < 0 || row >= backend.getRows() || word < 0 || word > (backend.getCols() - 1) >>> 6) {
+            return 0;
         }
+        return backend.getWord(row, word);
     }
 
     /**
-     * This is provided as an optional way to load RLE files if you want to do
-     * testing in main.
-     * This is basically a copy of the loadRleFile method in GameOfLife class, but
-     * without any GUI stuff.
-     * 
-     * @param filename relative path to the file
+     * Returns the display color of the cell at row/col.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the color of the cell, white if out of range
      */
-    private void loadRleFile(String filename) {
-        File file = new File(filename);
-        try {
-            List<String> lines = new ArrayList<>();
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (!line.startsWith("#")) { // Ignore comments
-                        lines.add(line);
-                    }
-                }
-                parseRle(lines);
-            }
-        } catch (IOException e) {
-            // do nothing
+    public Color getCellColor(int row, int col) {
+        if (!inBounds(row, col)) {
+            return Color.WHITE;
         }
+        return backend.getColor(row, col);
     }
 
     /**
-     * Gets the number of rows in the simulation grid.
-     * 
-     * @return the number of rows in the grid
+     * Returns the Palette index of the cell at row/col; resolve it with getPalette().
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the color index, Palette.DEFAULT if out of range
      */
-    public int getRows() {
-        return rows;
+    public int getColorIndex(int row, int col) {
+        if (!inBounds(row, col)) {
+            return Palette.DEFAULT;
+        }
+        return backend.getColorIndex(row, col);
     }
 
     /**
-     * Sets the number of rows in the simulation grid.
-     * 
-     * @param rows the new number of rows
+     * Returns the palette that color indexes refer to.
+     *
+     * @return the palette, or null if the backend stores no colors
      */
-    public void setRows(int rows) {
-        this.rows = rows;
+    public Palette getPalette() {
+        return backend.getPalette();
     }
 
     /**
-     * Gets the number of columns in the simulation grid.
-     * 
-     * @return the number of columns in the grid
+     * Sets the display color of a live cell at row/col.
+     * Dead or out of range cells are left unchanged.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @param color the new color
      */
-    public int getCols() {
-        return cols;
+    public void setCellColor(int row, int col, Color color) {
+        if (!inBounds(row, col)) {
+            return;
+        }
+        backend.setColor(row, col, color);
     }
 
     /**
-     * Sets the number of columns in the simulation grid.
-     * 
-     * @param cols the new number of columns
+     * Logic for evolution of grid by one generation.
+     * Its time, births, deaths and allocated bytes go to the metrics, if any.
+     * [EXTRA]
      */
-    public void setCols(int cols) {
-        this.cols = cols;
+    public void evolve() {
+        long start = System.nanoTime();
+        long allocated = metrics == null ? -1 : SimulationMetrics.currentThreadAllocatedBytes();
+        // an edit since the last generation shows up as a different hash
+        cycles.sync(backend.getStateHash());
+        if (history != null) {
+            history.sync(backend, generations);
+        }
+        backend.evolve();
+        generations++;
+        cycles.record(backend.getStateHash());
+        if (history != null) {
+            history.record(backend, generations);
+        }
+        if (metrics != null) {
+            long allocatedAfter = allocated < 0 ? -1 : SimulationMetrics.currentThreadAllocatedBytes();
+            metrics.recordGeneration(System.nanoTime() - start, backend.getLastBirths(), backend.getLastDeaths(),
+                    allocatedAfter < 0 ? -1 : allocatedAfter - allocated);
+        }
     }
 
     /**
-     * The main method for testing the Simulation class.
+     * Returns where evolve() records each generation's timing and cell counts.
      *
-     * @param args command-line arguments (not used)
+     * @return the metrics, or null for none.
      */
-    public static void main(String args[]) {
-        // create a new sim using Simulation2
-        Simulation sim = new Simulation(50, 50);
+    public SimulationMetrics getMetrics() {
+        return metrics;
+    }
 
-        // make the cell at 1,1 to be alive
-        sim.toggleCell(1, 1);
+    /**
+     * Sets where evolve() records each generation's timing and cell counts,
+     * so several simulations can share one set of metrics.
+     *
+     * @param metrics the metrics, or null to record nothing.
+     */
+    public void setMetrics(SimulationMetrics metrics) {
+        this.metrics = metrics;
+    }
 
-        // if the cell at 1,1 is alive, you did good
-        if (sim.grid.get(new Point(1, 1)).isAlive() == true) {
-            System.out.println("Yay 1");
+    /**
+     * Turns on the history of recent generations, or changes its budget.
+     * Once on, every generation is recorded as it is evolved, and the
+     * oldest are dropped to stay within the budget. On the bit-packed
+     * backend recording reads only the tiles that changed, so evolve cost
+     * still follows activity; on the HashMap backend it reads the whole
+     * grid every generation.
+     *
+     * @param bytes the most memory the recorded generations may take, or 0
+     *        to turn history off.
+     * @throws IllegalArgumentException if bytes is negative, or the backend
+     *         has no fixed grid to record (the sparse backend).
+     */
+    public void setHistoryBudget(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("History budget cannot be negative");
         }
-        // the number of alive cells should be 1
-        if (sim.getAliveCells() == 1) {
-            System.out.println("Yay 2");
+        if (bytes == 0) {
+            history = null;
+        } else if (history != null) {
+            history.setBudget(bytes);
+        } else if (!backend.isBounded()) {
+            throw new IllegalArgumentException("The sparse backend has no fixed grid to record");
+        } else {
+            history = new History(backend.getRows(), backend.getCols(), bytes, History.DEFAULT_KEYFRAME_INTERVAL);
+            history.record(backend, generations);
         }
+    }
 
-        // progress the sim by one generation
-        sim.evolve();
+    /**
+     * Returns the history of recent generations.
+     *
+     * @return the history, or null while it is off.
+     */
+    public History getHistory() {
+        return history;
+    }
 
-        // the cell at 1,1 should now be dead (starvation rule)
-        if (sim.grid.get(new Point(1, 1)).isAlive() == false) {
-            System.out.println("Yay 3");
+    /**
+     * Puts the grid back as it was at a recorded generation, and the
+     * generation count with it. Evolving from there records a new future
+     * over the old one; until then, later generations can still be sought.
+     * Ages start again at 1.
+     *
+     * @param generation the generation to go to.
+     * @return true if it was recorded, false if history is off or the
+     *         generation was evicted or skipped over.
+     */
+    public boolean seek(long generation) {
+        if (history == null || !history.seek(backend, generation)) {
+            return false;
         }
-        // the number of alive cells should be zero
-        if (sim.getAliveCells() == 0) {
+        generations = generation;
+        return true;
+    }
+
+    /**
+     * Goes back one generation, if it is recorded.
+     *
+     * @return true if the grid went back.
+     */
+    public boolean stepBack() {
+        return seek(generations - 1);
+    }
+
+    /**
+     * Returns the period of the cycle the board has settled into: 1 for a
+     * still life (or an empty board), p for an oscillator or a spaceship
+     * wrapping around a torus that repeats every p generations. A cycle is
+     * confirmed once a whole period has repeated, and only periods up to
+     * CycleDetector.DEFAULT_MAX_PERIOD are detected.
+     * O(1)
+     *
+     * @return the period, or 0 if no cycle is confirmed or the board was
+     *         edited since the last generation.
+     */
+    public int getPeriod() {
+        long hash = backend.getStateHash();
+        return cycles.latest(~hash) == hash ? cycles.getPeriod() : 0;
+    }
+
+    /**
+     * Sets how many threads evolve() may use. Small grids still evolve
+     * serially, and the HashMap backend ignores this.
+     *
+     * @param parallelism the number of worker threads, 1 for serial
+     */
+    public void setParallelism(int parallelism) {
+        backend.setParallelism(parallelism);
+    }
+
+    /**
+     * Switches evolve() to the Vector API kernel, or back to scalar code.
+     * Only the bit-packed backend has one, and it needs the
+     * jdk.incubator.vector module at run time.
+     *
+     * @param vectorized true to use the vector kernel
+     * @return true if the vector kernel is now in use
+     */
+    public boolean setVectorized(boolean vectorized) {
+        return backend.setVectorized(vectorized);
+    }
+
+    /**
+     * Sets the rule evolve() applies from the next generation on.
+     *
+     * @param rule the rule
+     * @throws IllegalArgumentException if the backend cannot run it (the
+     *         sparse backend cannot run B0 rules)
+     */
+    public void setRule(Rule rule) {
+        backend.setRule(rule);
+        // memoized HashLife results and the hash history belong to the old rule
+        hashLife = null;
+        cycles.reset();
+    }
+
+    /**
+     * Sets the rule evolve() applies from the next generation on.
+     *
+     * @param rule a rule string such as "B36/S23" or "23/36"
+     * @throws IllegalArgumentException if the string is not a Life-like rule
+     *         or the backend cannot run it
+     */
+    public void setRule(String rule) {
+        setRule(Rule.parse(rule));
+    }
+
+    /**
+     * Returns the rule evolve() applies.
+     *
+     * @return the rule, B3/S23 unless it was changed
+     */
+    public Rule getRule() {
+        return backend.getRule();
+    }
+
+    /**
+     * Helper method for evolve to count the live neighbors of a specific cell at row/col.
+     * Neighbors across an edge follow the boundary.
+     *
+     * @param row the row of the cell in question.
+     * @param col the column of the cell in question.
+     * @return the number of live neighbors.
+     */
+    public int countLiveNeighbors(int row, int col) {
+        return backend.countLiveNeighbors(row, col);
+    }
+
+    /**
+     * Reset all cells in the grid. Generation count should also reset to zero.
+     */
+    public void reset() {
+        backend.clear();
+        restart();
+    }
+
+    /**
+     * Helper method: sets the generation count back to zero and forgets
+     * the cycle and generation history, leaving the cells alone.
+     */
+    private void restart() {
+        cycles.reset();
+        generations = 0;
+        if (history != null) {
+            history.clear();
+        }
+    }
+
+    /**
+     * Returns the count of live cells in the grid.
+     * Capped at Integer.MAX_VALUE; off-heap grids can hold more, so use
+     * getPopulation() for those.
+     * 
+     * @return the number of alive cells.
+     */
+    public int getAliveCells() {
+        return backend.getAliveCells();
+    }
+
+    /**
+     * Returns the count of live cells in the grid, however many there are.
+     *
+     * @return the number of alive cells.
+     */
+    public long getPopulation() {
+        return backend.getPopulation();
+    }
+
+    /**
+     * Returns the average age of all alive cells in the grid.
+     *
+     * @return the average age, or 0.0 if there are no alive cells.
+     */
+    public double getAverageAge() {
+        return backend.getAverageAge();
+    }
+
+    /**
+     * Returns the maximum age of all alive cells in the grid.
+     *
+     * @return the maximum age among alive cells.
+     */
+    public int getMaxAge() {
+        return backend.getMaxAge();
+    }
+
+    /**
+     * Returns the number of tiles the last evolve() actually computed; quiet
+     * tiles are skipped. 0 for the HashMap backend, which has no tiles.
+     *
+     * @return the active tile count.
+     */
+    public int getActiveTiles() {
+        return backend.getActiveTiles();
+    }
+
+    /**
+     * Returns the number of generations the simulation has gone through.
+     *
+     * @return the current generation count, capped at Integer.MAX_VALUE.
+     */
+    public int getGenerations() {
+        return (int) Math.min(generations, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the number of generations the simulation has gone through,
+     * without the int cap of getGenerations().
+     *
+     * @return the current generation count.
+     */
+    public long getGenerationCount() {
+        return generations;
+    }
+
+    /**
+     * Advances the simulation by the given number of generations.
+     * Once the board has settled into a cycle, whole periods are skipped
+     * without evolving: only the generation count and the ages of the cells
+     * that stay alive through the cycle move on.
+     * Otherwise a grid with edges steps with evolve(), since what happens
+     * at an edge depends on the boundary, so the result is the same however
+     * long the jump. On the unbounded sparse backend, jumps of at least
+     * HASHLIFE_MIN_JUMP hand the live cells to HashLife, which jumps in
+     * power-of-two steps; ages then restart at 1. HashLife cannot run B0
+     * rules, so those always step with evolve().
+     *
+     * @param generations the number of generations to advance.
+     */
+    public void advance(long generations) {
+        long left = generations;
+        if (left <= 0) {
+            return;
+        }
+        left -= skipCycles(left);
+        if (left < HASHLIFE_MIN_JUMP || backend.isBounded() || getRule().bornFromNothing()) {
+            while (left > 0) {
+                evolve();
+                left--;
+                left -= skipCycles(left);
+            }
+            return;
+        }
+        if (hashLife == null) {
+            hashLife = new HashLife(HashLife.DEFAULT_MAX_NODES, getRule());
+        }
+        // carry on from the last jump's universe if nothing changed since
+        if (backend.getStateHash() != hashLifeHash || backend.getPopulation() != hashLife.getPopulation()) {
+            hashLife.clear();
+            backend.forEachAlive(hashLife::setCell);
+        }
+        hashLife.advance(left);
+        backend.clear();
+        cycles.reset();
+        hashLife.forEachAlive(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                (row, col) -> backend.setAlive((int) row, (int) col));
+        hashLifeHash = backend.getStateHash();
+        this.generations += left;
+        if (history != null) {
+            history.record(backend, this.generations);
+        }
+    }
+
+    /**
+     * Helper method: skips as many whole periods of a confirmed cycle as fit
+     * in the given number of generations. A period later the board is the
+     * same, so only the ages change: a cell at least one period old is alive
+     * through the whole cycle and ages by the skipped generations, while a
+     * younger one dies and is born again at the same point of every period.
+     * O(live cells), or O(1) if no cycle is confirmed
+     *
+     * @param generations the most generations to skip.
+     * @return the number of generations skipped, a multiple of the period.
+     */
+    private long skipCycles(long generations) {
+        int period = getPeriod();
+        if (period == 0 || generations < period) {
+            return 0;
+        }
+        long skip = generations - generations % period;
+        backend.forEachAlive((row, col) -> {
+            int age = backend.getAge((int) row, (int) col);
+            if (age >= period) {
+                backend.setAlive((int) row, (int) col, (int) Math.min(age + skip, Integer.MAX_VALUE));
+            }
+        });
+        this.generations += skip;
+        if (history != null) {
+            history.record(backend, this.generations);
+        }
+        DebugLogger.debug("Cycle: period %d, skipped %d generations", period, skip);
+        return skip;
+    }
+
+    /**
+     * Parses RLE input lines and applies the resulting pattern to the simulation grid.
+     *
+     * @param lines a List of Strings representing the non-comment lines from the RLE file.
+     */
+    public void parseRle(List<String> lines) {
+        RleParser parser = new RleParser(new RlePlacement());
+        parser.parse(lines);
+        logRleThroughput(parser);
+    }
+
+    /**
+     * Streams an RLE pattern from a Reader straight into the grid, centered
+     * like applyPatternToGrid. No lines or intermediate arrays are built.
+     *
+     * @param reader the RLE source; not closed.
+     * @throws IOException if reading fails.
+     */
+    public void parseRle(Reader reader) throws IOException {
+        RleParser parser = new RleParser(new RlePlacement());
+        parser.parse(reader);
+        logRleThroughput(parser);
+    }
+
+    /**
+     * Decodes an RLE pattern from a byte buffer, such as a memory-mapped file,
+     * straight into the grid, centered like applyPatternToGrid.
+     *
+     * @param buffer the RLE bytes from its position to its limit.
+     */
+    public void parseRle(ByteBuffer buffer) {
+        RleParser parser = new RleParser(new RlePlacement());
+        parser.parse(buffer);
+        logRleThroughput(parser);
+    }
+
+    /**
+     * Loads an RLE file by memory-mapping it and decoding the bytes in place.
+     *
+     * @param file the RLE file.
+     * @throws IOException if the file cannot be read.
+     */
+    public void loadRleFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            parseRle(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Saves the grid and generation count to a compact binary snapshot.
+     *
+     * @param file the file to write.
+     * @param withAges true to save the age of every live cell as well.
+     * @throws IOException if the file cannot be written.
+     */
+    public void saveSnapshot(File file, boolean withAges) throws IOException {
+        Snapshot.save(backend, generations, withAges, file);
+    }
+
+    /**
+     * Loads a snapshot into a new simulation of the saved size.
+     *
+     * @param file the snapshot file.
+     * @param backend the storage to use for the new simulation.
+     * @return the loaded simulation.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    public static Simulation loadSnapshot(File file, Backend backend) throws IOException {
+        return loadSnapshot(file, backend, Boundary.BOUNDED);
+    }
+
+    /**
+     * Loads a snapshot into a new simulation of the saved size with the
+     * given boundary; snapshots do not record one.
+     *
+     * @param file the snapshot file.
+     * @param backend the storage to use for the new simulation.
+     * @param boundary what lies past the edges of the grid.
+     * @return the loaded simulation.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    public static Simulation loadSnapshot(File file, Backend backend, Boundary boundary) throws IOException {
+        try (Snapshot snapshot = Snapshot.open(file)) {
+            Simulation sim = new Simulation(snapshot.getRows(), snapshot.getCols(), backend, boundary);
+            if (snapshot.getRule() != null) {
+                sim.setRule(snapshot.getRule());
+            }
+            snapshot.readInto(sim.backend);
+            sim.generations = snapshot.getGeneration();
+            return sim;
+        }
+    }
+
+    /**
+     * Returns the throughput of the last RLE parse.
+     *
+     * @return megabytes per second.
+     */
+    public double getRleThroughput() {
+        return rleThroughput;
+    }
+
+    /**
+     * Helper method: records and logs how fast the last RLE parse ran.
+     *
+     * @param parser the parser that just finished.
+     */
+    private void logRleThroughput(RleParser parser) {
+        rleThroughput = parser.getMegabytesPerSecond();
+        DebugLogger.debug("RLE: parsed %d bytes at %.1f MB/s", parser.getBytes(), rleThroughput);
+    }
+
+    /**
+     * RlePlacement: receives a parsed RLE pattern and writes it into the grid.
+     * The grid is reset first, and the pattern is centered using the header's
+     * x and y (or placed at the top left if there is no header). The header's
+     * rule, if any, becomes the simulation's rule.
+     */
+    private class RlePlacement implements RleParser.Sink {
+        /**
+         * The grid row of the pattern's top edge.
+         */
+        private int startRow;
+
+        /**
+         * The grid column of the pattern's left edge.
+         */
+        private int startCol;
+
+        /**
+         * Constructor for RlePlacement. Clears the grid.
+         */
+        RlePlacement() {
+            reset();
+        }
+
+        @Override
+        public void header(int width, int height, String rule) {
+            startRow = rows / 2 - height / 2;
+            startCol = cols / 2 - width / 2;
+            if (rule != null) {
+                try {
+                    setRule(rule);
+                } catch (IllegalArgumentException e) {
+                    DebugLogger.warn("RLE: rule %s is not supported, keeping %s", rule, getRule());
+                }
+            }
+        }
+
+        @Override
+        public void run(int row, int col, int length) {
+            int gridRow = startRow + row;
+            for (int j = 0; j < length; j++) {
+                int gridCol = startCol + col + j;
+                if (inBounds(gridRow, gridCol)) {
+                    backend.setAlive(gridRow, gridCol);
+                }
+            }
+        }
+    }
+
+    /**
+     * Translates a boolean 2d array into actual cell data in our grid.
+     * The grid is reset first, but only cleared if it has live cells, and
+     * the pattern is stamped 64 cells at a time.
+     *
+     * @param pattern a 2D boolean array representing the pattern (true for alive,
+     *                false for dead).
+     */
+    public void applyPatternToGrid(boolean[][] pattern) {
+        if (backend.getPopulation() > 0) {
+            backend.clear();
+        }
+        restart();
+        int startRow = rows / 2 - pattern.length / 2;
+        int startCol = cols / 2 - pattern[0].length / 2;
+        stamp(pattern, startRow, startCol, EditMode.OR);
+    }
+
+    /**
+     * This is provided as an optional way to load RLE files if you want to do
+     * testing in main.
+     * This is basically a copy of the loadRleFile method in GameOfLife class, but
+     * without any GUI stuff.
+     * 
+     * @param filename relative path to the file
+     */
+    private void loadRleFile(String filename) {
+        try {
+            loadRleFile(new File(filename));
+        } catch (IOException e) {
+            // do nothing
+        }
+    }
+
+    /**
+     * Gets the number of rows in the simulation grid.
+     * 
+     * @return the number of rows in the grid
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Sets the number of rows in the simulation grid.
+     * 
+     * @param rows the new number of rows
+     * @deprecated the grid keeps the size it was made with, and edits stay
+     *             within it; make a new Simulation to change the size.
+     */
+    @Deprecated
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Gets the number of columns in the simulation grid.
+     * 
+     * @return the number of columns in the grid
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Sets the number of columns in the simulation grid.
+     * 
+     * @param cols the new number of columns
+     * @deprecated the grid keeps the size it was made with, and edits stay
+     *             within it; make a new Simulation to change the size.
+     */
+    @Deprecated
+    public void setCols(int cols) {
+        this.cols = cols;
+    }
+
+    /**
+     * The main method for testing the Simulation class.
+     *
+     * @param args command-line arguments (not used)
+     */
+    public static void main(String args[]) {
+        // create a new sim using Simulation2
+        Simulation sim = new Simulation(50, 50);
+
+        // make the cell at 1,1 to be alive
+        sim.toggleCell(1, 1);
+
+        // if the cell at 1,1 is alive, you did good
+        if (sim.getGrid().get(new Point(1, 1)).isAlive() == true) {
+            System.out.println("Yay 1");
+        }
+        // the number of alive cells should be 1
+        if (sim.getAliveCells() == 1) {
+            System.out.println("Yay 2");
+        }
+
+        // progress the sim by one generation
+        sim.evolve();
+
+        // the cell at 1,1 should now be dead (starvation rule)
+        if (sim.getGrid().get(new Point(1, 1)).isAlive() == false) {
+            System.out.println("Yay 3");
+        }
+        // the number of alive cells should be zero
+        if (sim.getAliveCells() == 0) {
             System.out.println("Yay 4");
         }
         // generation counter should have advanced
@@ -368,7 +1291,646 @@ public class Simulation {
             System.out.println("Yay 5");
         }
 
+        // the bit-packed backend should match the HashMap backend cell for cell
+        Simulation reference = new Simulation(70, 130);
+        Simulation packed = new Simulation(70, 130, Backend.BIT_PACKED);
+        Random random = new Random(310);
+        for (int i = 0; i < 70; i++) {
+            for (int j = 0; j < 130; j++) {
+                if (random.nextInt(100) < 35) {
+                    reference.toggleCell(i, j);
+                    packed.toggleCell(i, j);
+                }
+            }
+        }
+        boolean same = true;
+        for (int gen = 0; gen < 50 && same; gen++) {
+            reference.evolve();
+            packed.evolve();
+            same = sameCells(reference, packed);
+        }
+        if (same && reference.getMaxAge() == packed.getMaxAge()) {
+            System.out.println("Yay 6");
+        }
+
+        // evolving in parallel row bands should give exactly the serial result
+        Simulation serial = new Simulation(300, 300, Backend.BIT_PACKED);
+        Simulation parallel = new Simulation(300, 300, Backend.BIT_PACKED);
+        parallel.setParallelism(4);
+        for (int i = 0; i < 300; i++) {
+            for (int j = 0; j < 300; j++) {
+                if (random.nextBoolean()) {
+                    serial.toggleCell(i, j);
+                    parallel.toggleCell(i, j);
+                }
+            }
+        }
+        same = true;
+        for (int gen = 0; gen < 100 && same; gen++) {
+            serial.evolve();
+            parallel.evolve();
+            same = sameCells(serial, parallel);
+        }
+        parallel.setParallelism(1);
+        if (same) {
+            System.out.println("Yay 7");
+        }
+
+        // a HashLife jump on the unbounded backend should land where stepping
+        // one generation at a time does, as long as nothing reaches the edge
+        // of the stepped grid
+        Simulation stepped = new Simulation(800, 800, Backend.BIT_PACKED);
+        Simulation jumped = new Simulation(800, 800, Backend.SPARSE);
+        int[][] rPentomino = {{0, 1}, {0, 2}, {1, 0}, {1, 1}, {2, 1}};
+        for (int[] cell : rPentomino) {
+            stepped.toggleCell(400 + cell[0], 400 + cell[1]);
+            jumped.toggleCell(400 + cell[0], 400 + cell[1]);
+        }
+        for (int gen = 0; gen < 1024; gen++) {
+            stepped.evolve();
+        }
+        jumped.advance(1024);
+        same = stepped.getGenerations() == jumped.getGenerations()
+                && stepped.getAliveCells() == jumped.getAliveCells();
+        for (int i = 0; i < 800 && same; i++) {
+            for (int j = 0; j < 800 && same; j++) {
+                same = stepped.isAlive(i, j) == jumped.isAlive(i, j);
+            }
+        }
+        // a long jump on a grid with edges should match stepping too, even
+        // once a glider has crashed into the edge
+        for (Backend type : List.of(Backend.BIT_PACKED, Backend.HASH_MAP)) {
+            Simulation crashed = new Simulation(30, 30, type);
+            Simulation leapt = new Simulation(30, 30, type);
+            for (int[] cell : new int[][] {{0, 1}, {1, 2}, {2, 0}, {2, 1}, {2, 2}}) {
+                crashed.toggleCell(cell[0], cell[1]);
+                leapt.toggleCell(cell[0], cell[1]);
+            }
+            for (int gen = 0; gen < 1100; gen++) {
+                crashed.evolve();
+            }
+            leapt.advance(1100);
+            same &= crashed.getGenerationCount() == leapt.getGenerationCount() && sameCells(crashed, leapt);
+        }
+        if (same) {
+            System.out.println("Yay 8");
+        }
+
+        // a glider in the unbounded backend should fly out of the window intact
+        Simulation unbounded = new Simulation(20, 20, Backend.SPARSE);
+        int[][] glider = {{0, 1}, {1, 2}, {2, 0}, {2, 1}, {2, 2}};
+        for (int[] cell : glider) {
+            unbounded.toggleCell(cell[0], cell[1]);
+        }
+        for (int gen = 0; gen < 4000; gen++) {
+            unbounded.evolve();
+        }
+        // a glider moves one cell diagonally every 4 generations
+        same = unbounded.getAliveCells() == 5;
+        for (int[] cell : glider) {
+            same = same && unbounded.isAlive(cell[0] + 1000, cell[1] + 1000);
+        }
+        if (same) {
+            System.out.println("Yay 9");
+        }
+
+        // parsing RLE should place the pattern centered, honoring runs and row skips
+        Simulation loaded = new Simulation(20, 20, Backend.BIT_PACKED);
+        loaded.parseRle(List.of("x = 3, y = 3, rule = B3/S23", "bo$2bo$3o!"));
+        same = loaded.getAliveCells() == 5;
+        for (int[] cell : glider) {
+            same = same && loaded.isAlive(9 + cell[0], 9 + cell[1]);
+        }
+        if (same) {
+            System.out.println("Yay 10");
+        }
+
+        // once warmed up, the bit-packed backend should evolve without allocating
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            for (int gen = 0; gen < 20000; gen++) {
+                packed.evolve();
+            }
+            long threadId = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int gen = 0; gen < 1000; gen++) {
+                packed.evolve();
+            }
+            long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+            if (allocated == 0) {
+                System.out.println("Yay 11");
+            }
+        }
+
+        // a snapshot should load back with the same cells, ages and generation
+        try {
+            File file = File.createTempFile("snapshot", ".gols");
+            file.deleteOnExit();
+            serial.saveSnapshot(file, true);
+            Simulation restored = loadSnapshot(file, Backend.BIT_PACKED);
+            if (sameCells(serial, restored)
+                    && restored.getGenerationCount() == serial.getGenerationCount()
+                    && restored.getMaxAge() == serial.getMaxAge()) {
+                System.out.println("Yay 12");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // cells from getGrid are views of the packed state, so changes go both ways
+        Simulation views = new Simulation(10, 10);
+        Cell view = views.getGrid().get(new Point(4, 4));
+        view.setAlive();
+        view.setColor(Color.RED);
+        views.toggleCell(4, 5);
+        views.evolve();
+        if (views.isAlive(4, 4) == false && view.isAlive() == false
+                && views.getGrid().get(new Point(4, 5)).getAge() == 0) {
+            views.toggleCell(4, 4);
+            if (view.isAlive() && view.getAge() == 1 && view.getColor().equals(Cell.defaultAliveColor)) {
+                System.out.println("Yay 13");
+            }
+        }
+
+        // the vector kernel (or the scalar fallback without the module) should
+        // match the scalar kernel on a grid wide enough to use it
+        Simulation scalar = new Simulation(64, 1500, Backend.BIT_PACKED);
+        Simulation vector = new Simulation(64, 1500, Backend.BIT_PACKED);
+        vector.setVectorized(true);
+        for (int i = 0; i < 64; i++) {
+            for (int j = 0; j < 1500; j++) {
+                if (random.nextInt(100) < 35) {
+                    scalar.toggleCell(i, j);
+                    vector.toggleCell(i, j);
+                }
+            }
+        }
+        same = true;
+        for (int gen = 0; gen < 100 && same; gen++) {
+            scalar.evolve();
+            vector.evolve();
+            same = sameCells(scalar, vector);
+        }
+        if (same) {
+            System.out.println("Yay 14");
+        }
+
+        // every lookup table entry should agree with counting the neighbors
+        same = true;
+        for (int index = 0; index < LifeTable.SIZE; index++) {
+            int neighbors = Integer.bitCount(index) - ((index >> LifeTable.CENTER) & 1);
+            boolean alive = (index >> LifeTable.CENTER & 1) == 1;
+            same &= LifeTable.CONWAY.next(index) == (neighbors == 3 || (alive && neighbors == 2));
+        }
+        if (same && LifeTable.CONWAY.getBytes() == LifeTable.SIZE) {
+            System.out.println("Yay 15");
+        }
+
+        // a glider on a torus should come back where it started after crossing
+        // every edge, and the two backends should agree on a Klein bottle
+        Simulation torus = new Simulation(20, 70, Backend.BIT_PACKED, Boundary.TORUS);
+        Simulation torusMap = new Simulation(20, 70, Backend.HASH_MAP, Boundary.TORUS);
+        for (int[] cell : glider) {
+            torus.toggleCell(cell[0], cell[1]);
+            torusMap.toggleCell(cell[0], cell[1]);
+        }
+        // it crosses the 20 rows and 70 columns a whole number of times in 140 moves
+        for (int gen = 0; gen < 4 * 140; gen++) {
+            torus.evolve();
+            torusMap.evolve();
+        }
+        same = torus.getAliveCells() == 5 && sameCells(torus, torusMap);
+        for (int[] cell : glider) {
+            same &= torus.isAlive(cell[0], cell[1]);
+        }
+        Simulation klein = new Simulation(30, 100, Backend.BIT_PACKED, Boundary.KLEIN_BOTTLE);
+        Simulation kleinMap = new Simulation(30, 100, Backend.HASH_MAP, Boundary.KLEIN_BOTTLE);
+        for (int i = 0; i < 30; i++) {
+            for (int j = 0; j < 100; j++) {
+                if (random.nextInt(100) < 35) {
+                    klein.toggleCell(i, j);
+                    kleinMap.toggleCell(i, j);
+                }
+            }
+        }
+        for (int gen = 0; gen < 100 && same; gen++) {
+            klein.evolve();
+            kleinMap.evolve();
+            same = sameCells(klein, kleinMap)
+                    && klein.countLiveNeighbors(0, 0) == kleinMap.countLiveNeighbors(0, 0);
+        }
+        if (same) {
+            System.out.println("Yay 16");
+        }
+
+        // an RLE header should set the rule, the backends should agree under
+        // HighLife, and a Seeds domino should split into two
+        Simulation high = new Simulation(60, 140, Backend.BIT_PACKED);
+        Simulation highMap = new Simulation(60, 140, Backend.HASH_MAP);
+        high.parseRle(List.of("x = 1, y = 1, rule = B36/S23", "b!"));
+        highMap.setRule("B36/S23");
+        for (int i = 0; i < 60; i++) {
+            for (int j = 0; j < 140; j++) {
+                if (random.nextInt(100) < 35) {
+                    high.toggleCell(i, j);
+                    highMap.toggleCell(i, j);
+                }
+            }
+        }
+        same = high.getRule().equals(Rule.parse("23/36")) && high.getRule().toString().equals("B36/S23");
+        for (int gen = 0; gen < 100 && same; gen++) {
+            high.evolve();
+            highMap.evolve();
+            same = sameCells(high, highMap);
+        }
+        for (Backend type : Backend.values()) {
+            Simulation seeds = new Simulation(10, 10, type);
+            seeds.setRule("B2/S");
+            seeds.toggleCell(5, 5);
+            seeds.toggleCell(5, 6);
+            seeds.evolve();
+            same &= seeds.getAliveCells() == 4 && seeds.isAlive(4, 5) && seeds.isAlive(6, 6);
+        }
+        if (same) {
+            System.out.println("Yay 17");
+        }
+
+        // a blinker next to a block should be found to have period 2, and
+        // skipping whole periods should match stepping, ages included
+        for (Backend type : Backend.values()) {
+            Simulation evolved = new Simulation(20, 20, type);
+            Simulation skipped = new Simulation(20, 20, type);
+            for (Simulation each : List.of(evolved, skipped)) {
+                each.toggleCell(5, 4);
+                each.toggleCell(5, 5);
+                each.toggleCell(5, 6);
+                each.toggleCell(12, 12);
+                each.toggleCell(12, 13);
+                each.toggleCell(13, 12);
+                each.toggleCell(13, 13);
+                for (int gen = 0; gen < 10; gen++) {
+                    each.evolve();
+                }
+            }
+            same &= skipped.getPeriod() == 2;
+            for (int gen = 0; gen < 5001; gen++) {
+                evolved.evolve();
+            }
+            skipped.advance(5001);
+            same &= skipped.getGenerationCount() == evolved.getGenerationCount() && sameCells(evolved, skipped);
+            // a skip far past the age cap should only saturate the ages
+            skipped.advance(1_000_000_000L);
+            same &= skipped.getMaxAge() == CellPlane.MAX_AGE && skipped.getAliveCells() == evolved.getAliveCells();
+            skipped.toggleCell(0, 0);
+            same &= skipped.getPeriod() == 0;
+        }
+        if (same) {
+            System.out.println("Yay 18");
+        }
+
+        // seeking should bring back any recorded generation exactly, evolving
+        // from there should retrace the same future, and a small budget
+        // should evict the oldest generations
+        for (Backend type : List.of(Backend.BIT_PACKED, Backend.HASH_MAP)) {
+            Simulation rewound = new Simulation(40, 90, type, Boundary.TORUS);
+            for (int i = 0; i < 40; i++) {
+                for (int j = 0; j < 90; j++) {
+                    if (random.nextInt(100) < 35) {
+                        rewound.toggleCell(i, j);
+                    }
+                }
+            }
+            rewound.setHistoryBudget(1L << 20);
+            long[][] seen = new long[301][];
+            for (int gen = 0; gen <= 300; gen++) {
+                seen[gen] = new long[40 * 2];
+                for (int i = 0; i < 40; i++) {
+                    seen[gen][2 * i] = rewound.getWord(i, 0);
+                    seen[gen][2 * i + 1] = rewound.getWord(i, 1);
+                }
+                if (gen == 150) {
+                    rewound.toggleCell(0, 0);
+                    seen[gen][0] ^= 1;
+                }
+                if (gen < 300) {
+                    rewound.evolve();
+                }
+            }
+            for (int gen : new int[] {0, 299, 150, 7, 200, 64, 65, 300}) {
+                same &= rewound.seek(gen) && rewound.getGenerationCount() == gen;
+                for (int i = 0; i < 40 && same; i++) {
+                    same = rewound.getWord(i, 0) == seen[gen][2 * i] && rewound.getWord(i, 1) == seen[gen][2 * i + 1];
+                }
+            }
+            same &= rewound.seek(120) && rewound.stepBack() && rewound.getGenerationCount() == 119;
+            rewound.evolve();
+            for (int i = 0; i < 40 && same; i++) {
+                same = rewound.getWord(i, 0) == seen[120][2 * i];
+            }
+            same &= !rewound.seek(121) && !rewound.seek(301);
+            rewound.setHistoryBudget(2048);
+            History kept = rewound.getHistory();
+            same &= kept.getOldestGeneration() > 0 && !rewound.seek(0) && rewound.seek(kept.getNewestGeneration());
+        }
+        if (same) {
+            System.out.println("Yay 19");
+        }
+
+        // batched edits should combine by mode and report what they changed
+        for (Backend type : Backend.values()) {
+            Simulation edited = new Simulation(10, 100, type);
+            same &= edited.editRect(2, 60, 3, 10, EditMode.OR).equals(new Rectangle(60, 2, 10, 3))
+                    && edited.getAliveCells() == 30;
+            same &= edited.editRect(3, 65, 1, 10, EditMode.XOR).equals(new Rectangle(65, 3, 10, 1))
+                    && edited.getAliveCells() == 30 && !edited.isAlive(3, 66) && edited.isAlive(3, 72);
+            same &= edited.stamp(new boolean[][] {{true, false, true}}, 2, 60, EditMode.REPLACE)
+                    .equals(new Rectangle(61, 2, 1, 1)) && edited.getAliveCells() == 29;
+            same &= edited.editCells(new int[] {0, 0, 0, 0}, 4, EditMode.XOR).width == 1
+                    && edited.getAliveCells() == 29;
+            same &= edited.stamp(new long[] {0b101}, 1, 1, 3, 9, 96, EditMode.OR)
+                    .equals(new Rectangle(96, 9, 3, 1)) && edited.getAliveCells() == 31;
+            // filling the rectangle again changes the killed cells, then nothing
+            same &= !edited.editRect(2, 60, 3, 10, EditMode.OR).isEmpty()
+                    && edited.editRect(2, 60, 3, 10, EditMode.OR).isEmpty();
+        }
+        if (same) {
+            System.out.println("Yay 20");
+        }
+
+        // each generation's time and cell counts should reach the metrics and JMX
+        for (Backend type : Backend.values()) {
+            Simulation timed = new Simulation(20, 20, type);
+            timed.toggleCell(5, 4);
+            timed.toggleCell(5, 5);
+            timed.toggleCell(5, 6);
+            for (int gen = 0; gen < 10; gen++) {
+                timed.evolve();
+            }
+            SimulationMetrics.Snapshot taken = timed.getMetrics().snapshot();
+            same &= taken.getGenerations() == 10 && taken.getLastBirths() == 2 && taken.getLastDeaths() == 2
+                    && taken.getTotalBirths() == 20 && taken.getTotalDeaths() == 20
+                    && taken.getEvolveNanosP50() <= taken.getEvolveNanosP99()
+                    && taken.getEvolveNanosP99() <= taken.getEvolveNanosMax() && taken.getEvolveNanosMax() > 0;
+        }
+        try {
+            SimulationMetrics watched = new SimulationMetrics();
+            watched.recordGeneration(1000, 3, 1, 0);
+            watched.register("GameOfLife:type=Simulation,name=test");
+            ObjectName name = new ObjectName("GameOfLife:type=Simulation,name=test");
+            same &= ((Long) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Generations")) == 1
+                    && ((Integer) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "LastBirths")) == 3;
+            watched.unregister();
+            same &= !ManagementFactory.getPlatformMBeanServer().isRegistered(name);
+        } catch (JMException e) {
+            same = false;
+        }
+        if (same) {
+            System.out.println("Yay 21");
+        }
+
+        // log messages should only be built when enabled, and reach the file once flushed
+        DebugLogger.Level level = DebugLogger.getLevel();
+        DebugLogger.setLevel(DebugLogger.Level.INFO);
+        boolean[] built = new boolean[1];
+        DebugLogger.debug(() -> {
+            built[0] = true;
+            return "not logged";
+        });
+        String marker = "check " + System.nanoTime();
+        DebugLogger.info("%s formatted, %d%%", marker, 42);
+        DebugLogger.info(() -> marker + " supplied");
+        DebugLogger.flush();
+        DebugLogger.setLevel(level);
+        try {
+            String logged = new String(Files.readAllBytes(Paths.get("debug_output.txt")), StandardCharsets.UTF_8);
+            same &= !built[0] && logged.contains("INFO " + marker + " formatted, 42%")
+                    && logged.contains("INFO " + marker + " supplied");
+        } catch (IOException e) {
+            same = false;
+        }
+        if (same) {
+            System.out.println("Yay 22");
+        }
+
+        // a grid sharded over socket-linked workers should evolve like one simulation
+        int[][] layouts = {{2, 3}, {1, 2}, {3, 1}};
+        Boundary[] edges = {Boundary.TORUS, Boundary.TORUS, Boundary.BOUNDED};
+        for (int k = 0; k < layouts.length; k++) {
+            Simulation whole = new Simulation(40, 50, Backend.BIT_PACKED, edges[k]);
+            List<String> addresses = new ArrayList<>();
+            try {
+                for (int s = 0; s < layouts[k][0] * layouts[k][1]; s++) {
+                    ShardWorker worker = new ShardWorker(k == 1
+                            ? "unix:" + Paths.get(System.getProperty("java.io.tmpdir"), "gol-test-" + s + ".sock")
+                            : "127.0.0.1:0");
+                    addresses.add(worker.getAddress());
+                    Thread serving = new Thread(() -> {
+                        try {
+                            worker.run();
+                        } catch (IOException e) {
+                            // the coordinator below sees the failure too
+                        }
+                    }, "shard-worker");
+                    serving.setDaemon(true);
+                    serving.start();
+                }
+                try (ShardCoordinator sharded = new ShardCoordinator(40, 50, layouts[k][0], layouts[k][1],
+                        edges[k], Rule.CONWAY, addresses)) {
+                    Random soup = new Random(k);
+                    for (int i = 0; i < 40; i++) {
+                        for (int j = 0; j < 50; j++) {
+                            if (soup.nextInt(3) == 0) {
+                                whole.toggleCell(i, j);
+                                sharded.setAlive(i, j);
+                            }
+                        }
+                    }
+                    for (int gen = 0; gen < 30; gen++) {
+                        whole.evolve();
+                    }
+                    sharded.step(10);
+                    sharded.step(20);
+                    same &= sharded.getGenerationCount() == 30 && sharded.getAliveCells() == whole.getAliveCells()
+                            && sharded.getMaxAge() == whole.getMaxAge()
+                            && Math.abs(sharded.getAverageAge() - whole.getAverageAge()) < 1e-9;
+                    for (int i = 0; i < 40 && same; i++) {
+                        for (int j = 0; j < 50 && same; j++) {
+                            same = sharded.isAlive(i, j) == whole.isAlive(i, j);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                same = false;
+            }
+        }
+        if (same) {
+            System.out.println("Yay 23");
+        }
+
+        // an off-heap grid mapped onto a file should evolve like the bit-packed
+        // one, carry on from the same state when the file is reopened, and
+        // follow a rule change; without the preview build it is skipped
+        boolean offHeapSame = true;
+        boolean offHeapAvailable = true;
+        try {
+            for (Boundary edge : Boundary.values()) {
+                File mapped = File.createTempFile("gol-offheap", ".grid");
+                mapped.deleteOnExit();
+                Files.delete(mapped.toPath());
+                Simulation bits = new Simulation(50, 70, Backend.BIT_PACKED, edge);
+                Simulation offHeap = openOffHeap(50, 70, edge, mapped);
+                Random soup = new Random(edge.ordinal());
+                for (int i = 0; i < 50; i++) {
+                    for (int j = 0; j < 70; j++) {
+                        if (soup.nextInt(3) == 0) {
+                            bits.toggleCell(i, j);
+                            offHeap.toggleCell(i, j);
+                        }
+                    }
+                }
+                for (int gen = 0; gen < 40 && offHeapSame; gen++) {
+                    bits.evolve();
+                    offHeap.evolve();
+                    offHeapSame = offHeap.getAliveCells() == bits.getAliveCells()
+                            && offHeap.getMaxAge() == bits.getMaxAge();
+                }
+                Simulation reopened = openOffHeap(50, 70, edge, mapped);
+                offHeapSame &= sameCells(bits, offHeap) && sameCells(bits, reopened)
+                        && reopened.getAliveCells() == bits.getAliveCells()
+                        && reopened.getMaxAge() == bits.getMaxAge();
+                for (int gen = 0; gen < 20; gen++) {
+                    bits.evolve();
+                    reopened.evolve();
+                }
+                bits.setRule("B3/S");
+                reopened.setRule("B3/S");
+                bits.evolve();
+                reopened.evolve();
+                offHeapSame &= sameCells(bits, reopened);
+            }
+        } catch (UnsupportedOperationException e) {
+            offHeapAvailable = false;
+        } catch (IOException e) {
+            offHeapSame = false;
+        }
+        if (!offHeapAvailable) {
+            System.out.println("Yay 24 skipped: the off-heap backend is not available");
+        } else if (offHeapSame) {
+            System.out.println("Yay 24");
+        }
+
+        // a board settled under one rule should evolve under the next one in
+        // every backend: a block dies at once without survival
+        Simulation settledMap = new Simulation(20, 20, Backend.HASH_MAP);
+        boolean settledSame = true;
+        for (Backend type : Backend.values()) {
+            Simulation settled = type == Backend.HASH_MAP ? settledMap : new Simulation(20, 20, type);
+            for (int[] cell : new int[][] {{5, 5}, {5, 6}, {6, 5}, {6, 6}}) {
+                settled.toggleCell(cell[0], cell[1]);
+            }
+            for (int gen = 0; gen < 3; gen++) {
+                settled.evolve();
+            }
+            settled.setRule("B3/S");
+            settled.evolve();
+            settledSame &= settled.getAliveCells() == 0 && sameCells(settledMap, settled);
+        }
+        if (settledSame) {
+            System.out.println("Yay 25");
+        }
+
+        // the HashMap backend's running statistics should follow edits made
+        // through the Cell viewGrid of getGrid() as well as evolve()
+        Simulation viewed = new Simulation(20, 20);
+        for (int[] cell : new int[][] {{1, 2}, {2, 3}, {3, 1}, {3, 2}, {3, 3}, {10, 10}, {10, 11}, {11, 10}, {11, 11}}) {
+            viewed.toggleCell(cell[0], cell[1]);
+        }
+        for (int gen = 0; gen < 5; gen++) {
+            viewed.evolve();
+        }
+        HashMap<Point, Cell> viewGrid = viewed.getGrid();
+        viewGrid.get(new Point(10, 10)).setAge(40000);
+        viewGrid.get(new Point(11, 11)).reset();
+        viewGrid.get(new Point(15, 15)).setAlive();
+        viewGrid.get(new Point(16, 16)).setAge(500);
+        int viewAlive = 0;
+        int viewMax = 0;
+        long viewSum = 0;
+        for (Cell cell : viewGrid.values()) {
+            if (cell.isAlive()) {
+                viewAlive++;
+                viewSum += cell.getAge();
+                viewMax = Math.max(viewMax, cell.getAge());
+            }
+        }
+        if (viewed.getAliveCells() == viewAlive && viewed.getMaxAge() == viewMax
+                && viewMax == CellPlane.MAX_AGE
+                && viewed.getAverageAge() == (double) viewSum / viewAlive) {
+            viewed.evolve();
+            viewGrid.get(new Point(10, 10)).setAge(2);
+            if (viewed.getMaxAge() < CellPlane.MAX_AGE) {
+                System.out.println("Yay 26");
+            }
+        }
+
+        // edits past the grid the backend holds should do nothing, even
+        // after the deprecated setters changed the reported size
+        boolean resizedSame = true;
+        for (Backend type : new Backend[] {Backend.HASH_MAP, Backend.BIT_PACKED}) {
+            Simulation resized = new Simulation(50, 50, type);
+            resized.setCols(100);
+            resized.setRows(100);
+            resized.toggleCell(10, 70);
+            resized.toggleCell(70, 10);
+            resizedSame &= resized.getAliveCells() == 0;
+        }
+        if (resizedSame) {
+            System.out.println("Yay 27");
+        }
+
+        // a Cell made on its own keeps the exact color it was given, however
+        // many other colors were used, and grid copies keep ages and colors
+        boolean exactColors = true;
+        for (int i = 0; i < 300; i++) {
+            Cell alone = new Cell(true);
+            Color color = new Color(i % 256, i / 256 * 100, 37);
+            alone.setColor(color);
+            exactColors &= alone.getColor().equals(color);
+        }
+        Simulation copied = new Simulation(20, 20, Backend.BIT_PACKED);
+        copied.toggleCell(4, 4);
+        copied.setCellColor(4, 4, Color.GREEN);
+        HashMap<Point, Cell> copy = copied.getGrid();
+        exactColors &= copy.get(new Point(4, 4)).getColor().equals(Color.GREEN)
+                && copy.get(new Point(4, 4)).getAge() == 1 && !copy.get(new Point(5, 5)).isAlive();
+        if (exactColors) {
+            System.out.println("Yay 28");
+        }
+
         // write more tests as needed!
     }
+
+    /**
+     * Helper method for main: compares two simulations cell by cell, ages included.
+     *
+     * @param a the first simulation.
+     * @param b the second simulation.
+     * @return true if both have the same size, alive cells and ages.
+     */
+    private static boolean sameCells(Simulation a, Simulation b) {
+        if (a.rows != b.rows || a.cols != b.cols) {
+            return false;
+        }
+        for (int i = 0; i < a.rows; i++) {
+            for (int j = 0; j < a.cols; j++) {
+                if (a.isAlive(i, j) != b.isAlive(i, j)
+                        || a.backend.getAge(i, j) != b.backend.getAge(i, j)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
 }
 
@@ -0,0 +1,498 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * SimulationMetrics: per-generation instrumentation of a Simulation, and
+ * per-frame instrumentation of whatever renders it.
+ *
+ * Simulation.evolve() records how long each generation took, how many cells
+ * were born and died, and how many bytes the evolving thread allocated
+ * (threads evolving tiles in parallel are not counted). A renderer records
+ * how long each frame took. Times go into histograms, so percentiles can be
+ * watched for regressions under load.
+ *
+ * The metrics can be read in process with snapshot(), or registered as a
+ * platform MBean for standard JMX tooling. Recording is lock-free and
+ * allocation-free, so it can run on the evolving thread while JMX reads it
+ * from another.
+ */
+public class SimulationMetrics implements SimulationMetricsMXBean {
+    /**
+     * The name the GUI and the batch runner register their metrics under.
+     */
+    public static final String DEFAULT_NAME = "GameOfLife:type=Simulation";
+
+    /**
+     * The JVM's thread bean, for allocated bytes, or null if it cannot
+     * measure them.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    /**
+     * Evolve times in nanoseconds.
+     */
+    private final LatencyHistogram evolveNanos = new LatencyHistogram();
+
+    /**
+     * Frame render times in nanoseconds.
+     */
+    private final LatencyHistogram renderNanos = new LatencyHistogram();
+
+    /**
+     * The births in the last generation, or -1 if not counted.
+     */
+    private volatile int lastBirths = -1;
+
+    /**
+     * The deaths in the last generation, or -1 if not counted.
+     */
+    private volatile int lastDeaths = -1;
+
+    /**
+     * The bytes allocated in the last generation, or -1 if not measured.
+     */
+    private volatile long lastAllocatedBytes = -1;
+
+    /**
+     * The births over every generation recorded.
+     */
+    private final AtomicLong totalBirths = new AtomicLong();
+
+    /**
+     * The deaths over every generation recorded.
+     */
+    private final AtomicLong totalDeaths = new AtomicLong();
+
+    /**
+     * The bytes allocated over every generation recorded.
+     */
+    private final AtomicLong totalAllocatedBytes = new AtomicLong();
+
+    /**
+     * The name these metrics are registered under, or null.
+     */
+    private ObjectName registered;
+
+    /**
+     * Snapshot: the metrics at one moment, for reading in process.
+     */
+    public static final class Snapshot {
+        /**
+         * The number of generations recorded.
+         */
+        private final long generations;
+
+        /**
+         * The median evolve time in nanoseconds.
+         */
+        private final long evolveNanosP50;
+
+        /**
+         * The 99th percentile evolve time in nanoseconds.
+         */
+        private final long evolveNanosP99;
+
+        /**
+         * The longest evolve time in nanoseconds.
+         */
+        private final long evolveNanosMax;
+
+        /**
+         * The births in the last generation, or -1.
+         */
+        private final int lastBirths;
+
+        /**
+         * The deaths in the last generation, or -1.
+         */
+        private final int lastDeaths;
+
+        /**
+         * The births over every generation recorded.
+         */
+        private final long totalBirths;
+
+        /**
+         * The deaths over every generation recorded.
+         */
+        private final long totalDeaths;
+
+        /**
+         * The bytes allocated in the last generation, or -1.
+         */
+        private final long lastAllocatedBytes;
+
+        /**
+         * The number of frames rendered.
+         */
+        private final long frames;
+
+        /**
+         * The median render time in nanoseconds.
+         */
+        private final long renderNanosP50;
+
+        /**
+         * The 99th percentile render time in nanoseconds.
+         */
+        private final long renderNanosP99;
+
+        /**
+         * The longest render time in nanoseconds.
+         */
+        private final long renderNanosMax;
+
+        /**
+         * Constructor for Snapshot: reads the metrics once.
+         *
+         * @param metrics the metrics.
+         */
+        private Snapshot(SimulationMetrics metrics) {
+            generations = metrics.getGenerations();
+            evolveNanosP50 = metrics.getEvolveNanosP50();
+            evolveNanosP99 = metrics.getEvolveNanosP99();
+            evolveNanosMax = metrics.getEvolveNanosMax();
+            lastBirths = metrics.getLastBirths();
+            lastDeaths = metrics.getLastDeaths();
+            totalBirths = metrics.getTotalBirths();
+            totalDeaths = metrics.getTotalDeaths();
+            lastAllocatedBytes = metrics.getLastAllocatedBytes();
+            frames = metrics.getFrames();
+            renderNanosP50 = metrics.getRenderNanosP50();
+            renderNanosP99 = metrics.getRenderNanosP99();
+            renderNanosMax = metrics.getRenderNanosMax();
+        }
+
+        /**
+         * Returns the number of generations recorded.
+         *
+         * @return the generations.
+         */
+        public long getGenerations() {
+            return generations;
+        }
+
+        /**
+         * Returns the median evolve time.
+         *
+         * @return the time in nanoseconds.
+         */
+        public long getEvolveNanosP50() {
+            return evolveNanosP50;
+        }
+
+        /**
+         * Returns the 99th percentile evolve time.
+         *
+         * @return the time in nanoseconds.
+         */
+        public long getEvolveNanosP99() {
+            return evolveNanosP99;
+        }
+
+        /**
+         * Returns the longest evolve time.
+         *
+         * @return the time in nanoseconds.
+         */
+        public long getEvolveNanosMax() {
+            return evolveNanosMax;
+        }
+
+        /**
+         * Returns the births in the last generation.
+         *
+         * @return the births, or -1 if not counted.
+         */
+        public int getLastBirths() {
+            return lastBirths;
+        }
+
+        /**
+         * Returns the deaths in the last generation.
+         *
+         * @return the deaths, or -1 if not counted.
+         */
+        public int getLastDeaths() {
+            return lastDeaths;
+        }
+
+        /**
+         * Returns the births over every generation recorded.
+         *
+         * @return the births.
+         */
+        public long getTotalBirths() {
+            return totalBirths;
+        }
+
+        /**
+         * Returns the deaths over every generation recorded.
+         *
+         * @return the deaths.
+         */
+        public long getTotalDeaths() {
+            return totalDeaths;
+        }
+
+        /**
+         * Returns the bytes allocated in the last generation.
+         *
+         * @return the bytes, or -1 if not measured.
+         */
+        public long getLastAllocatedBytes() {
+            return lastAllocatedBytes;
+        }
+
+        /**
+         * Returns the number of frames rendered.
+         *
+         * @return the frames.
+         */
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * Returns the median render time.
+         *
+         * @return the time in nanoseconds.
+         */
+        public long getRenderNanosP50() {
+            return renderNanosP50;
+        }
+
+        /**
+         * Returns the 99th percentile render time.
+         *
+         * @return the time in nanoseconds.
+         */
+        public long getRenderNanosP99() {
+            return renderNanosP99;
+        }
+
+        /**
+         * Returns the longest render time.
+         *
+         * @return the time in nanoseconds.
+         */
+        public long getRenderNanosMax() {
+            return renderNanosMax;
+        }
+
+        /**
+         * Returns the snapshot as one line, times in microseconds.
+         *
+         * @return the text.
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d generations, evolve p50 %.1f us, p99 %.1f us, max %.1f us, "
+                    + "last %d births, %d deaths, %d bytes; %d frames, render p50 %.1f us, p99 %.1f us, max %.1f us",
+                    generations, evolveNanosP50 / 1e3, evolveNanosP99 / 1e3, evolveNanosMax / 1e3,
+                    lastBirths, lastDeaths, lastAllocatedBytes,
+                    frames, renderNanosP50 / 1e3, renderNanosP99 / 1e3, renderNanosMax / 1e3);
+        }
+    }
+
+    /**
+     * Helper method: the JVM's thread bean if it can measure the bytes a
+     * thread allocates, turning the measurement on if it is off.
+     *
+     * @return the bean, or null.
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads;
+    }
+
+    /**
+     * Returns the bytes the current thread has allocated since it started.
+     * O(1)
+     *
+     * @return the bytes, or -1 if the JVM cannot measure them.
+     */
+    public static long currentThreadAllocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Records one evolved generation.
+     * O(1)
+     *
+     * @param nanos how long the generation took.
+     * @param births the cells born, or -1 if not counted.
+     * @param deaths the cells that died, or -1 if not counted.
+     * @param allocatedBytes the bytes allocated, or -1 if not measured.
+     */
+    public void recordGeneration(long nanos, int births, int deaths, long allocatedBytes) {
+        evolveNanos.record(nanos);
+        lastBirths = births;
+        lastDeaths = deaths;
+        lastAllocatedBytes = allocatedBytes;
+        if (births > 0) {
+            totalBirths.addAndGet(births);
+        }
+        if (deaths > 0) {
+            totalDeaths.addAndGet(deaths);
+        }
+        if (allocatedBytes > 0) {
+            totalAllocatedBytes.addAndGet(allocatedBytes);
+        }
+    }
+
+    /**
+     * Records one rendered frame.
+     * O(1)
+     *
+     * @param nanos how long the frame took.
+     */
+    public void recordFrame(long nanos) {
+        renderNanos.record(nanos);
+    }
+
+    /**
+     * Reads every metric at once.
+     * O(buckets)
+     *
+     * @return the snapshot.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, replacing
+     * any metrics registered under this name before.
+     *
+     * @param name the object name, such as DEFAULT_NAME.
+     * @throws JMException if the name is malformed or registration fails.
+     */
+    public synchronized void register(String name) throws JMException {
+        unregister();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(name);
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(this, objectName);
+        registered = objectName;
+    }
+
+    /**
+     * Unregisters these metrics from the platform MBean server, if registered.
+     *
+     * @throws JMException if unregistration fails.
+     */
+    public synchronized void unregister() throws JMException {
+        if (registered != null) {
+            ObjectName objectName = registered;
+            registered = null;
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        }
+    }
+
+    @Override
+    public long getGenerations() {
+        return evolveNanos.getCount();
+    }
+
+    @Override
+    public long getEvolveNanosP50() {
+        return evolveNanos.getPercentile(50);
+    }
+
+    @Override
+    public long getEvolveNanosP99() {
+        return evolveNanos.getPercentile(99);
+    }
+
+    @Override
+    public long getEvolveNanosMax() {
+        return evolveNanos.getMax();
+    }
+
+    @Override
+    public double getEvolveNanosMean() {
+        return evolveNanos.getMean();
+    }
+
+    @Override
+    public int getLastBirths() {
+        return lastBirths;
+    }
+
+    @Override
+    public int getLastDeaths() {
+        return lastDeaths;
+    }
+
+    @Override
+    public long getTotalBirths() {
+        return totalBirths.get();
+    }
+
+    @Override
+    public long getTotalDeaths() {
+        return totalDeaths.get();
+    }
+
+    @Override
+    public long getLastAllocatedBytes() {
+        return lastAllocatedBytes;
+    }
+
+    @Override
+    public long getTotalAllocatedBytes() {
+        return totalAllocatedBytes.get();
+    }
+
+    @Override
+    public long getFrames() {
+        return renderNanos.getCount();
+    }
+
+    @Override
+    public long getRenderNanosP50() {
+        return renderNanos.getPercentile(50);
+    }
+
+    @Override
+    public long getRenderNanosP99() {
+        return renderNanos.getPercentile(99);
+    }
+
+    @Override
+    public long getRenderNanosMax() {
+        return renderNanos.getMax();
+    }
+
+    @Override
+    public void reset() {
+        evolveNanos.reset();
+        renderNanos.reset();
+        lastBirths = -1;
+        lastDeaths = -1;
+        lastAllocatedBytes = -1;
+        totalBirths.set(0);
+        totalDeaths.set(0);
+        totalAllocatedBytes.set(0);
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * SimulationMetricsMXBean: the management interface of SimulationMetrics,
+ * as seen by JMX clients such as jconsole. Every getter is a read-only
+ * attribute; times are in nanoseconds and sizes in bytes.
+ */
+public interface SimulationMetricsMXBean {
+    /**
+     * Returns the number of generations recorded.
+     *
+     * @return the generations evolved since the last reset.
+     */
+    long getGenerations();
+
+    /**
+     * Returns the median time to evolve one generation.
+     *
+     * @return the time in nanoseconds.
+     */
+    long getEvolveNanosP50();
+
+    /**
+     * Returns the 99th percentile time to evolve one generation.
+     *
+     * @return the time in nanoseconds.
+     */
+    long getEvolveNanosP99();
+
+    /**
+     * Returns the longest time to evolve one generation.
+     *
+     * @return the time in nanoseconds.
+     */
+    long getEvolveNanosMax();
+
+    /**
+     * Returns the mean time to evolve one generation.
+     *
+     * @return the time in nanoseconds.
+     */
+    double getEvolveNanosMean();
+
+    /**
+     * Returns the number of cells born in the last generation.
+     *
+     * @return the births, or -1 if the backend does not count them.
+     */
+    int getLastBirths();
+
+    /**
+     * Returns the number of cells that died in the last generation.
+     *
+     * @return the deaths, or -1 if the backend does not count them.
+     */
+    int getLastDeaths();
+
+    /**
+     * Returns the number of cells born over every generation recorded.
+     *
+     * @return the births.
+     */
+    long getTotalBirths();
+
+    /**
+     * Returns the number of cells that died over every generation recorded.
+     *
+     * @return the deaths.
+     */
+    long getTotalDeaths();
+
+    /**
+     * Returns the bytes the evolving thread allocated in the last generation.
+     *
+     * @return the bytes, or -1 if the JVM cannot measure them.
+     */
+    long getLastAllocatedBytes();
+
+    /**
+     * Returns the bytes the evolving thread allocated over every generation recorded.
+     *
+     * @return the bytes.
+     */
+    long getTotalAllocatedBytes();
+
+    /**
+     * Returns the number of frames rendered.
+     *
+     * @return the frames rendered since the last reset.
+     */
+    long getFrames();
+
+    /**
+     * Returns the median time to render one frame.
+     *
+     * @return the time in nanoseconds.
+     */
+    long getRenderNanosP50();
+
+    /**
+     * Returns the 99th percentile time to render one frame.
+     *
+     * @return the time in nanoseconds.
+     */
+    long getRenderNanosP99();
+
+    /**
+     * Returns the longest time to render one frame.
+     *
+     * @return the time in nanoseconds.
+     */
+    long getRenderNanosMax();
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,307 @@
+import java.awt.Rectangle;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SimulationWorker: evolves a Simulation on its own thread so the GUI never
+ * waits for a generation.
+ *
+ * Only the worker thread touches the Simulation. Other threads talk to it
+ * through lock-free structures: edits go into a queue the worker drains
+ * between generations, and each finished generation is published as an
+ * immutable GridFrame in a single slot that always holds the latest one.
+ * A reader that falls behind just skips the frames it missed. When only
+ * region edits ran since the last frame, the next frame re-reads just
+ * their region and says so.
+ */
+public class SimulationWorker {
+    /**
+     * Edit: a change to the simulation, applied on the worker thread.
+     */
+    public interface Edit {
+        /**
+         * Applies the change.
+         *
+         * @param simulation the simulation being run.
+         */
+        void apply(Simulation simulation);
+    }
+
+    /**
+     * RegionEdit: a change to the simulation that reports which cells it changed.
+     */
+    public interface RegionEdit {
+        /**
+         * Applies the change.
+         *
+         * @param simulation the simulation being run.
+         * @return the cells changed, in columns (x) and rows (y), or null if
+         *         any may have.
+         */
+        Rectangle apply(Simulation simulation);
+    }
+
+    /**
+     * The shortest time between published frames while running, in
+     * nanoseconds; faster generations are still computed but not all shown.
+     */
+    private static final long FRAME_INTERVAL_NANOS = 1_000_000_000L / 120;
+
+    /**
+     * The weight of the newest generation in the smoothed achieved rate.
+     */
+    private static final double RATE_SMOOTHING = 0.1;
+
+    /**
+     * The simulation; only read or written on the worker thread.
+     */
+    private Simulation simulation;
+
+    /**
+     * Edits waiting for the next gap between generations.
+     */
+    private final Queue<RegionEdit> edits = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The cells region edits changed since the last frame, or null if none.
+     * Only used on the worker thread.
+     */
+    private Rectangle editedRegion;
+
+    /**
+     * Whether an edit that may change any cell ran since the last frame.
+     * Only used on the worker thread.
+     */
+    private boolean editedAnywhere;
+
+    /**
+     * The latest finished frame.
+     */
+    private final AtomicReference<GridFrame> latest = new AtomicReference<>();
+
+    /**
+     * Single generations requested with step().
+     */
+    private final AtomicInteger pendingSteps = new AtomicInteger();
+
+    /**
+     * Called on the worker thread after each new frame is published.
+     */
+    private final Runnable onFrame;
+
+    /**
+     * The worker thread.
+     */
+    private final Thread thread;
+
+    /**
+     * Whether the simulation evolves continuously.
+     */
+    private volatile boolean running;
+
+    /**
+     * Set once to end the worker thread.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * The time between generations while running, in nanoseconds.
+     */
+    private volatile long periodNanos;
+
+    /**
+     * The smoothed generations per second achieved while running.
+     */
+    private double rate;
+
+    /**
+     * Main constructor. Publishes a first frame and starts the worker thread.
+     *
+     * @param simulation the simulation to run; it must not be used elsewhere afterwards.
+     * @param delayMillis the time between generations while running.
+     * @param onFrame called on the worker thread whenever a frame is published.
+     */
+    public SimulationWorker(Simulation simulation, int delayMillis, Runnable onFrame) {
+        this.simulation = simulation;
+        this.onFrame = onFrame;
+        setDelay(delayMillis);
+        latest.set(new GridFrame(simulation, 0.0));
+        thread = new Thread(this::loop, "simulation-worker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the latest finished frame. Safe from any thread.
+     *
+     * @return the frame.
+     */
+    public GridFrame getFrame() {
+        return latest.get();
+    }
+
+    /**
+     * Queues a change for the worker to apply before the next generation.
+     *
+     * @param edit the change.
+     */
+    public void submit(Edit edit) {
+        submitRegion(current -> {
+            edit.apply(current);
+            return null;
+        });
+    }
+
+    /**
+     * Queues a change that reports its region, so the next frame only
+     * re-reads those cells.
+     *
+     * @param edit the change.
+     */
+    public void submitRegion(RegionEdit edit) {
+        edits.add(edit);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Queues a replacement simulation, such as one at a new size.
+     *
+     * @param next the simulation to run from now on.
+     */
+    public void replace(Simulation next) {
+        submit(current -> simulation = next);
+    }
+
+    /**
+     * Starts or pauses continuous evolution.
+     *
+     * @param running true to run, false to pause.
+     */
+    public void setRunning(boolean running) {
+        this.running = running;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Evolves a single generation, whether or not the worker is running.
+     */
+    public void step() {
+        pendingSteps.incrementAndGet();
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Sets the target rate as the time between generations.
+     *
+     * @param delayMillis the delay in milliseconds; 0 runs as fast as possible.
+     */
+    public void setDelay(int delayMillis) {
+        periodNanos = Math.max(0, delayMillis) * 1_000_000L;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Ends the worker thread after the current generation.
+     */
+    public void stop() {
+        stopped = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Helper method: the worker thread. Applies edits, evolves when running
+     * or asked to step, publishes a frame, then sleeps until the next
+     * generation is due, a held-back frame may be published, or something
+     * wakes it.
+     */
+    private void loop() {
+        long deadline = System.nanoTime();
+        long lastGeneration = 0;
+        long lastPublish = 0;
+        double interval = 0.0;
+        boolean dirty = false;
+        boolean evolved = false;
+        while (!stopped) {
+            dirty |= applyEdits();
+            boolean evolve = false;
+            long now = System.nanoTime();
+            if (pendingSteps.get() > 0) {
+                pendingSteps.decrementAndGet();
+                evolve = true;
+            } else if (running && now - deadline >= 0) {
+                evolve = true;
+                // pace from the schedule, but do not race to catch up after a stall
+                deadline = now - deadline > periodNanos ? now + periodNanos : deadline + periodNanos;
+            }
+            if (evolve) {
+                simulation.evolve();
+                dirty = true;
+                evolved = true;
+                now = System.nanoTime();
+                if (running && lastGeneration != 0) {
+                    long elapsed = now - lastGeneration;
+                    interval = interval == 0.0 ? elapsed : interval * (1 - RATE_SMOOTHING) + elapsed * RATE_SMOOTHING;
+                    rate = 1e9 / interval;
+                }
+                lastGeneration = now;
+            }
+
+            if (dirty && (!running || now - lastPublish >= FRAME_INTERVAL_NANOS)) {
+                Rectangle region = evolved || editedAnywhere ? null
+                        : editedRegion == null ? new Rectangle() : editedRegion;
+                latest.set(new GridFrame(simulation, running ? rate : 0.0, latest.get(), region));
+                lastPublish = now;
+                dirty = false;
+                evolved = false;
+                editedAnywhere = false;
+                editedRegion = null;
+                onFrame.run();
+            }
+
+            if (!edits.isEmpty() || pendingSteps.get() > 0) {
+                continue;
+            }
+            if (running) {
+                now = System.nanoTime();
+                long wait = deadline - now;
+                if (dirty) {
+                    // an unpublished change is shown within a frame interval,
+                    // not held until the next generation
+                    wait = Math.min(wait, lastPublish + FRAME_INTERVAL_NANOS - now);
+                }
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                }
+            } else if (!dirty) {
+                rate = 0.0;
+                interval = 0.0;
+                lastGeneration = 0;
+                LockSupport.park(this);
+                deadline = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Helper method: applies every queued edit.
+     *
+     * @return true if there were any.
+     */
+    private boolean applyEdits() {
+        boolean any = false;
+        RegionEdit edit;
+        while ((edit = edits.poll()) != null) {
+            Rectangle region = edit.apply(simulation);
+            if (region == null) {
+                editedAnywhere = true;
+            } else if (!region.isEmpty()) {
+                editedRegion = editedRegion == null ? region : editedRegion.union(region);
+            }
+            any = true;
+        }
+        return any;
+    }
+}
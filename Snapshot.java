@@ -0,0 +1,396 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Snapshot: a compact binary save format for a grid, read and written
+ * through memory-mapped windows of the file.
+ *
+ * The file is little-endian: a header (magic "GOLS", version, flags, rule,
+ * rows, cols and generation), then the cell plane, then an optional age
+ * plane. The rule is the birth mask in bits 0-8 and the survival mask in
+ * bits 9-17; files without FLAG_RULE leave it 0 and run B3/S23.
+ * The cell plane is the grid as 64-cell words, row by row, each row padded
+ * to a whole word. Words are grouped in superblocks of 4096: a superblock
+ * starts with a mask of its non-empty 64-word blocks, and each of those
+ * blocks is a mask of its non-zero words followed by the words themselves.
+ * Empty space costs 8 bytes per 4096 words, and a dense grid costs about
+ * 1/64 more than the raw bits. The age plane is one varint per live cell,
+ * in the same order as the cell plane.
+ */
+public class Snapshot implements Closeable {
+    /**
+     * The first four bytes of every snapshot, "GOLS" in little-endian.
+     */
+    private static final int MAGIC = 0x534C4F47;
+
+    /**
+     * The format version written by this class.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Header flag: the file has an age plane.
+     */
+    private static final int FLAG_AGES = 1;
+
+    /**
+     * Header flag: the rule field holds the rule.
+     */
+    private static final int FLAG_RULE = 2;
+
+    /**
+     * The number of header bytes.
+     */
+    private static final int HEADER_BYTES = 32;
+
+    /**
+     * The number of words in a superblock.
+     */
+    private static final int SUPERBLOCK_WORDS = 64 * 64;
+
+    /**
+     * The most bytes mapped at once.
+     */
+    private static final long WINDOW_BYTES = 1L << 28;
+
+    /**
+     * The open snapshot file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * How the windows are mapped.
+     */
+    private final FileChannel.MapMode mode;
+
+    /**
+     * The file offset of the current window.
+     */
+    private long windowStart;
+
+    /**
+     * The current window, or null before the first access.
+     */
+    private MappedByteBuffer window;
+
+    /**
+     * The number of rows in the saved grid.
+     */
+    private int rows;
+
+    /**
+     * The number of cols in the saved grid.
+     */
+    private int cols;
+
+    /**
+     * The generation the grid was saved at.
+     */
+    private long generation;
+
+    /**
+     * Whether the file has an age plane.
+     */
+    private boolean hasAges;
+
+    /**
+     * The saved rule, or null if the file does not record one.
+     */
+    private Rule rule;
+
+    /**
+     * Helper constructor: opens the file for reading or writing.
+     *
+     * @param file the snapshot file.
+     * @param write true to create or overwrite the file.
+     * @throws IOException if the file cannot be opened.
+     */
+    private Snapshot(File file, boolean write) throws IOException {
+        if (write) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            mode = FileChannel.MapMode.READ_WRITE;
+        } else {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            mode = FileChannel.MapMode.READ_ONLY;
+        }
+    }
+
+    /**
+     * Opens a snapshot and reads its header; the cells are read by readInto.
+     *
+     * @param file the snapshot file.
+     * @return the open snapshot.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    public static Snapshot open(File file) throws IOException {
+        Snapshot snapshot = new Snapshot(file, false);
+        try {
+            snapshot.readHeader();
+        } catch (IOException e) {
+            snapshot.close();
+            throw e;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Writes a grid to a snapshot file.
+     * O(rows * cols / 64 + population)
+     *
+     * @param backend the grid to save.
+     * @param generation the generation to record.
+     * @param withAges true to save the age of every live cell as well.
+     * @param file the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void save(GridBackend backend, long generation, boolean withAges, File file)
+            throws IOException {
+        try (Snapshot snapshot = new Snapshot(file, true)) {
+            snapshot.write(backend, generation, withAges);
+        }
+    }
+
+    /**
+     * Helper method: reads and checks the header.
+     *
+     * @throws IOException if the header is not a snapshot header.
+     */
+    private void readHeader() throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            throw new IOException("Not a snapshot: file too short");
+        }
+        ensure(HEADER_BYTES);
+        if (window.getInt() != MAGIC) {
+            throw new IOException("Not a snapshot: bad magic number");
+        }
+        int version = window.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        int flags = window.getInt();
+        hasAges = (flags & FLAG_AGES) != 0;
+        int ruleBits = window.getInt();
+        if ((flags & FLAG_RULE) != 0) {
+            try {
+                rule = new Rule(ruleBits & 0x1ff, ruleBits >>> 9);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt snapshot: bad rule");
+            }
+        }
+        rows = window.getInt();
+        cols = window.getInt();
+        generation = window.getLong();
+        if (rows < 0 || cols < 0) {
+            throw new IOException("Corrupt snapshot: negative size");
+        }
+    }
+
+    /**
+     * Helper method: writes the header and both planes, then trims the file.
+     *
+     * @param backend the grid to save.
+     * @param generation the generation to record.
+     * @param withAges true to write the age plane.
+     * @throws IOException if the file cannot be written.
+     */
+    private void write(GridBackend backend, long generation, boolean withAges) throws IOException {
+        rows = backend.getRows();
+        cols = backend.getCols();
+        ensure(HEADER_BYTES);
+        window.putInt(MAGIC);
+        window.putInt(VERSION);
+        Rule saved = backend.getRule();
+        window.putInt((withAges ? FLAG_AGES : 0) | FLAG_RULE);
+        window.putInt(saved.getSurvivalMask() << 9 | saved.getBirthMask());
+        window.putInt(rows);
+        window.putInt(cols);
+        window.putLong(generation);
+
+        int wordsPerRow = (cols + 63) >>> 6;
+        long total = (long) rows * wordsPerRow;
+        long[] words = new long[SUPERBLOCK_WORDS];
+        for (long first = 0; first < total; first += SUPERBLOCK_WORDS) {
+            int n = (int) Math.min(SUPERBLOCK_WORDS, total - first);
+            long superMask = 0;
+            for (int i = 0; i < n; i++) {
+                long index = first + i;
+                words[i] = backend.getWord((int) (index / wordsPerRow), (int) (index % wordsPerRow));
+                if (words[i] != 0) {
+                    superMask |= 1L << (i >>> 6);
+                }
+            }
+            ensure(8);
+            window.putLong(superMask);
+            for (long blocks = superMask; blocks != 0; blocks &= blocks - 1) {
+                int block = Long.numberOfTrailingZeros(blocks) << 6;
+                long blockMask = 0;
+                for (int i = 0; i < 64 && block + i < n; i++) {
+                    if (words[block + i] != 0) {
+                        blockMask |= 1L << i;
+                    }
+                }
+                ensure(8 * (1 + Long.bitCount(blockMask)));
+                window.putLong(blockMask);
+                for (long bits = blockMask; bits != 0; bits &= bits - 1) {
+                    window.putLong(words[block + Long.numberOfTrailingZeros(bits)]);
+                }
+            }
+        }
+
+        // an empty grid has no ages, so skip the second pass over it
+        if (withAges && backend.getPopulation() > 0) {
+            for (int r = 0; r < rows; r++) {
+                for (int w = 0; w < wordsPerRow; w++) {
+                    for (long bits = backend.getWord(r, w); bits != 0; bits &= bits - 1) {
+                        int age = backend.getAge(r, (w << 6) + Long.numberOfTrailingZeros(bits));
+                        ensure(5);
+                        while ((age & ~0x7f) != 0) {
+                            window.put((byte) ((age & 0x7f) | 0x80));
+                            age >>>= 7;
+                        }
+                        window.put((byte) age);
+                    }
+                }
+            }
+        }
+        long size = windowStart + window.position();
+        window.force();
+        window = null;
+        channel.truncate(size);
+    }
+
+    /**
+     * Loads the saved cells, and ages if there are any, into an empty grid of
+     * at least the saved size. Cells without a saved age get age 1.
+     * O(rows * cols / 64 + population)
+     *
+     * @param backend the grid to fill.
+     * @throws IOException if the file is cut short.
+     */
+    public void readInto(GridBackend backend) throws IOException {
+        int wordsPerRow = (cols + 63) >>> 6;
+        long total = (long) rows * wordsPerRow;
+        try {
+            for (long first = 0; first < total; first += SUPERBLOCK_WORDS) {
+                ensure(8);
+                for (long blocks = window.getLong(); blocks != 0; blocks &= blocks - 1) {
+                    long block = first + (Long.numberOfTrailingZeros(blocks) << 6);
+                    ensure(8);
+                    long blockMask = window.getLong();
+                    ensure(8 * Long.bitCount(blockMask));
+                    for (long bits = blockMask; bits != 0; bits &= bits - 1) {
+                        long index = block + Long.numberOfTrailingZeros(bits);
+                        if (index >= total) {
+                            throw new IOException("Corrupt snapshot: word past the grid");
+                        }
+                        backend.setWord((int) (index / wordsPerRow), (int) (index % wordsPerRow),
+                                window.getLong());
+                    }
+                }
+            }
+            if (hasAges) {
+                for (int r = 0; r < rows; r++) {
+                    for (int w = 0; w < wordsPerRow; w++) {
+                        for (long bits = backend.getWord(r, w); bits != 0; bits &= bits - 1) {
+                            ensure(5);
+                            int age = 0;
+                            int shift = 0;
+                            byte b;
+                            do {
+                                b = window.get();
+                                age |= (b & 0x7f) << shift;
+                                shift += 7;
+                            } while (b < 0 && shift < 35);
+                            backend.setAlive(r, (w << 6) + Long.numberOfTrailingZeros(bits), Math.max(age, 1));
+                        }
+                    }
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt snapshot: file cut short");
+        }
+    }
+
+    /**
+     * Helper method: makes sure the current window has room for the next
+     * bytes, mapping a new window at the current file position if not.
+     * Windows are capped at WINDOW_BYTES, so files of any size can be used;
+     * when reading, a window never extends past the end of the file.
+     *
+     * @param bytes the number of bytes about to be read or written.
+     * @throws IOException if the file cannot be mapped.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (window != null && window.remaining() >= bytes) {
+            return;
+        }
+        if (window != null) {
+            windowStart += window.position();
+        }
+        long length = WINDOW_BYTES;
+        if (mode == FileChannel.MapMode.READ_ONLY) {
+            length = Math.min(length, channel.size() - windowStart);
+        }
+        window = channel.map(mode, windowStart, length);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns the number of rows in the saved grid.
+     *
+     * @return the row count.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of cols in the saved grid.
+     *
+     * @return the column count.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the generation the grid was saved at.
+     *
+     * @return the generation.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns whether the file saves cell ages.
+     *
+     * @return true if there is an age plane.
+     */
+    public boolean hasAges() {
+        return hasAges;
+    }
+
+    /**
+     * Returns the rule the grid was running.
+     *
+     * @return the rule, or null if the file does not record one.
+     */
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
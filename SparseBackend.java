@@ -0,0 +1,401 @@
+import java.awt.Color;
+import java.awt.Point;
+import java.util.HashMap;
+
+/**
+ * SparseBackend: an unbounded universe that stores only live cells. Each
+ * cell's (row, col) is packed into one long and used as the key in a
+ * primitive hash map whose value is the generation the cell was born in.
+ * Every generation a neighbor-count map is rebuilt from the live cells, so
+ * memory and time follow the population rather than the area.
+ *
+ * rows and cols only describe the window shown by toMap() and the default
+ * statistics; cells may live anywhere in int range, and the universe wraps
+ * silently past Integer.MAX_VALUE.
+ *
+ * Ages saturate at CellPlane.MAX_AGE as in the other backends. Every
+ * PIN_INTERVAL generations the stamps of cells older than that are moved up
+ * to the oldest one that still counts, so the statistics never span more
+ * than MAX_AGE + PIN_INTERVAL birth generations.
+ */
+public class SparseBackend implements GridBackend {
+    /**
+     * The number of rows in the viewing window.
+     */
+    private final int rows;
+
+    /**
+     * The number of cols in the viewing window.
+     */
+    private final int cols;
+
+    /**
+     * The live cells, packed position to birth generation.
+     */
+    private LongIntHashMap live = new LongIntHashMap(1024);
+
+    /**
+     * The live cells of the generation being computed; swapped with live.
+     */
+    private LongIntHashMap nextLive = new LongIntHashMap(1024);
+
+    /**
+     * Live neighbor counts for every cell next to a live cell, rebuilt each generation.
+     */
+    private LongIntHashMap neighbors = new LongIntHashMap(1024);
+
+    /**
+     * The number of generations this backend has evolved since the last clear.
+     */
+    private int clock;
+
+    /**
+     * How many generations pass between pinning the stamps of saturated cells.
+     */
+    private static final int PIN_INTERVAL = 1 << 14;
+
+    /**
+     * Running population and age statistics.
+     */
+    private final CellStats stats = new CellStats();
+
+    /**
+     * The Zobrist hash of the live cells, by packed position.
+     */
+    private long hash;
+
+    /**
+     * The rule evolve() applies; never one with B0.
+     */
+    private Rule rule = Rule.CONWAY;
+
+    /**
+     * The number of cells born in the last generation.
+     */
+    private int lastBirths;
+
+    /**
+     * The number of cells that died in the last generation.
+     */
+    private int lastDeaths;
+
+    /**
+     * Main constructor.
+     *
+     * @param rows the number of rows in the viewing window
+     * @param cols the number of columns in the viewing window
+     */
+    public SparseBackend(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Helper method: packs a position into one long key.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the key.
+     */
+    static long pack(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    /**
+     * Helper method: the row of a packed key.
+     *
+     * @param key the key.
+     * @return the row.
+     */
+    static int rowOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Helper method: the column of a packed key.
+     *
+     * @param key the key.
+     * @return the column.
+     */
+    static int colOf(long key) {
+        return (int) key;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public boolean isBounded() {
+        return false;
+    }
+
+    @Override
+    public boolean isAlive(int row, int col) {
+        return live.containsKey(pack(row, col));
+    }
+
+    @Override
+    public int getAge(int row, int col) {
+        long key = pack(row, col);
+        return live.containsKey(key) ? Math.min(clock - live.get(key, clock) + 1, CellPlane.MAX_AGE) : 0;
+    }
+
+    @Override
+    public void setAlive(int row, int col) {
+        long key = pack(row, col);
+        if (!live.containsKey(key)) {
+            live.put(key, clock);
+            hash ^= Zobrist.key(key);
+            stats.add(clock);
+        }
+    }
+
+    @Override
+    public void setAlive(int row, int col, int age) {
+        long key = pack(row, col);
+        if (live.containsKey(key)) {
+            stats.remove(live.get(key, clock));
+        } else {
+            hash ^= Zobrist.key(key);
+        }
+        int born = clock - Math.min(age, CellPlane.MAX_AGE) + 1;
+        live.put(key, born);
+        stats.add(born);
+    }
+
+    @Override
+    public void setDead(int row, int col) {
+        long key = pack(row, col);
+        if (live.containsKey(key)) {
+            stats.remove(live.get(key, clock));
+            live.remove(key);
+            hash ^= Zobrist.key(key);
+        }
+    }
+
+    @Override
+    public int countLiveNeighbors(int row, int col) {
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if ((dr != 0 || dc != 0) && live.containsKey(pack(row + dr, col + dc))) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts neighbors by having every live cell add one to each of its eight
+     * neighbors, then keeps the cells the rule's masks say are born or
+     * survive. Cells with no live neighbors never appear in the counts, which
+     * is right for dead ones since B0 is not allowed; live ones only survive
+     * under S0. Live cells missing from the new set are recorded as deaths.
+     * O(population)
+     */
+    @Override
+    public void evolve() {
+        neighbors.clear();
+        for (int i = 0; i < live.slots(); i++) {
+            if (live.isUsed(i)) {
+                long key = live.keyAt(i);
+                int row = rowOf(key);
+                int col = colOf(key);
+                for (int dr = -1; dr <= 1; dr++) {
+                    for (int dc = -1; dc <= 1; dc++) {
+                        if (dr != 0 || dc != 0) {
+                            neighbors.addTo(pack(row + dr, col + dc), 1);
+                        }
+                    }
+                }
+            }
+        }
+        clock++;
+
+        nextLive.clear();
+        int born = 0;
+        int died = 0;
+        int births = rule.getBirthMask();
+        int survivals = rule.getSurvivalMask();
+        for (int i = 0; i < neighbors.slots(); i++) {
+            if (neighbors.isUsed(i)) {
+                int count = neighbors.valueAt(i);
+                if (((births | survivals) >>> count & 1) != 0) {
+                    long key = neighbors.keyAt(i);
+                    boolean alive = live.containsKey(key);
+                    if (((alive ? survivals : births) >>> count & 1) != 0) {
+                        nextLive.put(key, alive ? live.get(key, clock) : clock);
+                        if (!alive) {
+                            hash ^= Zobrist.key(key);
+                            stats.add(clock);
+                            born++;
+                        }
+                    }
+                }
+            }
+        }
+        if (rule.survives(0)) {
+            for (int i = 0; i < live.slots(); i++) {
+                if (live.isUsed(i) && !neighbors.containsKey(live.keyAt(i))) {
+                    nextLive.put(live.keyAt(i), live.valueAt(i));
+                }
+            }
+        }
+        for (int i = 0; i < live.slots(); i++) {
+            if (live.isUsed(i) && !nextLive.containsKey(live.keyAt(i))) {
+                hash ^= Zobrist.key(live.keyAt(i));
+                stats.remove(live.valueAt(i));
+                died++;
+            }
+        }
+        lastBirths = born;
+        lastDeaths = died;
+        LongIntHashMap swap = live;
+        live = nextLive;
+        nextLive = swap;
+        if (clock % PIN_INTERVAL == 0) {
+            pinSaturated();
+        }
+    }
+
+    /**
+     * Helper method: moves the stamps of cells older than
+     * CellPlane.MAX_AGE up to the stamp of a cell exactly that old, which
+     * changes no age anyone can see, and the statistics follow them.
+     * O(population), once every PIN_INTERVAL generations.
+     */
+    private void pinSaturated() {
+        int oldest = clock - CellPlane.MAX_AGE + 1;
+        for (int i = 0; i < live.slots(); i++) {
+            if (live.isUsed(i) && live.valueAt(i) < oldest) {
+                stats.remove(live.valueAt(i));
+                stats.add(oldest);
+                live.put(live.keyAt(i), oldest);
+            }
+        }
+    }
+
+    /**
+     * Sets the rule. B0 rules are refused, since they would fill the whole
+     * unbounded plane.
+     *
+     * @param rule the rule.
+     * @throws IllegalArgumentException if the rule has B0.
+     */
+    @Override
+    public void setRule(Rule rule) {
+        if (rule.bornFromNothing()) {
+            throw new IllegalArgumentException("The sparse backend cannot run B0 rules such as " + rule);
+        }
+        this.rule = rule;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * Returns the hash of the live cells keyed by packed position, so cells
+     * outside the viewing window count too.
+     * O(1)
+     */
+    @Override
+    public long getStateHash() {
+        return hash;
+    }
+
+    @Override
+    public int getLastBirths() {
+        return lastBirths;
+    }
+
+    @Override
+    public int getLastDeaths() {
+        return lastDeaths;
+    }
+
+    @Override
+    public void clear() {
+        // fresh maps, so an emptied universe gives back its peak's memory
+        live = new LongIntHashMap(1024);
+        nextLive = new LongIntHashMap(1024);
+        neighbors = new LongIntHashMap(1024);
+        stats.clear();
+        hash = 0;
+        clock = 0;
+    }
+
+    @Override
+    public Color getColor(int row, int col) {
+        return isAlive(row, col) ? Cell.defaultAliveColor : Color.WHITE;
+    }
+
+    @Override
+    public void setColor(int row, int col, Color color) {
+        // no per-cell colors are stored
+    }
+
+    @Override
+    public HashMap<Point, Cell> toMap() {
+        HashMap<Point, Cell> map = new HashMap<>();
+        // one plane for the whole copy; its Cells are views of it
+        CellPlane copy = new CellPlane(rows * cols, new Palette());
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int index = i * cols + j;
+                if (isAlive(i, j)) {
+                    copy.setAlive(index);
+                    copy.setAge(index, getAge(i, j));
+                }
+                map.put(new Point(i, j), new Cell(copy, index));
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public void forEachAlive(CellVisitor visitor) {
+        for (int i = 0; i < live.slots(); i++) {
+            if (live.isUsed(i)) {
+                long key = live.keyAt(i);
+                visitor.visit(rowOf(key), colOf(key));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of live cells anywhere in the universe.
+     * O(1)
+     */
+    @Override
+    public long getPopulation() {
+        return stats.getAlive();
+    }
+
+    /**
+     * Returns the average age of every live cell in the universe.
+     * O(1)
+     */
+    @Override
+    public double getAverageAge() {
+        return stats.getAverageAge(clock, CellPlane.MAX_AGE);
+    }
+
+    /**
+     * Returns the maximum age of every live cell in the universe.
+     * O(1)
+     */
+    @Override
+    public int getMaxAge() {
+        return Math.min(stats.getMaxAge(clock), CellPlane.MAX_AGE);
+    }
+}
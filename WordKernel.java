@@ -0,0 +1,53 @@
+/**
+ * WordKernel: evolves a stretch of a bit-packed row, for BitGridBackend.
+ * Words use the backend's layout: stride words per stored row, column c at
+ * bit c + 1, and a dead halo around the grid.
+ *
+ * The built-in scalar loop lives in BitGridBackend. A faster kernel can be
+ * plugged in; the Vector API one is compiled separately (vector/) because
+ * jdk.incubator.vector is not always present, and is found with loadVector().
+ */
+public interface WordKernel {
+    /**
+     * Writes the next generation of words from (inclusive) to to (exclusive)
+     * of one row into dst. Every word in the range has a word on both sides
+     * in the same row. A kernel may stop early, for instance at a multiple
+     * of its vector width; the caller finishes the rest.
+     *
+     * @param src the current cell words.
+     * @param dst the words to write the next generation into.
+     * @param up the index of the first word of the row above.
+     * @param mid the index of the first word of the row.
+     * @param down the index of the first word of the row below.
+     * @param from the first word to evolve, at least 1.
+     * @param to one past the last word to evolve, at most stride - 1.
+     * @param interiorMask per word, the bits that hold real columns.
+     * @param rule the rule to apply.
+     * @return one past the last word evolved.
+     */
+    int evolveWords(long[] src, long[] dst, int up, int mid, int down, int from, int to, long[] interiorMask,
+            Rule rule);
+
+    /**
+     * Returns how many words the kernel handles per step; shorter ranges
+     * are not worth handing to it.
+     *
+     * @return the step width in words.
+     */
+    int getWidth();
+
+    /**
+     * Loads the Vector API kernel if it was compiled and the
+     * jdk.incubator.vector module is present (java --add-modules
+     * jdk.incubator.vector), or returns null so callers stay scalar.
+     *
+     * @return the kernel, or null if it is not available.
+     */
+    static WordKernel loadVector() {
+        try {
+            return (WordKernel) Class.forName("VectorWordKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Zobrist: keys for hashing a set of live cells. The hash of a set is the
+ * xor of its cells' keys, so a birth or death updates it with one xor and
+ * two equal sets always hash the same, whatever order they were built in.
+ *
+ * Classic Zobrist hashing draws a random key per position from a table;
+ * here the key is a SplitMix64 mix of the position instead, which is just
+ * as well distributed and needs no table the size of the grid.
+ */
+public final class Zobrist {
+    /**
+     * Helper constructor: not instantiable.
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of a cell position.
+     * O(1)
+     *
+     * @param position the cell's position, such as row * cols + col.
+     * @return the key.
+     */
+    public static long key(long position) {
+        long z = position * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,31 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchMain: runs the benchmarks with the usual JMH command line, always
+ * adding the GC profiler so every result comes with its allocation rate
+ * (gc.alloc.rate and gc.alloc.rate.norm, bytes per operation).
+ */
+public class BenchMain {
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args JMH command line options, such as a benchmark regex or -p size=1024.
+     * @throws CommandLineOptionException if the options cannot be parsed.
+     * @throws RunnerException if a benchmark fails.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,108 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EvolveBenchmark: measures Simulation.evolve() on square grids from 50x50
+ * to 4096x4096, seeded with random soups or canonical patterns.
+ *
+ * Every iteration starts from a freshly seeded grid and times the same
+ * GENERATIONS generations, so a soup never has time to settle into ash and
+ * leave the tile-skipping backends timing idle grids. The score is the time
+ * for those generations; the "cells" counter reports cells processed per
+ * second (the grid area times the generations), which makes grid sizes
+ * comparable.
+ *
+ * The HashMap backend, the default one, is much slower on large grids; trim
+ * its run with -p backend=HASH_MAP -p size=50,256.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = EvolveBenchmark.GENERATIONS)
+@Measurement(iterations = 5, batchSize = EvolveBenchmark.GENERATIONS)
+@Fork(1)
+public class EvolveBenchmark {
+    /**
+     * The generations evolved from each fresh seed, per iteration.
+     */
+    static final int GENERATIONS = 50;
+
+    /**
+     * The width and height of the grid.
+     */
+    @Param({"50", "256", "1024", "4096"})
+    public int size;
+
+    /**
+     * How the grid is filled; see Sim.seed.
+     */
+    @Param({"soup-10", "soup-35", "soup-50", "r-pentomino", "gosper-gun"})
+    public String seed;
+
+    /**
+     * The Simulation.Backend to store the grid in.
+     */
+    @Param({"BIT_PACKED", "SPARSE", "HASH_MAP"})
+    public String backend;
+
+    /**
+     * The simulation being evolved.
+     */
+    private Sim sim;
+
+    /**
+     * Cells: per-iteration counters reported next to the score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Cells {
+        /**
+         * Cells processed, reported as cells per second.
+         */
+        public long cells;
+
+        /**
+         * Clears the counter before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void clear() {
+            cells = 0;
+        }
+    }
+
+    /**
+     * Builds and seeds a fresh grid for each iteration, so soups do not burn
+     * out before they are measured.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        sim = new Sim(size, size, backend);
+        sim.seed(seed, size, size);
+    }
+
+    /**
+     * Evolves one generation.
+     *
+     * @param counters where the cell count goes.
+     */
+    @Benchmark
+    public void evolve(Cells counters) {
+        sim.evolve();
+        counters.cells += (long) size * size;
+    }
+}
@@ -0,0 +1,165 @@
+package bench;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * GridBenchmark: measures the per-cell and whole-grid calls other than
+ * evolve: neighbor counting, the statistics getters, applyPatternToGrid and
+ * RLE parsing.
+ *
+ * parseRle queues one line for debug_output.txt per call, as it does in
+ * the game; that cost is part of what is measured, the write itself is not.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GridBenchmark {
+    /**
+     * The width and height of the grid.
+     */
+    @Param({"50", "256", "1024", "4096"})
+    public int size;
+
+    /**
+     * The percentage of live cells.
+     */
+    @Param({"10", "35", "50"})
+    public int density;
+
+    /**
+     * The Simulation.Backend to store the grid in.
+     */
+    @Param({"BIT_PACKED", "SPARSE"})
+    public String backend;
+
+    /**
+     * A grid filled with a soup.
+     */
+    private Sim sim;
+
+    /**
+     * A soup half the size of the grid, for applyPatternToGrid.
+     */
+    private boolean[][] pattern;
+
+    /**
+     * The same soup as pattern, encoded as an RLE file.
+     */
+    private ByteBuffer rle;
+
+    /**
+     * Builds the grid, the pattern and its RLE encoding.
+     */
+    @Setup
+    public void setUp() {
+        sim = new Sim(size, size, backend);
+        sim.seed("soup-" + density, size, size);
+
+        Random random = new Random(310);
+        int half = Math.max(1, size / 2);
+        pattern = new boolean[half][half];
+        for (boolean[] row : pattern) {
+            for (int j = 0; j < half; j++) {
+                row[j] = random.nextInt(100) < density;
+            }
+        }
+        rle = ByteBuffer.wrap(encode(pattern).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Helper method: encodes a pattern as RLE, 70 characters per line at most.
+     *
+     * @param pattern the pattern.
+     * @return the RLE text.
+     */
+    private static String encode(boolean[][] pattern) {
+        StringBuilder out = new StringBuilder();
+        out.append("x = ").append(pattern[0].length).append(", y = ").append(pattern.length)
+                .append(", rule = B3/S23\n");
+        int lineStart = out.length();
+        for (int i = 0; i < pattern.length; i++) {
+            int j = 0;
+            while (j < pattern[i].length) {
+                boolean alive = pattern[i][j];
+                int run = 0;
+                while (j < pattern[i].length && pattern[i][j] == alive) {
+                    run++;
+                    j++;
+                }
+                if (out.length() - lineStart > 60) {
+                    out.append('\n');
+                    lineStart = out.length();
+                }
+                if (run > 1) {
+                    out.append(run);
+                }
+                out.append(alive ? 'o' : 'b');
+            }
+            out.append(i == pattern.length - 1 ? '!' : '$');
+        }
+        return out.append('\n').toString();
+    }
+
+    /**
+     * Counts the neighbors of every cell in the grid.
+     *
+     * @return the total, so the calls cannot be removed.
+     */
+    @Benchmark
+    public long countLiveNeighbors() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                total += sim.countLiveNeighbors(i, j);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Reads all three statistics, as the game does after every generation.
+     *
+     * @param blackhole sink for the results.
+     */
+    @Benchmark
+    public void statistics(Blackhole blackhole) {
+        blackhole.consume(sim.getAliveCells());
+        blackhole.consume(sim.getAverageAge());
+        blackhole.consume(sim.getMaxAge());
+    }
+
+    /**
+     * Resets the grid and centers the soup pattern in it.
+     */
+    @Benchmark
+    public void applyPatternToGrid() {
+        sim.applyPatternToGrid(pattern);
+    }
+
+    /**
+     * Resets the grid and decodes the RLE file into it.
+     */
+    @Benchmark
+    public void parseRle() {
+        sim.parseRle(rle.duplicate());
+    }
+}
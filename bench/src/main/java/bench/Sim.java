@@ -0,0 +1,313 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sim: a handle on a Simulation for the benchmarks.
+ *
+ * Simulation lives in the default package, which classes in a named package
+ * (as JMH requires) cannot refer to. Its methods are called through
+ * MethodHandles held in static final fields instead; the JIT treats those as
+ * constants and inlines straight through invokeExact, so the bridge costs
+ * nothing once compiled.
+ */
+final class Sim {
+    /**
+     * The Gosper glider gun, in RLE.
+     */
+    static final List<String> GOSPER_GUN = List.of(
+            "x = 36, y = 9, rule = B3/S23",
+            "24bo$22bobo$12b2o6b2o12b2o$11bo3bo4b2o12b2o$2o8bo5bo3b2o$2o8bo3bob2o4bobo$"
+                    + "10bo5bo7bo$11bo3bo$12b2o!");
+
+    /**
+     * The R-pentomino, in RLE.
+     */
+    static final List<String> R_PENTOMINO = List.of(
+            "x = 3, y = 3, rule = B3/S23",
+            "b2o$2o$bo!");
+
+    /**
+     * new Simulation(int, int, Backend).
+     */
+    private static final MethodHandle NEW;
+
+    /**
+     * Simulation.evolve().
+     */
+    private static final MethodHandle EVOLVE;
+
+    /**
+     * Simulation.toggleCell(int, int).
+     */
+    private static final MethodHandle TOGGLE_CELL;
+
+    /**
+     * Simulation.countLiveNeighbors(int, int).
+     */
+    private static final MethodHandle COUNT_LIVE_NEIGHBORS;
+
+    /**
+     * Simulation.getAliveCells().
+     */
+    private static final MethodHandle GET_ALIVE_CELLS;
+
+    /**
+     * Simulation.getAverageAge().
+     */
+    private static final MethodHandle GET_AVERAGE_AGE;
+
+    /**
+     * Simulation.getMaxAge().
+     */
+    private static final MethodHandle GET_MAX_AGE;
+
+    /**
+     * Simulation.applyPatternToGrid(boolean[][]).
+     */
+    private static final MethodHandle APPLY_PATTERN;
+
+    /**
+     * Simulation.parseRle(List).
+     */
+    private static final MethodHandle PARSE_RLE_LINES;
+
+    /**
+     * Simulation.parseRle(ByteBuffer).
+     */
+    private static final MethodHandle PARSE_RLE_BUFFER;
+
+    /**
+     * The Simulation.Backend enum.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final Class<? extends Enum> BACKEND;
+
+    static {
+        try {
+            Class<?> simulation = Class.forName("Simulation");
+            BACKEND = Class.forName("Simulation$Backend").asSubclass(Enum.class);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            NEW = lookup.findConstructor(simulation,
+                    MethodType.methodType(void.class, int.class, int.class, BACKEND))
+                    .asType(MethodType.methodType(Object.class, int.class, int.class, Object.class));
+            EVOLVE = method(lookup, simulation, "evolve", void.class);
+            TOGGLE_CELL = method(lookup, simulation, "toggleCell", void.class, int.class, int.class);
+            COUNT_LIVE_NEIGHBORS = method(lookup, simulation, "countLiveNeighbors", int.class,
+                    int.class, int.class);
+            GET_ALIVE_CELLS = method(lookup, simulation, "getAliveCells", int.class);
+            GET_AVERAGE_AGE = method(lookup, simulation, "getAverageAge", double.class);
+            GET_MAX_AGE = method(lookup, simulation, "getMaxAge", int.class);
+            APPLY_PATTERN = method(lookup, simulation, "applyPatternToGrid", void.class, boolean[][].class);
+            PARSE_RLE_LINES = method(lookup, simulation, "parseRle", void.class, List.class);
+            PARSE_RLE_BUFFER = method(lookup, simulation, "parseRle", void.class, ByteBuffer.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * The Simulation being driven.
+     */
+    private final Object target;
+
+    /**
+     * Main constructor.
+     *
+     * @param rows the number of rows in the grid.
+     * @param cols the number of columns in the grid.
+     * @param backend the name of a Simulation.Backend constant.
+     */
+    @SuppressWarnings("unchecked")
+    Sim(int rows, int cols, String backend) {
+        try {
+            target = (Object) NEW.invokeExact(rows, cols, (Object) Enum.valueOf(BACKEND, backend));
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Helper method: finds a public instance method, typed to take the target as an Object.
+     *
+     * @param lookup the lookup to search with.
+     * @param owner the class declaring the method.
+     * @param name the method name.
+     * @param returns the return type.
+     * @param params the parameter types.
+     * @return the handle.
+     * @throws ReflectiveOperationException if there is no such method.
+     */
+    private static MethodHandle method(MethodHandles.Lookup lookup, Class<?> owner, String name,
+            Class<?> returns, Class<?>... params) throws ReflectiveOperationException {
+        MethodType type = MethodType.methodType(returns, params);
+        return lookup.findVirtual(owner, name, type).asType(type.insertParameterTypes(0, Object.class));
+    }
+
+    /**
+     * Helper method: passes any Throwable on unchecked.
+     *
+     * @param t the failure.
+     * @return never returns normally.
+     */
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new RuntimeException(t);
+    }
+
+    /**
+     * Fills the grid with a seed: "soup-N" for N% random live cells, or
+     * "r-pentomino" or "gosper-gun" centered in the grid.
+     *
+     * @param seed the seed name.
+     * @param rows the number of rows in the grid.
+     * @param cols the number of columns in the grid.
+     */
+    void seed(String seed, int rows, int cols) {
+        if (seed.startsWith("soup-")) {
+            int density = Integer.parseInt(seed.substring("soup-".length()));
+            Random random = new Random(310);
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    if (random.nextInt(100) < density) {
+                        toggleCell(i, j);
+                    }
+                }
+            }
+        } else if (seed.equals("r-pentomino")) {
+            parseRle(R_PENTOMINO);
+        } else if (seed.equals("gosper-gun")) {
+            parseRle(GOSPER_GUN);
+        } else {
+            throw new IllegalArgumentException("Unknown seed " + seed);
+        }
+    }
+
+    /**
+     * Calls evolve().
+     */
+    void evolve() {
+        try {
+            EVOLVE.invokeExact(target);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Calls toggleCell(row, col).
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    void toggleCell(int row, int col) {
+        try {
+            TOGGLE_CELL.invokeExact(target, row, col);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Calls countLiveNeighbors(row, col).
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the live neighbor count.
+     */
+    int countLiveNeighbors(int row, int col) {
+        try {
+            return (int) COUNT_LIVE_NEIGHBORS.invokeExact(target, row, col);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Calls getAliveCells().
+     *
+     * @return the live cell count.
+     */
+    int getAliveCells() {
+        try {
+            return (int) GET_ALIVE_CELLS.invokeExact(target);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Calls getAverageAge().
+     *
+     * @return the average age.
+     */
+    double getAverageAge() {
+        try {
+            return (double) GET_AVERAGE_AGE.invokeExact(target);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Calls getMaxAge().
+     *
+     * @return the maximum age.
+     */
+    int getMaxAge() {
+        try {
+            return (int) GET_MAX_AGE.invokeExact(target);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Calls applyPatternToGrid(pattern).
+     *
+     * @param pattern the pattern to center in the grid.
+     */
+    void applyPatternToGrid(boolean[][] pattern) {
+        try {
+            APPLY_PATTERN.invokeExact(target, pattern);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Calls parseRle(lines).
+     *
+     * @param lines the lines of an RLE file.
+     */
+    void parseRle(List<String> lines) {
+        try {
+            PARSE_RLE_LINES.invokeExact(target, lines);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Calls parseRle(buffer).
+     *
+     * @param buffer the bytes of an RLE file.
+     */
+    void parseRle(ByteBuffer buffer) {
+        try {
+            PARSE_RLE_BUFFER.invokeExact(target, buffer);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+}
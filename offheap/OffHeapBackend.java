@@ -0,0 +1,948 @@
+import java.awt.Color;
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * OffHeapBackend: the bit-packed grid of BitGridBackend kept outside the
+ * Java heap, in a MemorySegment from the Foreign Function & Memory API.
+ *
+ * The segment is either plain native memory or a file mapped read-write.
+ * A mapped grid survives the process: opening the same file again picks up
+ * the cells, their ages, the rule and which buffer is current. Only the
+ * pages being touched need to be in RAM, so a mapped grid can be larger
+ * than memory and the OS pages it in and out as evolve() sweeps it. The
+ * segment is released when the backend is garbage collected.
+ *
+ * Segment layout, in native byte order:
+ *   a HEADER_BYTES header (magic, version, rows, cols, boundary, current
+ *   buffer, clock, birth and survival masks),
+ *   two cell buffers of rows + 2 stored rows by stride words each, laid out
+ *   like BitGridBackend's (column c at bit c + 1, a halo row above and below),
+ *   one int per cell holding the generation it was born in.
+ * Birth generations are absolute rather than epoch-relative shorts, so ages
+ * never need the rebase pass over every cell that would page a whole file
+ * in. That makes a cell cost a little over 4 bytes.
+ *
+ * Activity is tracked per row instead of per tile: a row is evolved only
+ * if it or a neighbor row changed in the previous generation (or was
+ * edited). The flags are on the heap, one per row. No per-cell colors are
+ * stored. Cells are addressed with long indexes, so the grid may hold more
+ * than 2^31 cells; getPopulation() and the birth and death tallies count in
+ * longs, and the int getters are capped.
+ *
+ * The FFM API is a preview in JDK 21, so this class is built on its own:
+ *   javac --release 21 --enable-preview -cp out -d out offheap/OffHeapBackend.java
+ *   java --enable-preview -cp out ...
+ * (on JDK 22 or later, without the preview flags). Without that,
+ * Simulation.openOffHeap throws UnsupportedOperationException.
+ */
+public class OffHeapBackend implements GridBackend {
+    /**
+     * The first int of every grid file, "GOLM" in ASCII.
+     */
+    private static final int MAGIC = 0x474F4C4D;
+
+    /**
+     * The layout version written into new files.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The bytes before the first cell buffer.
+     */
+    private static final long HEADER_BYTES = 64;
+
+    /**
+     * Header offset of the magic number.
+     */
+    private static final long MAGIC_AT = 0;
+
+    /**
+     * Header offset of the layout version.
+     */
+    private static final long VERSION_AT = 4;
+
+    /**
+     * Header offset of the row count.
+     */
+    private static final long ROWS_AT = 8;
+
+    /**
+     * Header offset of the column count.
+     */
+    private static final long COLS_AT = 12;
+
+    /**
+     * Header offset of the boundary's ordinal.
+     */
+    private static final long BOUNDARY_AT = 16;
+
+    /**
+     * Header offset of the index (0 or 1) of the current cell buffer.
+     */
+    private static final long BUFFER_AT = 20;
+
+    /**
+     * Header offset of the clock.
+     */
+    private static final long CLOCK_AT = 24;
+
+    /**
+     * Header offset of the rule's birth mask.
+     */
+    private static final long BIRTH_AT = 28;
+
+    /**
+     * Header offset of the rule's survival mask.
+     */
+    private static final long SURVIVAL_AT = 32;
+
+    /**
+     * The number of rows the grid has.
+     */
+    private final int rows;
+
+    /**
+     * The number of cols the grid has.
+     */
+    private final int cols;
+
+    /**
+     * The number of words per stored row, halo columns included.
+     */
+    private final int stride;
+
+    /**
+     * The word holding the last column; words past it hold only the halo.
+     */
+    private final int lastWord;
+
+    /**
+     * The bits of lastWord that hold real columns or the west halo.
+     */
+    private final long lastWordMask;
+
+    /**
+     * What lies past the edges.
+     */
+    private final Boundary boundary;
+
+    /**
+     * The header, both cell buffers and the birth generations.
+     */
+    private final MemorySegment segment;
+
+    /**
+     * The bytes in one cell buffer.
+     */
+    private final long bufferBytes;
+
+    /**
+     * The offset of the birth generations in the segment.
+     */
+    private final long bornBase;
+
+    /**
+     * The index, 0 or 1, of the buffer holding the current generation.
+     */
+    private int current;
+
+    /**
+     * The offset of the current cell buffer in the segment.
+     */
+    private long cells;
+
+    /**
+     * The offset of the buffer the next generation is written into.
+     */
+    private long next;
+
+    /**
+     * The number of generations this backend has evolved since the last
+     * clear, carried over when a file is reopened.
+     */
+    private int clock;
+
+    /**
+     * Running population and age statistics.
+     */
+    private final CellStats stats = new CellStats();
+
+    /**
+     * The Zobrist hash of the live cells, by row * cols + col.
+     */
+    private long hash;
+
+    /**
+     * Rows whose cells changed in the last generation or were edited since.
+     */
+    private boolean[] changed;
+
+    /**
+     * Rows whose cells change in the generation being computed; swapped with changed.
+     */
+    private boolean[] changedNext;
+
+    /**
+     * The number of rows evolved in the last generation.
+     */
+    private int activeRows;
+
+    /**
+     * The number of cells born in the last generation.
+     */
+    private long lastBirths;
+
+    /**
+     * The number of cells that died in the last generation.
+     */
+    private long lastDeaths;
+
+    /**
+     * The rule evolve() applies.
+     */
+    private Rule rule = Rule.CONWAY;
+
+    /**
+     * Main constructor. Opens a grid in native memory, or mapped onto a file.
+     * A missing or empty file gets a new dead grid; any other file must
+     * hold a grid of the same size and boundary, and is carried on from
+     * where it was left.
+     * O(rows * stride + population) to reopen a file, O(1) otherwise.
+     *
+     * @param rows the number of rows in the grid
+     * @param cols the number of columns in the grid
+     * @param boundary what lies past the edges
+     * @param file the file to map the grid onto, or null to keep it in memory
+     * @throws IOException if the file cannot be mapped or is not a grid file.
+     * @throws IllegalArgumentException if the file holds a grid of another
+     *         size or boundary.
+     */
+    public OffHeapBackend(int rows, int cols, Boundary boundary, File file) throws IOException {
+        this.rows = rows;
+        this.cols = cols;
+        this.boundary = boundary;
+        this.stride = (int) (((long) cols + 2 + 63) >>> 6);
+        this.lastWord = cols >>> 6;
+        this.lastWordMask = (cols & 63) == 63 ? -1L : (1L << ((cols & 63) + 1)) - 1;
+        this.bufferBytes = (long) (rows + 2) * stride * Long.BYTES;
+        this.bornBase = HEADER_BYTES + 2 * bufferBytes;
+        // round up so the segment ends on a whole word
+        long size = (bornBase + (long) rows * cols * Integer.BYTES + 7) & ~7L;
+        this.changed = new boolean[rows];
+        this.changedNext = new boolean[rows];
+        Arena arena = Arena.ofAuto();
+        boolean fresh;
+        if (file == null) {
+            segment = arena.allocate(size, Long.BYTES);
+            fresh = true;
+        } else {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long length = channel.size();
+                fresh = length == 0;
+                if (!fresh) {
+                    checkHeader(channel, file, length, size);
+                }
+                // mapping past the end grows the file, sparsely where the file system can
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            }
+        }
+        if (fresh) {
+            setHeader(MAGIC_AT, MAGIC);
+            setHeader(VERSION_AT, VERSION);
+            setHeader(ROWS_AT, rows);
+            setHeader(COLS_AT, cols);
+            setHeader(BOUNDARY_AT, boundary.ordinal());
+            writeState();
+        } else {
+            current = header(BUFFER_AT);
+            clock = header(CLOCK_AT);
+            rule = new Rule(header(BIRTH_AT), header(SURVIVAL_AT));
+        }
+        cells = bufferAt(current);
+        next = bufferAt(current ^ 1);
+        if (!fresh) {
+            rebuildStats();
+            // nothing is known about the last generation, so every row is evolved once
+            Arrays.fill(changed, true);
+        }
+    }
+
+    /**
+     * Helper method: checks that an existing file holds a grid this backend
+     * can open, before it is mapped.
+     *
+     * @param channel the open file.
+     * @param file the file, for messages.
+     * @param length the length of the file.
+     * @param size the length a grid of this size takes.
+     * @throws IOException if the file is not a whole grid file.
+     * @throws IllegalArgumentException if it holds a grid of another size or boundary.
+     */
+    private void checkHeader(FileChannel channel, File file, long length, long size) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate((int) HEADER_BYTES).order(ByteOrder.nativeOrder());
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // keep reading until the header is full or the file ends
+        }
+        if (header.hasRemaining() || header.getInt((int) MAGIC_AT) != MAGIC) {
+            throw new IOException(file + " is not a grid file");
+        }
+        if (header.getInt((int) VERSION_AT) != VERSION) {
+            throw new IOException(file + " has unknown layout version " + header.getInt((int) VERSION_AT));
+        }
+        int fileRows = header.getInt((int) ROWS_AT);
+        int fileCols = header.getInt((int) COLS_AT);
+        int fileBoundary = header.getInt((int) BOUNDARY_AT);
+        if (fileRows != rows || fileCols != cols || fileBoundary != boundary.ordinal()) {
+            String mode = fileBoundary >= 0 && fileBoundary < Boundary.values().length
+                    ? Boundary.values()[fileBoundary].toString() : "unknown";
+            throw new IllegalArgumentException(file + " holds a " + fileRows + "x" + fileCols + " " + mode
+                    + " grid, not " + rows + "x" + cols + " " + boundary);
+        }
+        if (length != size) {
+            throw new IOException(file + " is " + length + " bytes, not " + size);
+        }
+    }
+
+    /**
+     * Helper method: reads an int from the header.
+     *
+     * @param offset the header offset.
+     * @return the value.
+     */
+    private int header(long offset) {
+        return segment.get(ValueLayout.JAVA_INT, offset);
+    }
+
+    /**
+     * Helper method: writes an int into the header.
+     *
+     * @param offset the header offset.
+     * @param value the value.
+     */
+    private void setHeader(long offset, int value) {
+        segment.set(ValueLayout.JAVA_INT, offset, value);
+    }
+
+    /**
+     * Helper method: writes the current buffer, clock and rule into the
+     * header, so a mapped file reopens where it was left.
+     */
+    private void writeState() {
+        setHeader(BUFFER_AT, current);
+        setHeader(CLOCK_AT, clock);
+        setHeader(BIRTH_AT, rule.getBirthMask());
+        setHeader(SURVIVAL_AT, rule.getSurvivalMask());
+    }
+
+    /**
+     * Helper method: the offset of a cell buffer in the segment.
+     *
+     * @param buffer 0 or 1.
+     * @return the offset of its first word.
+     */
+    private long bufferAt(int buffer) {
+        return HEADER_BYTES + buffer * bufferBytes;
+    }
+
+    /**
+     * Helper method: the offset of a word of a stored row.
+     *
+     * @param buffer the offset of the cell buffer.
+     * @param row the stored row, 0 to rows + 1.
+     * @param word the word of the row.
+     * @return the offset in the segment.
+     */
+    private long wordAt(long buffer, int row, int word) {
+        return buffer + ((long) row * stride + word) * Long.BYTES;
+    }
+
+    /**
+     * Helper method: reads a word of the current buffer.
+     *
+     * @param row the stored row, 0 to rows + 1.
+     * @param word the word of the row.
+     * @return the word.
+     */
+    private long word(int row, int word) {
+        return segment.get(ValueLayout.JAVA_LONG, wordAt(cells, row, word));
+    }
+
+    /**
+     * Helper method: writes a word of the current buffer.
+     *
+     * @param row the stored row, 0 to rows + 1.
+     * @param word the word of the row.
+     * @param bits the word.
+     */
+    private void setWordBits(int row, int word, long bits) {
+        segment.set(ValueLayout.JAVA_LONG, wordAt(cells, row, word), bits);
+    }
+
+    /**
+     * Helper method: the bits of a word that hold real columns.
+     *
+     * @param word the word of a stored row.
+     * @return the mask.
+     */
+    private long interiorMask(int word) {
+        if (word > lastWord) {
+            return 0;
+        }
+        long mask = word == 0 ? ~1L : -1L;
+        return word == lastWord ? mask & lastWordMask : mask;
+    }
+
+    /**
+     * Helper method: the row-major index of a cell.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return the index, which can pass 2^31 on large grids.
+     */
+    private long indexOf(int row, int col) {
+        return (long) row * cols + col;
+    }
+
+    /**
+     * Helper method: the birth generation of a live cell.
+     *
+     * @param index the row-major index of the cell.
+     * @return the generation it was born in.
+     */
+    private int bornAt(long index) {
+        return segment.get(ValueLayout.JAVA_INT, bornBase + index * Integer.BYTES);
+    }
+
+    /**
+     * Helper method: stamps the birth generation of a cell.
+     *
+     * @param index the row-major index of the cell.
+     * @param born the generation it was born in.
+     */
+    private void setBornAt(long index, int born) {
+        segment.set(ValueLayout.JAVA_INT, bornBase + index * Integer.BYTES, born);
+    }
+
+    /**
+     * Helper method: recounts the statistics and the hash from the live
+     * cells of a reopened file.
+     * O(rows * stride + population)
+     */
+    private void rebuildStats() {
+        stats.clear();
+        hash = 0;
+        forEachAlive((row, col) -> {
+            long index = row * cols + col;
+            stats.add(bornAt(index));
+            hash ^= Zobrist.key(index);
+        });
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public boolean isAlive(int row, int col) {
+        return (word(row + 1, (col + 1) >>> 6) & (1L << (col + 1))) != 0;
+    }
+
+    @Override
+    public int getAge(int row, int col) {
+        return isAlive(row, col) ? Math.min(clock - bornAt(indexOf(row, col)) + 1, CellPlane.MAX_AGE) : 0;
+    }
+
+    @Override
+    public void setAlive(int row, int col) {
+        int w = (col + 1) >>> 6;
+        long bits = word(row + 1, w);
+        long bit = 1L << (col + 1);
+        if ((bits & bit) == 0) {
+            long index = indexOf(row, col);
+            setWordBits(row + 1, w, bits | bit);
+            hash ^= Zobrist.key(index);
+            setBornAt(index, clock);
+            stats.add(clock);
+            changed[row] = true;
+        }
+    }
+
+    @Override
+    public void setAlive(int row, int col, int age) {
+        int w = (col + 1) >>> 6;
+        long bits = word(row + 1, w);
+        long bit = 1L << (col + 1);
+        long index = indexOf(row, col);
+        if ((bits & bit) != 0) {
+            stats.remove(bornAt(index));
+        } else {
+            setWordBits(row + 1, w, bits | bit);
+            hash ^= Zobrist.key(index);
+            changed[row] = true;
+        }
+        setBornAt(index, clock - age + 1);
+        stats.add(clock - age + 1);
+    }
+
+    @Override
+    public void setDead(int row, int col) {
+        int w = (col + 1) >>> 6;
+        long bits = word(row + 1, w);
+        long bit = 1L << (col + 1);
+        if ((bits & bit) != 0) {
+            long index = indexOf(row, col);
+            setWordBits(row + 1, w, bits & ~bit);
+            hash ^= Zobrist.key(index);
+            stats.remove(bornAt(index));
+            changed[row] = true;
+        }
+    }
+
+    /**
+     * Reads the 64 cells straddling two stored words, undoing the one-bit
+     * halo offset.
+     * O(1)
+     */
+    @Override
+    public long getWord(int row, int word) {
+        long high = word + 1 < stride ? word(row + 1, word + 1) << 63 : 0;
+        return (word(row + 1, word) >>> 1) | high;
+    }
+
+    /**
+     * Sets the 64 cells with two word writes, stamping only the new births.
+     * O(births)
+     */
+    @Override
+    public void setWord(int row, int word, long bits) {
+        int remaining = cols - (word << 6);
+        if (remaining < 64) {
+            bits &= (1L << remaining) - 1;
+        }
+        long births = bits & ~getWord(row, word);
+        if (births == 0) {
+            return;
+        }
+        setWordBits(row + 1, word, word(row + 1, word) | (births << 1));
+        if (word + 1 < stride) {
+            setWordBits(row + 1, word + 1, word(row + 1, word + 1) | (births >>> 63));
+        }
+        changed[row] = true;
+        stats.add(clock, Long.bitCount(births));
+        long first = indexOf(row, word << 6);
+        while (births != 0) {
+            long index = first + Long.numberOfTrailingZeros(births);
+            hash ^= Zobrist.key(index);
+            setBornAt(index, clock);
+            births &= births - 1;
+        }
+    }
+
+    /**
+     * Clears the 64 cells with two word writes, unstamping only the deaths.
+     * O(deaths)
+     */
+    @Override
+    public void clearWord(int row, int word, long bits) {
+        int remaining = cols - (word << 6);
+        if (remaining < 64) {
+            bits &= (1L << remaining) - 1;
+        }
+        long deaths = bits & getWord(row, word);
+        if (deaths == 0) {
+            return;
+        }
+        setWordBits(row + 1, word, word(row + 1, word) & ~(deaths << 1));
+        if (word + 1 < stride) {
+            setWordBits(row + 1, word + 1, word(row + 1, word + 1) & ~(deaths >>> 63));
+        }
+        changed[row] = true;
+        long first = indexOf(row, word << 6);
+        while (deaths != 0) {
+            long index = first + Long.numberOfTrailingZeros(deaths);
+            hash ^= Zobrist.key(index);
+            stats.remove(bornAt(index));
+            deaths &= deaths - 1;
+        }
+    }
+
+    /**
+     * Counts the live neighbors by reading the eight surrounding bits; the
+     * dead halo makes edge cells need no bounds checks. Between generations
+     * the halo is not kept filled, so wrapping boundaries look across the
+     * edges instead.
+     * O(1)
+     */
+    @Override
+    public int countLiveNeighbors(int row, int col) {
+        if (boundary.wraps()) {
+            return boundary.countLiveNeighbors(this, row, col);
+        }
+        int count = 0;
+        for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+                if ((dr != 0 || dc != 0) && isAlive(row + dr, col + dc)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Helper method: evolves one stored row into the next buffer with the
+     * same full adders as BitGridBackend, then stamps its births, unstamps
+     * its deaths and flags it if anything changed.
+     * O(stride + births + deaths)
+     *
+     * @param row the stored row index, 1 to rows.
+     */
+    private void evolveRow(int row) {
+        long up = wordAt(cells, row - 1, 0);
+        long mid = wordAt(cells, row, 0);
+        long down = wordAt(cells, row + 1, 0);
+        long out = wordAt(next, row, 0);
+        long first = indexOf(row - 1, 0) - 1;
+        MemorySegment src = segment;
+        Rule rule = this.rule;
+        long upPrev = 0;
+        long midPrev = 0;
+        long downPrev = 0;
+        long upCur = src.get(ValueLayout.JAVA_LONG, up);
+        long midCur = src.get(ValueLayout.JAVA_LONG, mid);
+        long downCur = src.get(ValueLayout.JAVA_LONG, down);
+        boolean rowChanged = false;
+        for (int j = 0; j < stride; j++) {
+            boolean last = j == stride - 1;
+            long offset = (long) (j + 1) * Long.BYTES;
+            long upNext = last ? 0 : src.get(ValueLayout.JAVA_LONG, up + offset);
+            long midNext = last ? 0 : src.get(ValueLayout.JAVA_LONG, mid + offset);
+            long downNext = last ? 0 : src.get(ValueLayout.JAVA_LONG, down + offset);
+
+            // west neighbor of bit i is bit i - 1, east neighbor is bit i + 1
+            long aW = (upCur << 1) | (upPrev >>> 63);
+            long aE = (upCur >>> 1) | (upNext << 63);
+            long mW = (midCur << 1) | (midPrev >>> 63);
+            long mE = (midCur >>> 1) | (midNext << 63);
+            long bW = (downCur << 1) | (downPrev >>> 63);
+            long bE = (downCur >>> 1) | (downNext << 63);
+
+            // per-row 2-bit sums: above and below have three inputs, middle two
+            long t0 = aW ^ upCur ^ aE;
+            long t1 = (aW & upCur) | (aE & (aW ^ upCur));
+            long m0 = mW ^ mE;
+            long m1 = mW & mE;
+            long b0 = bW ^ downCur ^ bE;
+            long b1 = (bW & downCur) | (bE & (bW ^ downCur));
+
+            // add the three 2-bit sums: count = s0 + 2*s1 + 4*s2 + 8*s3
+            long s0 = t0 ^ m0 ^ b0;
+            long c0 = (t0 & m0) | (b0 & (t0 ^ m0));
+            long p = t1 ^ m1;
+            long q = b1 ^ c0;
+            long s1 = p ^ q;
+            long pairA = t1 & m1;
+            long pairB = b1 & c0;
+            long s2 = pairA ^ pairB ^ (p & q);
+            long s3 = pairA & pairB;
+
+            long mask = interiorMask(j);
+            // the mask drops halo bits a wrapping boundary filled in
+            long before = midCur & mask;
+            long after = rule.next(midCur, s0, s1, s2, s3) & mask;
+            src.set(ValueLayout.JAVA_LONG, out + (long) j * Long.BYTES, after);
+            if (before != after) {
+                rowChanged = true;
+                long births = after & ~before;
+                long deaths = before & ~after;
+                lastBirths += Long.bitCount(births);
+                lastDeaths += Long.bitCount(deaths);
+                long wordFirst = first + ((long) j << 6);
+                while (births != 0) {
+                    long index = wordFirst + Long.numberOfTrailingZeros(births);
+                    hash ^= Zobrist.key(index);
+                    setBornAt(index, clock);
+                    births &= births - 1;
+                }
+                while (deaths != 0) {
+                    long index = wordFirst + Long.numberOfTrailingZeros(deaths);
+                    hash ^= Zobrist.key(index);
+                    stats.remove(bornAt(index));
+                    deaths &= deaths - 1;
+                }
+            }
+
+            upPrev = upCur;
+            midPrev = midCur;
+            downPrev = downCur;
+            upCur = upNext;
+            midCur = midNext;
+            downCur = downNext;
+        }
+        changedNext[row - 1] = rowChanged;
+    }
+
+    /**
+     * Helper method: copies the cells across each edge into the halo of the
+     * current buffer. The halo columns of every row are set first, so the
+     * halo rows copied after them carry the corner cells too. On a Klein
+     * bottle the halo rows are bit-reversed copies.
+     * O(rows + stride)
+     */
+    private void fillHalo() {
+        int eastWord = (cols + 1) >>> 6;
+        long eastBit = 1L << (cols + 1);
+        for (int r = 1; r <= rows; r++) {
+            long west = word(r, 0);
+            // west halo (bit 0) takes column cols - 1 (bit cols), east halo takes column 0 (bit 1)
+            west = (west & ~1L) | ((word(r, cols >>> 6) >>> cols) & 1L);
+            setWordBits(r, 0, west);
+            setWordBits(r, eastWord, (word(r, eastWord) & ~eastBit) | (((west >>> 1) & 1L) << (cols + 1)));
+        }
+        if (boundary.mirrorsRows()) {
+            mirrorRow(rows, 0);
+            mirrorRow(1, rows + 1);
+        } else {
+            MemorySegment.copy(segment, wordAt(cells, rows, 0), segment, wordAt(cells, 0, 0), (long) stride * Long.BYTES);
+            MemorySegment.copy(segment, wordAt(cells, 1, 0), segment, wordAt(cells, rows + 1, 0),
+                    (long) stride * Long.BYTES);
+        }
+    }
+
+    /**
+     * Helper method: writes a stored row with its cols + 2 bits (halo columns
+     * included) in reverse order into another stored row of cells.
+     * O(stride)
+     *
+     * @param from the stored row to reverse.
+     * @param to the stored row to write.
+     */
+    private void mirrorRow(int from, int to) {
+        // reversing all stride * 64 bits puts bit b at stride * 64 - 1 - b; shifting
+        // down by the unused top bits then puts it at cols + 1 - b
+        int shift = (stride << 6) - (cols + 2);
+        for (int i = 0; i < stride; i++) {
+            long low = Long.reverse(word(from, stride - 1 - i));
+            long high = i + 1 < stride ? Long.reverse(word(from, stride - 2 - i)) : 0;
+            setWordBits(to, i, shift == 0 ? low : (low >>> shift) | (high << (64 - shift)));
+        }
+    }
+
+    /**
+     * Helper method: whether a row must be evolved this generation, because
+     * it or a neighbor row changed. With a wrapping boundary the first and
+     * last rows are neighbors.
+     *
+     * @param row the grid row.
+     * @return true to evolve it.
+     */
+    private boolean isActive(int row) {
+        if (changed[row]) {
+            return true;
+        }
+        boolean wraps = boundary.wraps();
+        int above = row > 0 ? row - 1 : wraps ? rows - 1 : -1;
+        int below = row < rows - 1 ? row + 1 : wraps ? 0 : -1;
+        return (above >= 0 && changed[above]) || (below >= 0 && changed[below]);
+    }
+
+    /**
+     * Evolves the active rows into the spare buffer, then swaps buffers and
+     * records which one is current in the header. The kernel never writes
+     * the halo, so on a bounded grid both buffers keep it dead; a wrapping
+     * boundary refills it first. A skipped row saw no change nearby last
+     * generation, so the spare buffer already holds its cells.
+     * O(rows + active rows * stride + births + deaths), no allocation.
+     */
+    @Override
+    public void evolve() {
+        clock++;
+        Arrays.fill(changedNext, false);
+        lastBirths = 0;
+        lastDeaths = 0;
+        activeRows = 0;
+        boolean any = false;
+        for (int r = 0; r < rows && !any; r++) {
+            any = changed[r];
+        }
+        if (any) {
+            if (boundary.wraps()) {
+                fillHalo();
+            }
+            for (int r = 0; r < rows; r++) {
+                if (isActive(r)) {
+                    evolveRow(r + 1);
+                    activeRows++;
+                }
+            }
+        }
+        stats.add(clock, lastBirths);
+        current ^= 1;
+        long swap = cells;
+        cells = next;
+        next = swap;
+        boolean[] swapChanged = changed;
+        changed = changedNext;
+        changedNext = swapChanged;
+        writeState();
+    }
+
+    /**
+     * Returns the number of rows evolved in the last generation; a row is
+     * this backend's tile.
+     *
+     * @return the active row count.
+     */
+    @Override
+    public int getActiveTiles() {
+        return activeRows;
+    }
+
+    /**
+     * True if the row changed or was edited.
+     * O(1)
+     */
+    @Override
+    public boolean isRowChanged(int row) {
+        return changed[row];
+    }
+
+    @Override
+    public int getLastBirths() {
+        return (int) Math.min(lastBirths, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int getLastDeaths() {
+        return (int) Math.min(lastDeaths, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Sets the rule and records it in the header. A row that settled under
+     * the old rule need not be settled under the new one (and under a B0
+     * rule even empty space does not stay dead), so every row is flagged as
+     * changed to get each one evolved at least once.
+     *
+     * @param rule the rule.
+     */
+    @Override
+    public void setRule(Rule rule) {
+        this.rule = rule;
+        Arrays.fill(changed, true);
+        writeState();
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public long getStateHash() {
+        return hash;
+    }
+
+    /**
+     * Kills every cell by zeroing both cell buffers, which touches every
+     * page of them.
+     * O(rows * stride)
+     */
+    @Override
+    public void clear() {
+        segment.asSlice(HEADER_BYTES, 2 * bufferBytes).fill((byte) 0);
+        // a cleared grid is only settled if empty space stays empty
+        Arrays.fill(changed, rule.bornFromNothing());
+        stats.clear();
+        hash = 0;
+        activeRows = 0;
+        clock = 0;
+        writeState();
+    }
+
+    @Override
+    public Color getColor(int row, int col) {
+        return isAlive(row, col) ? Cell.defaultAliveColor : Color.WHITE;
+    }
+
+    @Override
+    public void setColor(int row, int col, Color color) {
+        // no per-cell colors are stored
+    }
+
+    @Override
+    public HashMap<Point, Cell> toMap() {
+        HashMap<Point, Cell> map = new HashMap<>();
+        // one plane for the whole copy; its Cells are views of it
+        CellPlane copy = new CellPlane(rows * cols, new Palette());
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int index = i * cols + j;
+                if (isAlive(i, j)) {
+                    copy.setAlive(index);
+                    copy.setAge(index, getAge(i, j));
+                }
+                map.put(new Point(i, j), new Cell(copy, index));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Visits the live cells a word at a time.
+     * O(rows * stride + population)
+     */
+    @Override
+    public void forEachAlive(CellVisitor visitor) {
+        for (int r = 0; r < rows; r++) {
+            for (int w = 0; w < stride; w++) {
+                long bits = word(r + 1, w) & interiorMask(w);
+                while (bits != 0) {
+                    visitor.visit(r, (w << 6) + Long.numberOfTrailingZeros(bits) - 1);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * O(1), kept up to date on every birth and death.
+     */
+    @Override
+    public long getPopulation() {
+        return stats.getAlive();
+    }
+
+    /**
+     * O(1), kept up to date on every birth and death.
+     */
+    @Override
+    public double getAverageAge() {
+        return stats.getAverageAge(clock, CellPlane.MAX_AGE);
+    }
+
+    /**
+     * O(1), kept up to date on every birth and death.
+     */
+    @Override
+    public int getMaxAge() {
+        return Math.min(stats.getMaxAge(clock), CellPlane.MAX_AGE);
+    }
+}
@@ -0,0 +1,155 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorWordKernel: the BitGridBackend neighbor adder on LongVectors, so
+ * one pass handles as many 64-cell words as the CPU's vector registers hold
+ * (4 with AVX2, 8 with AVX-512).
+ *
+ * The west and east neighbors of each word come from loads offset by one
+ * word rather than from shuffles, so every vector is a plain array load.
+ *
+ * Needs the incubating Vector API, so it is built on its own:
+ *   javac --add-modules jdk.incubator.vector -cp out -d out vector/VectorWordKernel.java
+ *   java --add-modules jdk.incubator.vector -cp out ...
+ * Without that, WordKernel.loadVector() returns null and the scalar loop runs.
+ */
+public class VectorWordKernel implements WordKernel {
+    /**
+     * The widest vector shape the CPU supports.
+     */
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public int getWidth() {
+        return SPECIES.length();
+    }
+
+    /**
+     * Applies the same full adders and rule selector as the scalar loop, a
+     * vector of words at a time, and stops at the last whole vector.
+     * O(to - from)
+     */
+    @Override
+    public int evolveWords(long[] src, long[] dst, int up, int mid, int down, int from, int to,
+            long[] interiorMask, Rule rule) {
+        // the rule's selector constants (see Rule.next), broadcast once per call
+        long[] k = rule.slices;
+        LongVector born0 = LongVector.broadcast(SPECIES, k[0]);
+        LongVector born1 = LongVector.broadcast(SPECIES, k[1]);
+        LongVector born2 = LongVector.broadcast(SPECIES, k[2]);
+        LongVector born3 = LongVector.broadcast(SPECIES, k[3]);
+        LongVector born4 = LongVector.broadcast(SPECIES, k[4]);
+        LongVector born5 = LongVector.broadcast(SPECIES, k[5]);
+        LongVector born6 = LongVector.broadcast(SPECIES, k[6]);
+        LongVector born7 = LongVector.broadcast(SPECIES, k[7]);
+        LongVector flip0 = LongVector.broadcast(SPECIES, k[8]);
+        LongVector flip1 = LongVector.broadcast(SPECIES, k[9]);
+        LongVector flip2 = LongVector.broadcast(SPECIES, k[10]);
+        LongVector flip3 = LongVector.broadcast(SPECIES, k[11]);
+        LongVector flip4 = LongVector.broadcast(SPECIES, k[12]);
+        LongVector flip5 = LongVector.broadcast(SPECIES, k[13]);
+        LongVector flip6 = LongVector.broadcast(SPECIES, k[14]);
+        LongVector flip7 = LongVector.broadcast(SPECIES, k[15]);
+        LongVector bornFix = LongVector.broadcast(SPECIES, k[16]);
+        LongVector flipFix = LongVector.broadcast(SPECIES, k[17]);
+        int lanes = SPECIES.length();
+        int j = from;
+        for (; j + lanes <= to; j += lanes) {
+            LongVector upCur = LongVector.fromArray(SPECIES, src, up + j);
+            LongVector midCur = LongVector.fromArray(SPECIES, src, mid + j);
+            LongVector downCur = LongVector.fromArray(SPECIES, src, down + j);
+
+            // west neighbor of bit i is bit i - 1, east neighbor is bit i + 1
+            LongVector aW = west(upCur, LongVector.fromArray(SPECIES, src, up + j - 1));
+            LongVector aE = east(upCur, LongVector.fromArray(SPECIES, src, up + j + 1));
+            LongVector mW = west(midCur, LongVector.fromArray(SPECIES, src, mid + j - 1));
+            LongVector mE = east(midCur, LongVector.fromArray(SPECIES, src, mid + j + 1));
+            LongVector bW = west(downCur, LongVector.fromArray(SPECIES, src, down + j - 1));
+            LongVector bE = east(downCur, LongVector.fromArray(SPECIES, src, down + j + 1));
+
+            // per-row 2-bit sums: above and below have three inputs, middle two
+            LongVector t0 = aW.lanewise(VectorOperators.XOR, upCur).lanewise(VectorOperators.XOR, aE);
+            LongVector t1 = aW.and(upCur).or(aE.and(aW.lanewise(VectorOperators.XOR, upCur)));
+            LongVector m0 = mW.lanewise(VectorOperators.XOR, mE);
+            LongVector m1 = mW.and(mE);
+            LongVector b0 = bW.lanewise(VectorOperators.XOR, downCur).lanewise(VectorOperators.XOR, bE);
+            LongVector b1 = bW.and(downCur).or(bE.and(bW.lanewise(VectorOperators.XOR, downCur)));
+
+            // add the three 2-bit sums: count = s0 + 2*s1 + 4*s2 + 8*s3
+            LongVector s0 = t0.lanewise(VectorOperators.XOR, m0).lanewise(VectorOperators.XOR, b0);
+            LongVector c0 = t0.and(m0).or(b0.and(t0.lanewise(VectorOperators.XOR, m0)));
+            LongVector p = t1.lanewise(VectorOperators.XOR, m1);
+            LongVector q = b1.lanewise(VectorOperators.XOR, c0);
+            LongVector s1 = p.lanewise(VectorOperators.XOR, q);
+            LongVector pairA = t1.and(m1);
+            LongVector pairB = b1.and(c0);
+            LongVector s2 = pairA.lanewise(VectorOperators.XOR, pairB).lanewise(VectorOperators.XOR, p.and(q));
+            LongVector s3 = pairA.and(pairB);
+
+            // the next state for each count from 0 to 7, then select by s0, s1 and s2
+            LongVector n01 = select(s0, fate(born0, flip0, midCur), fate(born1, flip1, midCur));
+            LongVector n23 = select(s0, fate(born2, flip2, midCur), fate(born3, flip3, midCur));
+            LongVector n45 = select(s0, fate(born4, flip4, midCur), fate(born5, flip5, midCur));
+            LongVector n67 = select(s0, fate(born6, flip6, midCur), fate(born7, flip7, midCur));
+            LongVector n03 = select(s1, n01, n23);
+            LongVector n47 = select(s1, n45, n67);
+            // a count of 8 has the low bits of 0, so correct those cells
+            select(s2, n03, n47)
+                    .lanewise(VectorOperators.XOR, s3.and(fate(bornFix, flipFix, midCur)))
+                    .and(LongVector.fromArray(SPECIES, interiorMask, j))
+                    .intoArray(dst, mid + j);
+        }
+        return j;
+    }
+
+    /**
+     * Helper method: a cell's next state for one count, given whether a
+     * dead cell is born and whether a live one's fate differs.
+     *
+     * @param born all ones if a dead cell is born.
+     * @param flip all ones if a live cell's fate differs from a dead one's.
+     * @param alive the cells now.
+     * @return the next states.
+     */
+    private static LongVector fate(LongVector born, LongVector flip, LongVector alive) {
+        return born.lanewise(VectorOperators.XOR, alive.and(flip));
+    }
+
+    /**
+     * Helper method: per bit, b where the selector is set and a elsewhere.
+     *
+     * @param selector the choosing bits.
+     * @param a the bits for a clear selector.
+     * @param b the bits for a set selector.
+     * @return the selected bits.
+     */
+    private static LongVector select(LongVector selector, LongVector a, LongVector b) {
+        return a.lanewise(VectorOperators.XOR, selector.and(a.lanewise(VectorOperators.XOR, b)));
+    }
+
+    /**
+     * Helper method: each word's bits moved one column east, so bit i holds
+     * the cell west of it, with the previous word's top bit carried in.
+     *
+     * @param cur the words.
+     * @param prev the words one to the west.
+     * @return the west neighbor plane.
+     */
+    private static LongVector west(LongVector cur, LongVector prev) {
+        return cur.lanewise(VectorOperators.LSHL, 1).or(prev.lanewise(VectorOperators.LSHR, 63));
+    }
+
+    /**
+     * Helper method: each word's bits moved one column west, so bit i holds
+     * the cell east of it, with the next word's bottom bit carried in.
+     *
+     * @param cur the words.
+     * @param next the words one to the east.
+     * @return the east neighbor plane.
+     */
+    private static LongVector east(LongVector cur, LongVector next) {
+        return cur.lanewise(VectorOperators.LSHR, 1).or(next.lanewise(VectorOperators.LSHL, 63));
+    }
+}